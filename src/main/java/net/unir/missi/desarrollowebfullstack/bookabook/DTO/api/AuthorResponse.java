@@ -1,7 +1,9 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.DTO.api;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
 
@@ -14,6 +16,7 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @ToString
+@JsonFilter(FieldSelection.FILTER_ID)
 public class AuthorResponse {
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private Long id;
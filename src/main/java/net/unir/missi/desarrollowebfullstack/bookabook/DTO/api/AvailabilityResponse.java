@@ -0,0 +1,16 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.DTO.api;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class AvailabilityResponse {
+    private Long bookId;
+    private Integer copies;
+    private Integer reserved;
+    private Integer available;
+}
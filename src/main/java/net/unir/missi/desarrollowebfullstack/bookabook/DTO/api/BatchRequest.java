@@ -0,0 +1,15 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.DTO.api;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class BatchRequest {
+    private List<Long> ids;
+}
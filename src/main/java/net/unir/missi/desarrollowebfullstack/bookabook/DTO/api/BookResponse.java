@@ -1,6 +1,8 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.DTO.api;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.*;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 
 @Getter
 @Setter
@@ -8,6 +10,7 @@ import lombok.*;
 @NoArgsConstructor
 @Builder
 @ToString
+@JsonFilter(FieldSelection.FILTER_ID)
 public class BookResponse {
     private Long id;
     private String isbn;
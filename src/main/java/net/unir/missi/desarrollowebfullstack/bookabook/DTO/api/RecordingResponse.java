@@ -0,0 +1,14 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.DTO.api;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class RecordingResponse {
+    private Long recordingId;
+    private Boolean completed;
+}
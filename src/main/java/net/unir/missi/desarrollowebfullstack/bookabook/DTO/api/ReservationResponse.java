@@ -0,0 +1,20 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.DTO.api;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class ReservationResponse {
+    private String id;
+    private Long bookId;
+    private Long clientId;
+    private String status;
+    private Instant reservedAt;
+    private Instant expiresAt;
+}
@@ -0,0 +1,18 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.DTO.api;
+
+import lombok.*;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@ToString
+public class TaskResponse {
+    private String taskId;
+    private Boolean completed;
+    private Long total;
+    private Long deleted;
+    private Long versionConflicts;
+    private Integer failures;
+}
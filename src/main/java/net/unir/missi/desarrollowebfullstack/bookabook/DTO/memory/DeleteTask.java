@@ -0,0 +1,4 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory;
+
+public record DeleteTask(String taskId, Boolean completed, Long total, Long deleted, Long versionConflicts, Integer failures) {
+}
@@ -0,0 +1,70 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.admission;
+
+import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchIndexRepository;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+// Admits the repository calls through the bulkhead of their kind. Only the outermost repository call of a thread
+// takes a permit, so that repositories calling each other do not wait on themselves. It runs inside the circuit
+// breaker, so that reads refused here can still be answered from the last known good cache.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class AdmissionAspect {
+
+    private static final ThreadLocal<Bulkhead> HELD = new ThreadLocal<>();
+
+    // Reads that go over a whole index or many documents. As reads they would feed the latency target of a search
+    // with scrolls of seconds, and shrink the limit of the reads at startup.
+    private static final Set<String> BULK_READS = Set.of("getBookIdsByAuthors", "backfillAuthorIds");
+
+    private final Bulkheads bulkheads;
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.repository..*)")
+    public Object admit(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (HELD.get() != null) {
+            return joinPoint.proceed();
+        }
+
+        Bulkhead bulkhead = this.bulkheadFor(joinPoint.getSignature().getDeclaringType(),
+                joinPoint.getSignature().getName());
+        if (!bulkhead.acquire()) {
+            throw new OverloadedException(bulkhead.getName(), bulkhead.getRetryAfter());
+        }
+
+        HELD.set(bulkhead);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = joinPoint.proceed();
+            failed = false;
+            return result;
+        } finally {
+            HELD.remove();
+            bulkhead.release(System.nanoTime() - start, failed);
+        }
+    }
+
+    private Bulkhead bulkheadFor(Class<?> repository, String method) {
+        if (method.equals("deleteByQuery") || method.startsWith("bulk") || method.startsWith("scan")
+                || BULK_READS.contains(method)) {
+            return this.bulkheads.bulk();
+        }
+        // The index administration of the bootstrap. The saves of books and authors replace their documents here.
+        if (repository == ElasticsearchIndexRepository.class && !method.equals("replaceKeepingPopularity")) {
+            return this.bulkheads.bulk();
+        }
+        if (method.startsWith("save") || method.startsWith("delete") || method.startsWith("add")) {
+            return this.bulkheads.write();
+        }
+        return this.bulkheads.read();
+    }
+}
@@ -0,0 +1,43 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.admission;
+
+// Additive increase / multiplicative decrease concurrency limit. A call slower than the target latency, or failed,
+// is taken as a sign of overload and shrinks the limit; a call within target while the limit is in use grows it
+// by one.
+class AimdLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long targetNanos;
+
+    private final double backoffRatio;
+
+    private volatile int limit;
+
+    AimdLimit(int initialLimit, int minLimit, int maxLimit, long targetNanos, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = targetNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    int get() {
+        return this.limit;
+    }
+
+    // Returns true if the limit grew
+    boolean onSample(long latencyNanos, int inFlight, boolean failed) {
+        if (failed || latencyNanos > this.targetNanos) {
+            this.limit = Math.max(this.minLimit, (int) (this.limit * this.backoffRatio));
+            return false;
+        }
+        // Only grow while the current limit is actually being used
+        if (inFlight * 2 >= this.limit && this.limit < this.maxLimit) {
+            this.limit++;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Concurrency limited compartment of the calls to Elasticsearch. Callers over the limit wait in a bounded queue
+// for at most the queue timeout, and are rejected otherwise.
+public class Bulkhead {
+
+    private final String name;
+
+    private final AimdLimit limit;
+
+    private final long queueTimeoutNanos;
+
+    private final int maxQueue;
+
+    private final Duration retryAfter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition available = this.lock.newCondition();
+
+    private int inFlight;
+
+    private int waiting;
+
+    private final Counter rejected;
+
+    Bulkhead(String name, AimdLimit limit, Duration queueTimeout, int maxQueue, Duration retryAfter, MeterRegistry registry) {
+        this.name = name;
+        this.limit = limit;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.maxQueue = maxQueue;
+        this.retryAfter = retryAfter;
+
+        Gauge.builder("bookabook.bulkhead.limit", this.limit, AimdLimit::get)
+                .description("Current concurrency limit of the bulkhead")
+                .tag("bulkhead", name)
+                .register(registry);
+        Gauge.builder("bookabook.bulkhead.in.flight", this, bulkhead -> bulkhead.inFlight)
+                .description("Calls to Elasticsearch currently admitted by the bulkhead")
+                .tag("bulkhead", name)
+                .register(registry);
+        Gauge.builder("bookabook.bulkhead.waiting", this, bulkhead -> bulkhead.waiting)
+                .description("Calls waiting for the bulkhead")
+                .tag("bulkhead", name)
+                .register(registry);
+        this.rejected = Counter.builder("bookabook.bulkhead.rejected")
+                .description("Calls shed by the bulkhead")
+                .tag("bulkhead", name)
+                .register(registry);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Duration getRetryAfter() {
+        return this.retryAfter;
+    }
+
+    // Returns false if the call has to be shed
+    public boolean acquire() throws InterruptedException {
+        this.lock.lock();
+        try {
+            if (this.inFlight < this.limit.get()) {
+                this.inFlight++;
+                return true;
+            }
+            if (this.waiting >= this.maxQueue) {
+                this.rejected.increment();
+                return false;
+            }
+
+            this.waiting++;
+            try {
+                long remaining = this.queueTimeoutNanos;
+                while (this.inFlight >= this.limit.get()) {
+                    if (remaining <= 0) {
+                        this.rejected.increment();
+                        return false;
+                    }
+                    remaining = this.available.awaitNanos(remaining);
+                }
+                this.inFlight++;
+                return true;
+            } finally {
+                this.waiting--;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public void release(long latencyNanos, boolean failed) {
+        this.lock.lock();
+        try {
+            boolean grew = this.limit.onSample(latencyNanos, this.inFlight, failed);
+            this.inFlight--;
+            if (grew) {
+                this.available.signalAll();
+            } else {
+                this.available.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
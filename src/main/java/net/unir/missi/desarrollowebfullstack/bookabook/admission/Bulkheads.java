@@ -0,0 +1,59 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Separate bulkheads for the reads, the writes and the bulk operations on Elasticsearch, so that a slow kind of
+// call cannot take the threads of the others. Configured under bookabook.bulkhead.<name>.*
+@Component
+public class Bulkheads {
+
+    public static final String READ = "read";
+    public static final String WRITE = "write";
+    public static final String BULK = "bulk";
+
+    private final Bulkhead read;
+
+    private final Bulkhead write;
+
+    private final Bulkhead bulk;
+
+    public Bulkheads(Environment environment, MeterRegistry registry) {
+        this.read = create(READ, environment, registry, 20, 200, Duration.ofMillis(200), Duration.ofMillis(250));
+        this.write = create(WRITE, environment, registry, 10, 50, Duration.ofMillis(500), Duration.ofMillis(1000));
+        this.bulk = create(BULK, environment, registry, 2, 4, Duration.ofSeconds(2), Duration.ofSeconds(5));
+    }
+
+    public Bulkhead read() {
+        return this.read;
+    }
+
+    public Bulkhead write() {
+        return this.write;
+    }
+
+    public Bulkhead bulk() {
+        return this.bulk;
+    }
+
+    private static Bulkhead create(String name, Environment environment, MeterRegistry registry, int initialLimit,
+                                   int maxLimit, Duration targetLatency, Duration queueTimeout) {
+        String prefix = "bookabook.bulkhead." + name + ".";
+        AimdLimit limit = new AimdLimit(
+                environment.getProperty(prefix + "initial-limit", Integer.class, initialLimit),
+                environment.getProperty(prefix + "min-limit", Integer.class, 1),
+                environment.getProperty(prefix + "max-limit", Integer.class, maxLimit),
+                environment.getProperty(prefix + "target-latency", Duration.class, targetLatency).toNanos(),
+                environment.getProperty(prefix + "backoff-ratio", Double.class, 0.9));
+        return new Bulkhead(
+                name,
+                limit,
+                environment.getProperty(prefix + "queue-timeout", Duration.class, queueTimeout),
+                environment.getProperty(prefix + "max-queue", Integer.class, maxLimit),
+                environment.getProperty(prefix + "retry-after", Duration.class, Duration.ofSeconds(1)),
+                registry);
+    }
+}
@@ -0,0 +1,18 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.admission;
+
+import java.time.Duration;
+
+// A call to Elasticsearch was shed by its bulkhead; answered with 503 and Retry-After
+public class OverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public OverloadedException(String bulkhead, Duration retryAfter) {
+        super("The " + bulkhead + " bulkhead is full");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return this.retryAfter;
+    }
+}
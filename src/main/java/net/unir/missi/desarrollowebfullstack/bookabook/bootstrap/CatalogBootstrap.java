@@ -0,0 +1,219 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.bootstrap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.IndexGenerations;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AvailabilityDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ReservationDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.AuthorRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ClientRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchIndexRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchIndexRepository.BulkDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchIndexRepository.BulkResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+// Creates the indices with their explicit mappings and bulk loads the seed dataset before the application starts.
+// Application runners complete before the readiness state turns to ACCEPTING_TRAFFIC, so the instance is only
+// reported ready once the catalog is there. Loading twice is harmless: documents that already exist are skipped.
+@Slf4j
+@Component
+public class CatalogBootstrap implements ApplicationRunner {
+
+    private static final List<String> INDICES = List.of(
+            AuthorDocument.INDEX_NAME, BookDocument.INDEX_NAME, ClientDocument.INDEX_NAME,
+            AvailabilityDocument.INDEX_NAME, ReservationDocument.INDEX_NAME);
+
+    private static final String TEMPLATE_NAME = "bookabook";
+
+    private final ElasticsearchIndexRepository indexRepository;
+
+    private final AuthorRepository authorRepository;
+
+    private final BookRepository bookRepository;
+
+    private final ClientRepository clientRepository;
+
+    private final IndexGenerations generations;
+
+    private final ObjectMapper objectMapper;
+
+    private final ResourceLoader resourceLoader;
+
+    @Value("${bookabook.bootstrap.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookabook.bootstrap.seed:}")
+    private String seed;
+
+    @Value("${bookabook.bootstrap.bulk-size:500}")
+    private int bulkSize;
+
+    @Value("${bookabook.bootstrap.parallelism:2}")
+    private int parallelism;
+
+    @Value("${bookabook.bootstrap.shards:1}")
+    private int shards;
+
+    @Value("${bookabook.bootstrap.replicas:0}")
+    private int replicas;
+
+    @Value("${bookabook.bootstrap.refresh-interval:1s}")
+    private String refreshInterval;
+
+    public CatalogBootstrap(ElasticsearchIndexRepository indexRepository, AuthorRepository authorRepository,
+                            BookRepository bookRepository, ClientRepository clientRepository,
+                            IndexGenerations generations, ObjectMapper objectMapper, ResourceLoader resourceLoader) {
+        this.indexRepository = indexRepository;
+        this.authorRepository = authorRepository;
+        this.bookRepository = bookRepository;
+        this.clientRepository = clientRepository;
+        this.generations = generations;
+        this.objectMapper = objectMapper;
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!this.enabled) {
+            log.info("Catalog bootstrap disabled");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            this.createIndices();
+            if (StringUtils.hasText(this.seed)) {
+                this.load(this.resourceLoader.getResource(this.seed));
+            }
+            this.reserveIds();
+            this.backfillAuthorIds();
+            log.info("Catalog bootstrap finished in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            // Elasticsearch may come up later: the instance still starts, and the circuit breaker covers the gap
+            log.error("Catalog bootstrap failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Catalog bootstrap interrupted", e);
+        }
+    }
+
+    private void createIndices() throws IOException {
+        ObjectNode template = this.objectMapper.createObjectNode();
+        ArrayNode patterns = template.putArray("index_patterns");
+        INDICES.forEach(patterns::add);
+        template.putObject("template").putObject("settings").putObject("index")
+                .put("number_of_shards", this.shards)
+                .put("number_of_replicas", this.replicas)
+                .put("refresh_interval", this.refreshInterval);
+        this.indexRepository.putIndexTemplate(TEMPLATE_NAME, template);
+
+        for (String index : INDICES) {
+            if (!this.indexRepository.exists(index)) {
+                this.indexRepository.create(index, this.mappings(index));
+            } else {
+                // Fields added to the mappings since the index was created
+                this.indexRepository.putMapping(index, this.mappings(index));
+            }
+        }
+    }
+
+    private JsonNode mappings(String index) throws IOException {
+        try (InputStream content = new ClassPathResource("elasticsearch/" + index + ".json").getInputStream()) {
+            return this.objectMapper.readTree(content);
+        }
+    }
+
+    private void load(Resource resource) throws IOException, InterruptedException {
+        log.info("Loading the seed dataset {}", resource.getDescription());
+        long start = System.nanoTime();
+
+        INDICES.forEach(index -> this.indexRepository.setRefreshInterval(index, "-1"));
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "bookabook-bootstrap");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Batches are sent while the seed is still being read, with a bounded number of them waiting in memory
+            Semaphore inFlight = new Semaphore(2 * this.parallelism);
+            List<Future<BulkResult>> batches = new ArrayList<>();
+            List<BulkDocument> batch = new ArrayList<>(this.bulkSize);
+            new SeedReader(this.objectMapper).read(resource, document -> {
+                batch.add(document);
+                if (batch.size() == this.bulkSize) {
+                    batches.add(this.submit(executor, inFlight, List.copyOf(batch)));
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                batches.add(this.submit(executor, inFlight, List.copyOf(batch)));
+            }
+
+            BulkResult total = new BulkResult(0, 0, 0);
+            for (Future<BulkResult> result : batches) {
+                total = total.plus(result.get());
+            }
+            log.info("Seed dataset loaded in {} ms with {} bulk requests: {} created, {} already present, {} failed",
+                    (System.nanoTime() - start) / 1_000_000, batches.size(),
+                    total.created(), total.existing(), total.failed());
+        } catch (ExecutionException e) {
+            throw new RuntimeException("A bulk request of the seed dataset failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            for (String index : INDICES) {
+                this.indexRepository.setRefreshInterval(index, this.refreshInterval);
+                this.indexRepository.refresh(index);
+                this.generations.bump(index);
+            }
+        }
+    }
+
+    private Future<BulkResult> submit(ExecutorService executor, Semaphore inFlight, List<BulkDocument> documents) {
+        inFlight.acquireUninterruptibly();
+        return executor.submit(() -> {
+            try {
+                return this.indexRepository.bulkCreate(documents);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void backfillAuthorIds() {
+        long updated = this.bookRepository.backfillAuthorIds();
+        if (updated > 0) {
+            log.info("authorId set on {} books stored without it", updated);
+        }
+    }
+
+    // The repositories number new documents themselves, after the highest id already stored
+    public void reserveIds() {
+        this.authorRepository.reserveIdsUpTo(this.indexRepository.maxId(AuthorDocument.INDEX_NAME));
+        this.bookRepository.reserveIdsUpTo(this.indexRepository.maxId(BookDocument.INDEX_NAME));
+        this.clientRepository.reserveIdsUpTo(this.indexRepository.maxId(ClientDocument.INDEX_NAME));
+    }
+}
@@ -0,0 +1,260 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.bootstrap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchIndexRepository.BulkDocument;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Reads the seed dataset, either the INSERT statements of the SQL dumps (database_dumps/data-postgresql.sql) or
+// NDJSON in the format of the _bulk API (an action line with _index and _id followed by the source line)
+final class SeedReader {
+
+    // Tables of the SQL dumps and the index their rows go to
+    private static final Map<String, String> TABLES = Map.of(
+            "books", BookDocument.INDEX_NAME,
+            "authors", AuthorDocument.INDEX_NAME,
+            "clientdocuments", ClientDocument.INDEX_NAME,
+            "clients", ClientDocument.INDEX_NAME);
+
+    private final ObjectMapper objectMapper;
+
+    SeedReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    void read(Resource seed, Consumer<BulkDocument> consumer) throws IOException {
+        String name = seed.getFilename() != null ? seed.getFilename().toLowerCase() : "";
+        if (name.endsWith(".sql")) {
+            this.readSql(seed.getContentAsString(StandardCharsets.UTF_8), consumer);
+        } else {
+            this.readNdjson(seed, consumer);
+        }
+    }
+
+    private void readNdjson(Resource seed, Consumer<BulkDocument> consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(seed.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            JsonNode action = null;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node = this.objectMapper.readTree(line);
+                if (action == null) {
+                    action = node.elements().hasNext() ? node.elements().next() : node;
+                    continue;
+                }
+                Long id = action.hasNonNull("_id") ? action.get("_id").asLong() : node.path("id").asLong();
+                if (node instanceof ObjectNode source) {
+                    source.put("id", id);
+                }
+                consumer.accept(new BulkDocument(action.path("_index").asText(), id, node));
+                action = null;
+            }
+        }
+    }
+
+    private void readSql(String sql, Consumer<BulkDocument> consumer) {
+        SqlScanner scanner = new SqlScanner(sql);
+        while (scanner.skipTo("INSERT")) {
+            scanner.expectWord("INTO");
+            String table = scanner.identifier();
+            String index = TABLES.get(table.toLowerCase());
+            if (index == null) {
+                throw new IllegalArgumentException("The seed has rows of unknown table " + table);
+            }
+
+            List<String> columns = new ArrayList<>();
+            scanner.expect('(');
+            do {
+                columns.add(camelCase(scanner.identifier()));
+            } while (scanner.accept(','));
+            scanner.expect(')');
+            scanner.expectWord("VALUES");
+
+            do {
+                ObjectNode source = this.objectMapper.createObjectNode();
+                scanner.expect('(');
+                for (int i = 0; i < columns.size(); i++) {
+                    if (i > 0) {
+                        scanner.expect(',');
+                    }
+                    Object value = scanner.value();
+                    if (value == null) {
+                        source.putNull(columns.get(i));
+                    } else if (value instanceof BigDecimal number && number.scale() <= 0) {
+                        source.put(columns.get(i), number.longValueExact());
+                    } else if (value instanceof BigDecimal number) {
+                        source.put(columns.get(i), number.doubleValue());
+                    } else {
+                        source.put(columns.get(i), (String) value);
+                    }
+                }
+                scanner.expect(')');
+                consumer.accept(new BulkDocument(index, source.path("id").asLong(), source));
+            } while (scanner.accept(','));
+            scanner.accept(';');
+        }
+    }
+
+    // first_name -> firstName, the names of the document fields
+    private static String camelCase(String column) {
+        StringBuilder name = new StringBuilder(column.length());
+        boolean upper = false;
+        for (char c : column.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+
+    // Just enough of SQL for the INSERT ... VALUES statements of the dumps
+    private static final class SqlScanner {
+
+        private final String sql;
+
+        private int position;
+
+        private SqlScanner(String sql) {
+            this.sql = sql;
+        }
+
+        boolean skipTo(String keyword) {
+            while (true) {
+                this.skipBlanks();
+                if (this.position >= this.sql.length()) {
+                    return false;
+                }
+                if (this.sql.regionMatches(true, this.position, keyword, 0, keyword.length())) {
+                    this.position += keyword.length();
+                    return true;
+                }
+                char c = this.sql.charAt(this.position);
+                if (c == '\'') {
+                    this.string();
+                } else {
+                    this.position++;
+                }
+            }
+        }
+
+        void expectWord(String keyword) {
+            this.skipBlanks();
+            if (!this.sql.regionMatches(true, this.position, keyword, 0, keyword.length())) {
+                throw this.error("expected " + keyword);
+            }
+            this.position += keyword.length();
+        }
+
+        void expect(char c) {
+            if (!this.accept(c)) {
+                throw this.error("expected '" + c + "'");
+            }
+        }
+
+        boolean accept(char c) {
+            this.skipBlanks();
+            if (this.position < this.sql.length() && this.sql.charAt(this.position) == c) {
+                this.position++;
+                return true;
+            }
+            return false;
+        }
+
+        String identifier() {
+            this.skipBlanks();
+            boolean quoted = this.position < this.sql.length() && this.sql.charAt(this.position) == '"';
+            if (quoted) {
+                int end = this.sql.indexOf('"', this.position + 1);
+                String name = this.sql.substring(this.position + 1, end);
+                this.position = end + 1;
+                return name;
+            }
+            int start = this.position;
+            while (this.position < this.sql.length()
+                    && (Character.isLetterOrDigit(this.sql.charAt(this.position)) || this.sql.charAt(this.position) == '_')) {
+                this.position++;
+            }
+            if (start == this.position) {
+                throw this.error("expected a name");
+            }
+            return this.sql.substring(start, this.position);
+        }
+
+        // A String, a BigDecimal or null
+        Object value() {
+            this.skipBlanks();
+            char c = this.sql.charAt(this.position);
+            if (c == '\'') {
+                return this.string();
+            }
+            if (this.sql.regionMatches(true, this.position, "NULL", 0, 4)) {
+                this.position += 4;
+                return null;
+            }
+            int start = this.position;
+            while (this.position < this.sql.length() && "+-.0123456789eE".indexOf(this.sql.charAt(this.position)) >= 0) {
+                this.position++;
+            }
+            if (start == this.position) {
+                throw this.error("expected a value");
+            }
+            return new BigDecimal(this.sql.substring(start, this.position));
+        }
+
+        private String string() {
+            StringBuilder value = new StringBuilder();
+            this.position++;
+            while (true) {
+                char c = this.sql.charAt(this.position++);
+                if (c == '\'') {
+                    if (this.position < this.sql.length() && this.sql.charAt(this.position) == '\'') {
+                        value.append('\'');
+                        this.position++;
+                        continue;
+                    }
+                    return value.toString();
+                }
+                value.append(c);
+            }
+        }
+
+        private void skipBlanks() {
+            while (this.position < this.sql.length()) {
+                if (Character.isWhitespace(this.sql.charAt(this.position))) {
+                    this.position++;
+                } else if (this.sql.startsWith("--", this.position)) {
+                    int end = this.sql.indexOf('\n', this.position);
+                    this.position = end < 0 ? this.sql.length() : end + 1;
+                } else if (this.sql.startsWith("/*", this.position)) {
+                    int end = this.sql.indexOf("*/", this.position + 2);
+                    this.position = end < 0 ? this.sql.length() : end + 2;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid seed SQL at offset " + this.position + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compact form of the books and authors kept by the in-process caches: language, category and nationality become
+// dictionary codes, and descriptions and biographies are deflated. Other values are kept as they are, and so are the
+// documents whose values no longer fit in a full dictionary.
+@Component
+public class CompactDocuments {
+
+    private static final int OBJECT_HEADER = 16;
+    private static final int REFERENCE = 8;
+    private static final int INT = 4;
+    private static final int BOXED_LONG = 16;
+    private static final int LOCAL_DATE = 24;
+
+    private final boolean enabled;
+
+    private final int minCompressedLength;
+
+    private final StringDictionary languages;
+
+    private final StringDictionary categories;
+
+    private final StringDictionary nationalities;
+
+    private final DistributionSummary compactFootprint;
+
+    private final DistributionSummary plainFootprint;
+
+    public CompactDocuments(MeterRegistry registry,
+                            @Value("${bookabook.cache.compact.enabled:true}") boolean enabled,
+                            @Value("${bookabook.cache.compact.min-compressed-length:256}") int minCompressedLength,
+                            @Value("${bookabook.cache.compact.dictionary-size:4096}") int dictionarySize) {
+        this.enabled = enabled;
+        this.minCompressedLength = minCompressedLength;
+        this.languages = new StringDictionary(dictionarySize);
+        this.categories = new StringDictionary(dictionarySize);
+        this.nationalities = new StringDictionary(dictionarySize);
+
+        this.compactFootprint = DistributionSummary.builder("bookabook.cache.entity.footprint")
+                .description("Estimated bytes retained by each cached book or author")
+                .baseUnit("bytes")
+                .tag("representation", "compact")
+                .register(registry);
+        this.plainFootprint = DistributionSummary.builder("bookabook.cache.entity.footprint")
+                .description("Estimated bytes retained by each cached book or author")
+                .baseUnit("bytes")
+                .tag("representation", "plain")
+                .register(registry);
+        Gauge.builder("bookabook.cache.dictionary.size", this.languages, StringDictionary::size)
+                .tag("field", "language").register(registry);
+        Gauge.builder("bookabook.cache.dictionary.size", this.categories, StringDictionary::size)
+                .tag("field", "category").register(registry);
+        Gauge.builder("bookabook.cache.dictionary.size", this.nationalities, StringDictionary::size)
+                .tag("field", "nationality").register(registry);
+    }
+
+    // Lists are encoded item by item; anything else than books and authors is returned unchanged
+    public Object encode(Object value) {
+        if (!this.enabled) {
+            return value instanceof List<?> list ? List.copyOf(list) : value;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> encoded = new ArrayList<>(list.size());
+            for (Object item : list) {
+                encoded.add(this.encode(item));
+            }
+            return List.copyOf(encoded);
+        }
+        if (value instanceof BookDocument book) {
+            return this.encodeBook(book);
+        }
+        if (value instanceof AuthorDocument author) {
+            return this.encodeAuthor(author);
+        }
+        return value;
+    }
+
+    // Fresh documents on every call, so that the callers can never modify what the cache holds
+    public Object decode(Object value) {
+        if (value instanceof List<?> list) {
+            List<Object> decoded = new ArrayList<>(list.size());
+            for (Object item : list) {
+                decoded.add(this.decode(item));
+            }
+            return decoded;
+        }
+        if (value instanceof CompactBook book) {
+            return this.decodeBook(book);
+        }
+        if (value instanceof CompactAuthor author) {
+            return this.decodeAuthor(author);
+        }
+        return value;
+    }
+
+    // Estimated bytes retained by an encoded value
+    public long weigh(Object encoded) {
+        if (encoded instanceof CompactBook book) {
+            return book.footprint();
+        }
+        if (encoded instanceof CompactAuthor author) {
+            return author.footprint();
+        }
+        if (encoded instanceof BookDocument book) {
+            return DocumentWeigher.weigh(book);
+        }
+        if (encoded instanceof AuthorDocument author) {
+            return DocumentWeigher.weigh(author);
+        }
+        return 0;
+    }
+
+    private Object encodeBook(BookDocument book) {
+        int language = this.languages.encode(book.getLanguage());
+        int category = this.categories.encode(book.getCategory());
+        if (language == StringDictionary.FULL || category == StringDictionary.FULL) {
+            return book;
+        }
+        CompactBook compact = new CompactBook(book.getId(), book.getIsbn(), book.getName(), language,
+                CompressedText.compress(book.getDescription(), this.minCompressedLength), category, book.getAuthorId());
+        this.compactFootprint.record(compact.footprint());
+        this.plainFootprint.record(DocumentWeigher.weigh(book));
+        return compact;
+    }
+
+    private BookDocument decodeBook(CompactBook compact) {
+        LazyBookDocument book = new LazyBookDocument(compact.description());
+        book.setId(compact.id());
+        book.setIsbn(compact.isbn());
+        book.setName(compact.name());
+        book.setLanguage(this.languages.decode(compact.language()));
+        book.setCategory(this.categories.decode(compact.category()));
+        book.setAuthorId(compact.authorId());
+        return book;
+    }
+
+    private Object encodeAuthor(AuthorDocument author) {
+        int nationality = this.nationalities.encode(author.getNationality());
+        if (nationality == StringDictionary.FULL) {
+            return author;
+        }
+        Object[] booksWritten = null;
+        if (author.getBooksWritten() != null) {
+            booksWritten = author.getBooksWritten().stream().map(this::encode).toArray();
+        }
+        CompactAuthor compact = new CompactAuthor(author.getId(), author.getFirstName(), author.getLastName(),
+                author.getBirthDate(), nationality, author.getEmail(), author.getWebSite(),
+                CompressedText.compress(author.getBiography(), this.minCompressedLength), booksWritten);
+        this.compactFootprint.record(compact.footprint());
+        this.plainFootprint.record(DocumentWeigher.weigh(author));
+        return compact;
+    }
+
+    private AuthorDocument decodeAuthor(CompactAuthor compact) {
+        LazyAuthorDocument author = new LazyAuthorDocument(compact.biography());
+        author.setId(compact.id());
+        author.setFirstName(compact.firstName());
+        author.setLastName(compact.lastName());
+        author.setBirthDate(compact.birthDate());
+        author.setNationality(this.nationalities.decode(compact.nationality()));
+        author.setEmail(compact.email());
+        author.setWebSite(compact.webSite());
+        if (compact.booksWritten() != null) {
+            List<BookDocument> booksWritten = new ArrayList<>(compact.booksWritten().length);
+            for (Object book : compact.booksWritten()) {
+                booksWritten.add((BookDocument) this.decode(book));
+            }
+            author.setBooksWritten(booksWritten);
+        }
+        return author;
+    }
+
+    private record CompactBook(Long id, String isbn, String name, int language, Object description, int category,
+                               Long authorId) {
+
+        long footprint() {
+            return OBJECT_HEADER + 5 * REFERENCE + 2 * INT + 2 * BOXED_LONG
+                    + DocumentWeigher.string(this.isbn) + DocumentWeigher.string(this.name)
+                    + CompressedText.weigh(this.description);
+        }
+    }
+
+    private record CompactAuthor(Long id, String firstName, String lastName, LocalDate birthDate, int nationality,
+                                 String email, String webSite, Object biography, Object[] booksWritten) {
+
+        long footprint() {
+            long books = 0;
+            if (this.booksWritten != null) {
+                books = OBJECT_HEADER + (long) REFERENCE * this.booksWritten.length;
+                for (Object book : this.booksWritten) {
+                    books += book instanceof CompactBook compact ? compact.footprint() : DocumentWeigher.weigh((BookDocument) book);
+                }
+            }
+            return OBJECT_HEADER + 8 * REFERENCE + INT + BOXED_LONG + LOCAL_DATE
+                    + DocumentWeigher.string(this.firstName) + DocumentWeigher.string(this.lastName)
+                    + DocumentWeigher.string(this.email) + DocumentWeigher.string(this.webSite)
+                    + CompressedText.weigh(this.biography) + books;
+        }
+    }
+}
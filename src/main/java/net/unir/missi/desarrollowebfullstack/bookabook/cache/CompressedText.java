@@ -0,0 +1,68 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Deflated UTF-8 of the long text fields (descriptions, biographies) kept by the caches
+final class CompressedText {
+
+    private static final int BYTE_ARRAY_OVERHEAD = 16;
+
+    private CompressedText() {
+    }
+
+    // The text itself when it is short or does not shrink, its deflated bytes otherwise
+    static Object compress(String text, int minLength) {
+        if (text == null || text.length() < minLength) {
+            return text;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length / 2);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            byte[] compressed = out.toByteArray();
+            return compressed.length + BYTE_ARRAY_OVERHEAD < DocumentWeigher.string(text) ? compressed : text;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String decompress(Object stored) {
+        if (!(stored instanceof byte[] compressed)) {
+            return (String) stored;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && inflater.needsInput()) {
+                    break;
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted compressed text in the cache", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static long weigh(Object stored) {
+        return stored instanceof byte[] compressed
+                ? BYTE_ARRAY_OVERHEAD + compressed.length
+                : DocumentWeigher.string((String) stored);
+    }
+}
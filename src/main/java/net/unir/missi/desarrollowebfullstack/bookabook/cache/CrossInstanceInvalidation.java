@@ -0,0 +1,245 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchWatermarkRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the caches of this instance consistent with the writes made by the other instances of the service.
+// Writes of this instance advance the watermark of their index in Elasticsearch (coalesced every flush-interval)
+// and are announced right away to the peers registered in Eureka. Every poll-interval the watermarks are read back,
+// and any index whose watermark moved because of another instance is invalidated, which covers lost peer messages.
+// If the watermarks cannot be read for longer than max-staleness, every cached result is treated as stale.
+@Slf4j
+@Component
+public class CrossInstanceInvalidation {
+
+    public static final String TOKEN_HEADER = "X-Invalidation-Token";
+
+    public static final String PATH = "/internal/invalidations";
+
+    private static final List<String> INDICES = List.of(
+            AuthorDocument.INDEX_NAME, BookDocument.INDEX_NAME, ClientDocument.INDEX_NAME);
+
+    private final ElasticsearchWatermarkRepository watermarkRepository;
+
+    private final IndexGenerations generations;
+
+    private final ObjectProvider<DiscoveryClient> discoveryClient;
+
+    private final ObjectProvider<Registration> registration;
+
+    private final HttpClient httpClient;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final String instance = UUID.randomUUID().toString();
+
+    // Last watermark version this instance knows its caches are consistent with
+    private final ConcurrentMap<String, Long> seen = new ConcurrentHashMap<>();
+
+    private final Counter watermarkInvalidations;
+
+    private final Counter peerInvalidations;
+
+    private volatile long lastPollNanos = System.nanoTime();
+
+    private volatile boolean beyondBound;
+
+    @Value("${bookabook.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookabook.invalidation.flush-interval:100ms}")
+    private Duration flushInterval;
+
+    @Value("${bookabook.invalidation.poll-interval:1s}")
+    private Duration pollInterval;
+
+    @Value("${bookabook.invalidation.max-staleness:5s}")
+    private Duration maxStaleness;
+
+    @Value("${bookabook.invalidation.peer-token:}")
+    private String peerToken;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    public CrossInstanceInvalidation(ElasticsearchWatermarkRepository watermarkRepository, IndexGenerations generations,
+                                     ObjectProvider<DiscoveryClient> discoveryClient,
+                                     ObjectProvider<Registration> registration, MeterRegistry registry) {
+        this.watermarkRepository = watermarkRepository;
+        this.generations = generations;
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bookabook-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.watermarkInvalidations = Counter.builder("bookabook.invalidation.received")
+                .description("Indices invalidated because another instance wrote them")
+                .tag("source", "watermark")
+                .register(registry);
+        this.peerInvalidations = Counter.builder("bookabook.invalidation.received")
+                .description("Indices invalidated because another instance wrote them")
+                .tag("source", "peer")
+                .register(registry);
+        Gauge.builder("bookabook.invalidation.watermark.age", this,
+                        invalidation -> (System.nanoTime() - invalidation.lastPollNanos) / 1_000_000.0)
+                .description("Time since the watermarks were last read")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!this.enabled) {
+            return;
+        }
+        // The watermarks as they are before anything is cached, so that writes made before this instance started are
+        // not taken for writes of other instances it missed
+        try {
+            this.seen.putAll(this.watermarkRepository.getWatermarks(INDICES));
+        } catch (RuntimeException e) {
+            log.warn("Watermarks unreadable on start, the first ones read are taken as they are: {}", e.getMessage());
+        }
+        this.scheduler.scheduleWithFixedDelay(this::flush,
+                this.flushInterval.toMillis(), this.flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        this.scheduler.scheduleWithFixedDelay(this::poll,
+                this.pollInterval.toMillis(), this.pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Invalidation announced by a peer. The watermark stays as it was, so a forged or repeated message can only
+    // cost cache misses.
+    public boolean receive(String index) {
+        if (!INDICES.contains(index)) {
+            return false;
+        }
+        this.generations.foreignWrite(index);
+        this.peerInvalidations.increment();
+        return true;
+    }
+
+    public String getPeerToken() {
+        return this.peerToken;
+    }
+
+    private void flush() {
+        Set<String> written = this.generations.drainLocalWrites();
+        for (String index : written) {
+            try {
+                long version = this.watermarkRepository.saveWatermark(index, this.instance);
+                this.observe(index, version, true);
+                this.announce(index);
+            } catch (RuntimeException e) {
+                // Nothing else would ever tell the other instances about this write, so the next flush tries again
+                this.generations.retryLocalWrite(index);
+                log.warn("The watermark of index {} could not be advanced, retrying: {}", index, e.getMessage());
+            }
+        }
+    }
+
+    private void poll() {
+        try {
+            Map<String, Long> watermarks = this.watermarkRepository.getWatermarks(INDICES);
+            watermarks.forEach((index, version) -> this.observe(index, version, false));
+            this.lastPollNanos = System.nanoTime();
+            if (this.beyondBound) {
+                log.info("Watermarks readable again, cached results are trusted again");
+                this.beyondBound = false;
+            }
+        } catch (RuntimeException e) {
+            if (System.nanoTime() - this.lastPollNanos > this.maxStaleness.toNanos()) {
+                if (!this.beyondBound) {
+                    log.warn("Watermarks unreadable for more than {}, cached results are not served: {}",
+                            this.maxStaleness, e.getMessage());
+                    this.beyondBound = true;
+                }
+                INDICES.forEach(this.generations::invalidate);
+            }
+        }
+    }
+
+    // Own writes are expected to advance the version by exactly one: a larger step means that other instances
+    // wrote the index in between. The first version read of an index is only a baseline: what came before it cannot
+    // be told apart, so the index is invalidated without counting a foreign write, which would stop trusting its
+    // existence filters for good.
+    private void observe(String index, long version, boolean own) {
+        boolean[] foreign = {false};
+        boolean[] baseline = {false};
+        this.seen.compute(index, (i, last) -> {
+            if (last == null) {
+                baseline[0] = true;
+                return version;
+            }
+            foreign[0] = own ? version > last + 1 : version > last;
+            return Math.max(last, version);
+        });
+        if (foreign[0]) {
+            this.generations.foreignWrite(index);
+            this.watermarkInvalidations.increment();
+        } else if (baseline[0]) {
+            this.generations.invalidate(index);
+        }
+    }
+
+    private void announce(String index) {
+        DiscoveryClient discovery = this.discoveryClient.getIfAvailable();
+        if (discovery == null || this.peerToken.isEmpty()) {
+            return;
+        }
+        Registration self = this.registration.getIfAvailable();
+        for (ServiceInstance peer : discovery.getInstances(this.applicationName)) {
+            if (self != null && (Objects.equals(peer.getInstanceId(), self.getInstanceId())
+                    || (Objects.equals(peer.getHost(), self.getHost()) && peer.getPort() == self.getPort()))) {
+                continue;
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(peer.getUri() + PATH + "?index=" + index))
+                    .timeout(Duration.ofSeconds(1))
+                    .header(TOKEN_HEADER, this.peerToken)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            this.httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, e) -> {
+                        if (e != null || response.statusCode() / 100 != 2) {
+                            log.debug("Invalidation of {} not delivered to {}", index, peer.getUri());
+                        }
+                    });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+}
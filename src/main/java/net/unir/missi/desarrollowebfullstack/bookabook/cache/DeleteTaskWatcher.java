@@ -0,0 +1,89 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchTaskRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Follows the delete-by-query tasks started by this instance. While one runs, searches of its index may still return
+// documents it is about to delete, so the index is kept unsettled and nothing read from it is cached; once the task
+// ends, its index gets a new generation, which also reaches the other instances like any write.
+@Slf4j
+@Component
+public class DeleteTaskWatcher {
+
+    private final ElasticsearchTaskRepository taskRepository;
+
+    private final IndexGenerations generations;
+
+    private final Duration pollInterval;
+
+    private final Duration maxWait;
+
+    private final ScheduledExecutorService scheduler;
+
+    public DeleteTaskWatcher(ElasticsearchTaskRepository taskRepository, IndexGenerations generations,
+                             @Value("${bookabook.delete-by-query.poll-interval:1s}") Duration pollInterval,
+                             @Value("${bookabook.delete-by-query.max-wait:1h}") Duration maxWait) {
+        this.taskRepository = taskRepository;
+        this.generations = generations;
+        this.pollInterval = pollInterval;
+        this.maxWait = maxWait;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bookabook-delete-tasks");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // A task just started on the index. Without a task id there is nothing to follow, and it counts as a single write.
+    public void watch(String index, String taskId) {
+        if (taskId == null) {
+            this.generations.bump(index);
+            return;
+        }
+        this.generations.beginBackgroundWrite(index);
+        this.schedule(index, taskId, System.nanoTime() + this.maxWait.toNanos());
+    }
+
+    private void schedule(String index, String taskId, long deadlineNanos) {
+        this.scheduler.schedule(() -> this.poll(index, taskId, deadlineNanos),
+                this.pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(String index, String taskId, long deadlineNanos) {
+        boolean completed;
+        try {
+            JsonNode task = this.taskRepository.getTask(taskId);
+            // Unknown once Elasticsearch forgets it, which only happens after it ended
+            completed = task == null || task.path("completed").asBoolean();
+        } catch (RuntimeException e) {
+            log.debug("The delete task {} could not be read: {}", taskId, e.getMessage());
+            completed = false;
+        }
+
+        if (completed) {
+            log.info("Delete by query on index {} finished as task {}", index, taskId);
+            this.generations.endBackgroundWrite(index);
+        } else if (System.nanoTime() - deadlineNanos > 0) {
+            // Caching the index again beats leaving it uncached for good
+            log.warn("The delete task {} on index {} did not finish within {}, caching the index again", taskId,
+                    index, this.maxWait);
+            this.generations.endBackgroundWrite(index);
+        } else {
+            this.schedule(index, taskId, deadlineNanos);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,41 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+
+// Rough retained size in bytes of the cached documents, used to bound the caches by memory instead of by entries
+public final class DocumentWeigher {
+
+    private static final int OBJECT_HEADER = 16;
+    private static final int REFERENCE = 8;
+    private static final int STRING_OVERHEAD = 40;
+    private static final int BOXED_LONG = 16;
+    private static final int LOCAL_DATE = 24;
+
+    private DocumentWeigher() {
+    }
+
+    public static long weigh(BookDocument book) {
+        return OBJECT_HEADER + 8 * REFERENCE + 2 * BOXED_LONG
+                + string(book.getIsbn()) + string(book.getName()) + string(book.getLanguage())
+                + string(book.getDescription()) + string(book.getCategory());
+    }
+
+    public static long weigh(AuthorDocument author) {
+        return OBJECT_HEADER + 9 * REFERENCE + BOXED_LONG + LOCAL_DATE
+                + string(author.getFirstName()) + string(author.getLastName()) + string(author.getNationality())
+                + string(author.getEmail()) + string(author.getWebSite()) + string(author.getBiography());
+    }
+
+    public static long weigh(ClientDocument client) {
+        return OBJECT_HEADER + 6 * REFERENCE + BOXED_LONG
+                + string(client.getFirstName()) + string(client.getLastName()) + string(client.getAddress())
+                + string(client.getPhoneNumber()) + string(client.getEmail());
+    }
+
+    public static long string(String value) {
+        // Latin-1 strings are compacted to one byte per character, the rest take two
+        return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+    }
+}
@@ -0,0 +1,111 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Write generation of each index. The repositories bump it on every write, so that cached results computed with an
+// older generation are never served again. Writes made by other instances arrive through invalidate.
+@Component
+public class IndexGenerations {
+
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+    // Indices written by this instance since the other instances were last told
+    private final Set<String> localWrites = ConcurrentHashMap.newKeySet();
+
+    // Elasticsearch only shows a write to searches after the next refresh of the index
+    @Value("${bookabook.cache.query.refresh-interval:1s}")
+    private Duration refreshInterval;
+
+    public long current(String index) {
+        return this.generation(index).counter.get();
+    }
+
+    public void bump(String index) {
+        this.advance(index);
+        this.localWrites.add(index);
+    }
+
+    public void invalidate(String index) {
+        this.advance(index).external.incrementAndGet();
+    }
+
+    // A write that goes on in the background, such as a delete-by-query task: the index stays unsettled until it ends,
+    // and its end is a write of its own
+    public void beginBackgroundWrite(String index) {
+        this.generation(index).background.incrementAndGet();
+        this.bump(index);
+    }
+
+    public void endBackgroundWrite(String index) {
+        this.generation(index).background.decrementAndGet();
+        this.bump(index);
+    }
+
+    // A write another instance made to the index
+    public void foreignWrite(String index) {
+        this.advance(index).foreign.incrementAndGet();
+        this.invalidate(index);
+    }
+
+    // Invalidations that did not come from a write of this instance, whose documents it has not seen
+    public long externalInvalidations(String index) {
+        return this.generation(index).external.get();
+    }
+
+    // Writes of other instances this one has been told about since it started
+    public long foreignWrites(String index) {
+        return this.generation(index).foreign.get();
+    }
+
+    // False while a recent or running write may still be invisible to searches
+    public boolean isSettled(String index) {
+        Generation generation = this.generation(index);
+        if (generation.background.get() > 0) {
+            return false;
+        }
+        return generation.lastWriteNanos == 0
+                || System.nanoTime() - generation.lastWriteNanos > this.refreshInterval.toNanos();
+    }
+
+    public Set<String> drainLocalWrites() {
+        Set<String> drained = new HashSet<>();
+        for (String index : this.localWrites) {
+            if (this.localWrites.remove(index)) {
+                drained.add(index);
+            }
+        }
+        return drained;
+    }
+
+    // A drained write the other instances could not be told about, to be told again with the next ones
+    public void retryLocalWrite(String index) {
+        this.localWrites.add(index);
+    }
+
+    private Generation advance(String index) {
+        Generation generation = this.generation(index);
+        generation.lastWriteNanos = System.nanoTime();
+        generation.counter.incrementAndGet();
+        return generation;
+    }
+
+    private Generation generation(String index) {
+        return this.generations.computeIfAbsent(index, i -> new Generation());
+    }
+
+    private static final class Generation {
+        private final AtomicLong counter = new AtomicLong();
+        private final AtomicLong external = new AtomicLong();
+        private final AtomicLong foreign = new AtomicLong();
+        private final AtomicLong background = new AtomicLong();
+        private volatile long lastWriteNanos;
+    }
+}
@@ -0,0 +1,28 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+
+// Author decoded from the cache, inflating the biography on first read
+final class LazyAuthorDocument extends AuthorDocument {
+
+    private Object storedBiography;
+
+    LazyAuthorDocument(Object storedBiography) {
+        this.storedBiography = storedBiography;
+    }
+
+    @Override
+    public String getBiography() {
+        if (this.storedBiography != null) {
+            super.setBiography(CompressedText.decompress(this.storedBiography));
+            this.storedBiography = null;
+        }
+        return super.getBiography();
+    }
+
+    @Override
+    public void setBiography(String biography) {
+        this.storedBiography = null;
+        super.setBiography(biography);
+    }
+}
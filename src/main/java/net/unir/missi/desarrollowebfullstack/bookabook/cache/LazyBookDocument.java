@@ -0,0 +1,29 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+
+// Book decoded from the cache. The description is only inflated the first time somebody reads it, which the list
+// endpoints never do when it is not among the selected fields.
+final class LazyBookDocument extends BookDocument {
+
+    private Object storedDescription;
+
+    LazyBookDocument(Object storedDescription) {
+        this.storedDescription = storedDescription;
+    }
+
+    @Override
+    public String getDescription() {
+        if (this.storedDescription != null) {
+            super.setDescription(CompressedText.decompress(this.storedDescription));
+            this.storedDescription = null;
+        }
+        return super.getDescription();
+    }
+
+    @Override
+    public void setDescription(String description) {
+        this.storedDescription = null;
+        super.setDescription(description);
+    }
+}
@@ -0,0 +1,54 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Canonical form of a list query: parameters sorted by name, blank values treated as absent, plus the write
+// generation of every index the result depends on.
+public final class QueryKey {
+
+    private final SortedSet<String> indices = new TreeSet<>();
+
+    private final SortedMap<String, String> params = new TreeMap<>();
+
+    private QueryKey() {
+    }
+
+    public static QueryKey on(String... indices) {
+        QueryKey key = new QueryKey();
+        key.indices.addAll(Arrays.asList(indices));
+        return key;
+    }
+
+    public QueryKey param(String name, Object value) {
+        if (value != null) {
+            String text = value.toString().trim();
+            if (StringUtils.hasLength(text)) {
+                this.params.put(name, text);
+            }
+        }
+        return this;
+    }
+
+    public SortedSet<String> getIndices() {
+        return this.indices;
+    }
+
+    public String canonical(IndexGenerations generations) {
+        StringBuilder key = new StringBuilder();
+        for (String index : this.indices) {
+            key.append(index).append('@').append(generations.current(index)).append(';');
+        }
+        key.append('?');
+        for (Map.Entry<String, String> param : this.params.entrySet()) {
+            key.append(param.getKey()).append('=').append(param.getValue()).append('&');
+        }
+        return key.toString();
+    }
+}
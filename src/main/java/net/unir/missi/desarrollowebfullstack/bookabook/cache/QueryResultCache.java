@@ -0,0 +1,229 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.Profiling;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.jfr.CacheLookupEvent;
+import net.unir.missi.desarrollowebfullstack.bookabook.resilience.StaleReads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Result pages of the list queries, keyed on the canonical form of their filters, and documents looked up by id
+@Slf4j
+@Component
+public class QueryResultCache {
+
+    private static final String CACHE_NAME = "query-results";
+
+    private final IndexGenerations generations;
+
+    private final Cache<String, CachedPage> cache;
+
+    private final Tracer tracer;
+
+    private final CompactDocuments compactDocuments;
+
+    public QueryResultCache(IndexGenerations generations, MeterRegistry registry, Tracer tracer,
+                            CompactDocuments compactDocuments,
+                            @Value("${bookabook.cache.query.max-weight:64MB}") DataSize maxWeight,
+                            @Value("${bookabook.cache.query.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.generations = generations;
+        this.tracer = tracer;
+        this.compactDocuments = compactDocuments;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((String key, CachedPage page) -> (int) Math.min(Integer.MAX_VALUE, page.weight()))
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(registry, this.cache, CACHE_NAME);
+        Gauge.builder("bookabook.cache.query.weight", this.cache, c -> c.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0L))
+                        .orElse(0L))
+                .description("Estimated bytes retained by the cached query results")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("bookabook.cache.query.hit.ratio", this.cache, c -> c.stats().hitRate())
+                .description("Ratio of list queries answered from the cache")
+                .register(registry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(QueryKey key, Supplier<List<T>> loader, ToLongFunction<T> weigher) {
+        boolean settled = key.getIndices().stream().allMatch(this.generations::isSettled);
+        String canonical = key.canonical(this.generations);
+        CacheLookupEvent event = new CacheLookupEvent();
+        event.begin();
+
+        if (Profiling.isActive()) {
+            List<T> items = loader.get();
+            this.recordOutcome(event, canonical, "bypass");
+            return items;
+        }
+
+        if (!settled) {
+            // A write may not be searchable yet, so this result must not be remembered
+            CachedPage page = this.cache.getIfPresent(canonical);
+            List<T> items = page != null ? (List<T>) this.compactDocuments.decode(page.items()) : loader.get();
+            this.recordOutcome(event, canonical, page != null ? "hit" : "bypass");
+            return items;
+        }
+
+        boolean[] loaded = {false};
+        List<T>[] fresh = new List[1];
+        CachedPage page = this.cache.get(canonical, k -> {
+            loaded[0] = true;
+            List<T> items = loader.get();
+            fresh[0] = items;
+            if (items == null) {
+                return null;
+            }
+            List<?> encoded = (List<?>) this.compactDocuments.encode(items);
+            long weight = 2L * k.length();
+            for (int i = 0; i < encoded.size(); i++) {
+                long compact = this.compactDocuments.weigh(encoded.get(i));
+                weight += compact > 0 ? compact : weigher.applyAsLong(items.get(i));
+            }
+            return new CachedPage(encoded, weight);
+        });
+        this.recordOutcome(event, canonical, loaded[0] ? "miss" : "hit");
+        if (loaded[0] && StaleReads.age() != null) {
+            // Loaded from the last known good cache while Elasticsearch was down, not from the current generation
+            this.cache.invalidate(canonical);
+        }
+        if (loaded[0]) {
+            return fresh[0];
+        }
+        return page != null ? (List<T>) this.compactDocuments.decode(page.items()) : null;
+    }
+
+    // Documents of an index by distinct ids, in the order of the ids with null for the missing ones. Every id is an entry of its
+    // own, missing ones included, so only the ids not cached go to the loader, all in one call. The loader returns
+    // the documents in the order of the ids it is given, with null for the missing ones.
+    public <T> List<T> getEach(String index, List<Long> ids, Function<List<Long>, List<T>> loader,
+                               ToLongFunction<T> weigher) {
+        return this.getEach(index, "id", ids, loader, weigher);
+    }
+
+    // Same as above for values computed from an index per id of something else, such as the books of each author.
+    // The name of the id keeps their entries apart from the documents of the index.
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getEach(String index, String idName, List<Long> ids, Function<List<Long>, List<T>> loader,
+                               ToLongFunction<T> weigher) {
+        boolean settled = this.generations.isSettled(index);
+        Map<String, Long> keys = new LinkedHashMap<>();
+        for (Long id : ids) {
+            keys.put(QueryKey.on(index).param(idName, id).canonical(this.generations), id);
+        }
+        String batch = index + "?" + idName + "s=" + ids.size();
+        CacheLookupEvent event = new CacheLookupEvent();
+        event.begin();
+
+        if (Profiling.isActive()) {
+            List<T> items = loader.apply(ids);
+            this.recordOutcome(event, batch, "bypass");
+            return items;
+        }
+
+        Map<String, T> fresh = new HashMap<>();
+        Map<String, CachedPage> pages;
+        if (!settled) {
+            // A write may not be searchable yet, so the misses must not be remembered
+            pages = this.cache.getAllPresent(keys.keySet());
+            Set<String> missing = new LinkedHashSet<>(keys.keySet());
+            missing.removeAll(pages.keySet());
+            this.load(keys, missing, loader, weigher, fresh);
+        } else {
+            pages = this.cache.getAll(keys.keySet(), missing -> this.load(keys, missing, loader, weigher, fresh));
+            if (!fresh.isEmpty() && StaleReads.age() != null) {
+                // Loaded from the last known good cache while Elasticsearch was down, not from the current generation
+                this.cache.invalidateAll(fresh.keySet());
+            }
+        }
+        this.recordOutcome(event, batch, fresh.isEmpty() ? "hit" : fresh.size() == keys.size() ? "miss" : "partial");
+
+        List<T> items = new ArrayList<>(ids.size());
+        for (String key : keys.keySet()) {
+            if (fresh.containsKey(key)) {
+                items.add(fresh.get(key));
+            } else {
+                CachedPage page = pages.get(key);
+                List<T> cached = page != null ? (List<T>) this.compactDocuments.decode(page.items()) : List.of();
+                items.add(cached.isEmpty() ? null : cached.get(0));
+            }
+        }
+        return items;
+    }
+
+    // Loads the documents of the missing keys with one call and encodes them as cache entries
+    private <T> Map<String, CachedPage> load(Map<String, Long> keys, Set<? extends String> missing,
+                                             Function<List<Long>, List<T>> loader, ToLongFunction<T> weigher,
+                                             Map<String, T> fresh) {
+        if (missing.isEmpty()) {
+            return Map.of();
+        }
+        List<String> missingKeys = new ArrayList<>(missing);
+        List<Long> missingIds = new ArrayList<>(missingKeys.size());
+        for (String key : missingKeys) {
+            missingIds.add(keys.get(key));
+        }
+        List<T> documents = loader.apply(missingIds);
+
+        Map<String, CachedPage> loaded = new HashMap<>();
+        for (int i = 0; i < missingKeys.size(); i++) {
+            String key = missingKeys.get(i);
+            T document = documents.get(i);
+            fresh.put(key, document);
+            List<?> encoded = document != null ? (List<?>) this.compactDocuments.encode(List.of(document)) : List.of();
+            long weight = 2L * key.length();
+            if (document != null) {
+                long compact = this.compactDocuments.weigh(encoded.get(0));
+                weight += compact > 0 ? compact : weigher.applyAsLong(document);
+            }
+            loaded.put(key, new CachedPage(encoded, weight));
+        }
+        return loaded;
+    }
+
+    private void recordOutcome(CacheLookupEvent event, String canonical, String outcome) {
+        Span span = this.tracer.currentSpan();
+        if (span != null) {
+            span.tag("cache.outcome", outcome);
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.cache = CACHE_NAME;
+            event.key = canonical;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    private record CachedPage(List<?> items, long weight) {
+    }
+}
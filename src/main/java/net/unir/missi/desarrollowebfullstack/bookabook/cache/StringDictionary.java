@@ -0,0 +1,59 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Integer codes for the values of a low cardinality field. Codes are never reused, so a full dictionary stops taking
+// new values instead of evicting old ones.
+final class StringDictionary {
+
+    static final int NULL = -1;
+
+    static final int FULL = -2;
+
+    private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+
+    private final int capacity;
+
+    private volatile String[] values = new String[16];
+
+    private int size;
+
+    StringDictionary(int capacity) {
+        this.capacity = capacity;
+    }
+
+    int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = this.codes.get(value);
+        return code != null ? code : this.add(value);
+    }
+
+    String decode(int code) {
+        return code == NULL ? null : this.values[code];
+    }
+
+    int size() {
+        return this.codes.size();
+    }
+
+    private synchronized int add(String value) {
+        Integer code = this.codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (this.size == this.capacity) {
+            return FULL;
+        }
+        if (this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.min(this.capacity, this.size * 2));
+        }
+        // The value is in place before its code can be seen by anybody
+        this.values[this.size] = value;
+        this.codes.put(value, this.size);
+        return this.size++;
+    }
+}
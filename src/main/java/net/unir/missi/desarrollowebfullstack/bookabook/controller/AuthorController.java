@@ -11,15 +11,26 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.BatchRequest;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.AuthorResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.TaskResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Author;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.AuthorAPIConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.StreamedBatch;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.StreamedList;
 import net.unir.missi.desarrollowebfullstack.bookabook.service.AuthorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -31,6 +42,11 @@ import java.util.stream.Collectors;
 @Tag(name = "Authors Controller", description = "Microservicio encargado de exponer operaciones CRUD sobre autores alojados en una base de datos.")
 public class AuthorController {
 
+    @Value("${bookabook.batch.max-ids:1000}")
+    private int maxBatchIds;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private AuthorAPIConverter converter;
 
@@ -46,7 +62,7 @@ public class AuthorController {
     @ApiResponse(
             responseCode = "200",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = AuthorResponse.class)))
-    public ResponseEntity<List<AuthorResponse>> getAuthors(
+    public ResponseEntity<StreamedList<AuthorDocument>> getAuthors(
             @Parameter(name = "firstName")
             @RequestParam(required = false) String firstName,
             @Parameter(name = "lastName")
@@ -62,19 +78,71 @@ public class AuthorController {
             @Parameter(name = "biography")
             @RequestParam(required = false) String biography,
             @Parameter(name = "bookId")
-            @RequestParam(required = false) Long bookId)
+            @RequestParam(required = false) Long bookId,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields)
     {
-            List<Author> request = service.getAllAuthors(firstName,lastName,birthDate,nationality,email,webSite,biography,bookId);
+            FieldSelection selection = FieldSelection.parse(fields);
+            List<AuthorDocument> request = service.getAuthorDocuments(firstName,lastName,birthDate,nationality,email,webSite,biography,bookId,selection);
             if (request == null)
             {
                 return ResponseEntity.ok(null);
             }
-            return ResponseEntity.ok(request.stream().map(
-                    (Author a) ->
-                    {
-                        return this.converter.fromMemory(a);
-                    }
-            ).collect(Collectors.toList()));
+            return ResponseEntity.ok(StreamedList.authors(request, selection, service.getBooksWrittenIds(request, selection)));
+    }
+
+    @GetMapping(value = "/authors", params = "ids")
+    @Operation(
+            operationId = "Obtener autores por sus ids",
+            description = "Operacion de lectura",
+            summary = "Se devuelven en una sola consulta los autores con los identificadores indicados, en el mismo orden, y la lista de los que no existen.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = AuthorResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Lista de identificadores vacía o con más de los permitidos.")
+    public ResponseEntity<StreamedBatch<AuthorDocument>> getAuthorsByIds(
+            @Parameter(name = "ids", description = "Identificadores separados por comas")
+            @RequestParam List<Long> ids,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
+        return this.authorsByIds(ids, fields);
+    }
+
+    @PostMapping("/authors/_batch")
+    @Operation(
+            operationId = "Obtener autores por sus ids (POST)",
+            description = "Operacion de lectura",
+            summary = "Igual que GET /authors?ids=, para listas de identificadores demasiado largas para la URL.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Identificadores de los autores.",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchRequest.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = AuthorResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Lista de identificadores vacía o con más de los permitidos.")
+    public ResponseEntity<StreamedBatch<AuthorDocument>> postAuthorsByIds(
+            @RequestBody BatchRequest request,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
+        return this.authorsByIds(request != null ? request.getIds() : null, fields);
+    }
+
+    private ResponseEntity<StreamedBatch<AuthorDocument>> authorsByIds(List<Long> ids, String fields) {
+        if (ids == null || ids.isEmpty() || ids.size() > maxBatchIds || ids.contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Long> distinct = ids.stream().distinct().collect(Collectors.toList());
+        List<AuthorDocument> documents = service.getAuthorDocumentsByIds(distinct);
+        FieldSelection selection = FieldSelection.parse(fields);
+        return ResponseEntity.ok(StreamedBatch.authors(distinct, documents, selection,
+                service.getBooksWrittenIds(documents, selection)));
     }
 
     @GetMapping("/authors/{idAuthor}")
@@ -85,16 +153,57 @@ public class AuthorController {
     @ApiResponse(
             responseCode = "200",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = AuthorResponse.class)))
-    public ResponseEntity<AuthorResponse> getAuthorById(@PathVariable String idAuthor)
+    public ResponseEntity<byte[]> getAuthorById(
+            @PathVariable String idAuthor,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields)
     {
-            Author author = service.getAuthorById(idAuthor);
+            FieldSelection selection = FieldSelection.parse(fields);
+            byte[] author = service.getAuthorJson(idAuthor, selection);
             if(author != null)
-                return ResponseEntity.ok(this.converter.fromMemory(author));
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(author);
             else
                 return ResponseEntity.notFound().build();
 
     }
 
+    @GetMapping("/authors/{idAuthor}/books")
+    @Operation(
+            operationId = "Obtener los libros de un autor",
+            description = "Operacion de lectura",
+            summary = "Se devuelve una página de los libros escritos por un autor, ordenados por identificador.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookDocument.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Página o tamaño de página no válidos.")
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No se ha encontrado el autor con el identificador indicado.")
+    public ResponseEntity<StreamedList<BookDocument>> getAuthorBooks(
+            @PathVariable String idAuthor,
+            @Parameter(name = "page", description = "Número de página, empezando por 0")
+            @RequestParam(defaultValue = "0") int page,
+            @Parameter(name = "size", description = "Libros por página (máximo " + MAX_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields)
+    {
+            // Deeper pages are past the result window of the index
+            if (page < 0 || size < 1 || size > MAX_PAGE_SIZE
+                    || (long) (page + 1) * size > BookRepository.MAX_RESULT_WINDOW)
+                return ResponseEntity.badRequest().build();
+            FieldSelection selection = FieldSelection.parse(fields);
+            List<BookDocument> books = service.getAuthorBooks(idAuthor, page, size, selection);
+            if (books != null)
+                return ResponseEntity.ok(StreamedList.books(books, selection));
+            else
+                return ResponseEntity.notFound().build();
+    }
+
     @PostMapping("/authors")
     @Operation(
             operationId = "Insercción de un autor.",
@@ -162,16 +271,61 @@ public class AuthorController {
     @Operation(
             operationId = "Borrado de un autor.",
             description = "Operacion de escritura.",
-            summary = "Se devuelve el autor eliminado.")
+            summary = "Se devuelve el autor eliminado. Con cascade=true también se eliminan sus libros en segundo plano y la cabecera Location apunta a la tarea.")
     @ApiResponse(
             responseCode = "200",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = AuthorResponse.class)))
-    public ResponseEntity<AuthorResponse> deleteAuthor(@PathVariable String idAuthor) {
+    public ResponseEntity<AuthorResponse> deleteAuthor(
+            @PathVariable String idAuthor,
+            @Parameter(name = "cascade", description = "Eliminar también los libros del autor")
+            @RequestParam(defaultValue = "false") boolean cascade) {
             Author prev = service.getAuthorById(idAuthor);
             if (prev != null){
-                return ResponseEntity.ok(this.converter.fromMemory(service.deleteAuthor(prev)));
+                // The books go first: if their delete cannot be started, the request fails with the author still there
+                String taskId = cascade ? service.deleteAuthorBooks(prev) : null;
+                AuthorResponse deleted = this.converter.fromMemory(service.deleteAuthor(prev));
+                if (taskId != null) {
+                    return ResponseEntity.ok().location(URI.create("/tasks/" + taskId)).body(deleted);
+                }
+                return ResponseEntity.ok(deleted);
             } else
                 return ResponseEntity.notFound().build();
 
     }
+
+    @DeleteMapping("/authors")
+    @Operation(
+            operationId = "Borrado de autores por filtro.",
+            description = "Operacion de escritura asíncrona.",
+            summary = "Se eliminan en segundo plano los autores que cumplen los filtros. Se devuelve la tarea que se puede consultar en /tasks/{taskId}.")
+    @ApiResponse(
+            responseCode = "202",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = TaskResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Se necesita al menos un filtro.")
+    public ResponseEntity<TaskResponse> deleteAuthors(
+            @Parameter(name = "firstName")
+            @RequestParam(required = false) String firstName,
+            @Parameter(name = "lastName")
+            @RequestParam(required = false) String lastName,
+            @Parameter(name = "birthDate", example = "YYYY-MM-DD")
+            @RequestParam(required = false) LocalDate birthDate,
+            @Parameter(name = "nationality")
+            @RequestParam(required = false) String nationality,
+            @Parameter(name = "email")
+            @RequestParam(required = false) String email,
+            @Parameter(name = "webSite")
+            @RequestParam(required = false) String webSite,
+            @Parameter(name = "biography")
+            @RequestParam(required = false) String biography)
+    {
+            String taskId = service.deleteAuthors(firstName, lastName, birthDate, nationality, email, webSite, biography);
+            if (taskId != null) {
+                TaskResponse task = TaskResponse.builder().taskId(taskId).completed(false).build();
+                return ResponseEntity.accepted().location(URI.create("/tasks/" + taskId)).body(task);
+            } else
+                return ResponseEntity.badRequest().build();
+    }
 }
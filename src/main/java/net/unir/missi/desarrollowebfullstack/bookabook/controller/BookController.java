@@ -5,26 +5,36 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.BatchRequest;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.BookResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.DeleteResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.TaskResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.TrendingResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Book;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.BookAPIConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.popularity.PopularityTracker;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.StreamedBatch;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.StreamedList;
 import net.unir.missi.desarrollowebfullstack.bookabook.service.IBookService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 @RestController
@@ -33,6 +43,9 @@ import java.util.stream.Collectors;
 @Tag(name = "Books Controller", description = "Microservicio encargado de exponer operaciones CRUD sobre libros alojados en una base de datos.")
 public class BookController {
 
+    @Value("${bookabook.batch.max-ids:1000}")
+    private int maxBatchIds;
+
     @Autowired
     private BookAPIConverter converter;
 
@@ -40,6 +53,8 @@ public class BookController {
 
     private final ObjectMapper objectMapper;
 
+    private final PopularityTracker popularityTracker;
+
     @GetMapping("/books")
     @Operation(
             operationId = "Obtener libros",
@@ -48,7 +63,7 @@ public class BookController {
     @ApiResponse(
             responseCode = "200",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookDocument.class)))
-    public ResponseEntity<List<BookResponse>> getBooks(
+    public ResponseEntity<StreamedList<BookDocument>> getBooks(
             @RequestHeader Map<String, String> headers,
             @Parameter(name = "isbn", description = "Código ISBN del libro")  //Regex ?
             @RequestParam(required = false) String isbn,
@@ -61,22 +76,95 @@ public class BookController {
             @Parameter(name = "category", description = "Categoría del libro")  //Enum ?
             @RequestParam(required = false) String category,
             @Parameter(name = "authorId", description = "Identificador del autor")
-            @RequestParam(required = false) Long authorId) {
+            @RequestParam(required = false) Long authorId,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields,
+            @Parameter(name = "sort", description = "Orden de los libros: popularity (los más consultados primero)")
+            @RequestParam(required = false) String sort) {
 
         log.info("headers: {}", headers);
-        List<Book> books = service.getBooks(isbn, name, language, description, category, authorId);
-        Logger.getGlobal().warning("the content of books is");
-        Logger.getGlobal().warning(books.toString());
+        if (sort != null && !"popularity".equals(sort)) {
+            return ResponseEntity.badRequest().build();
+        }
+        FieldSelection selection = FieldSelection.parse(fields);
+        List<BookDocument> books = service.getBookDocuments(isbn, name, language, description, category, authorId,
+                selection, sort != null);
         if (books == null)
         {
             return ResponseEntity.ok(null);
         }
-        return ResponseEntity.ok(books.stream().map(
-                (Book a) ->
-                {
-                    return this.converter.fromMemory(a);
-                }
-        ).collect(Collectors.toList()));
+        return ResponseEntity.ok(StreamedList.books(books, selection));
+    }
+
+    @GetMapping("/books/_trending")
+    @Operation(
+            operationId = "Obtener los libros más consultados",
+            description = "Operacion de lectura",
+            summary = "Se devuelven los identificadores de los libros más consultados recientemente en esta instancia, con su puntuación.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = TrendingResponse.class))))
+    public ResponseEntity<List<TrendingResponse>> getTrendingBooks(
+            @Parameter(name = "limit", description = "Número máximo de libros a devolver")
+            @RequestParam(defaultValue = "10") int limit) {
+
+        List<TrendingResponse> trending = popularityTracker.trending(BookDocument.INDEX_NAME, Math.max(limit, 0))
+                .stream()
+                .map(hit -> new TrendingResponse(hit.id(), hit.score()))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(trending);
+    }
+
+    @GetMapping(value = "/books", params = "ids")
+    @Operation(
+            operationId = "Obtener libros por sus ids",
+            description = "Operacion de lectura",
+            summary = "Se devuelven en una sola consulta los libros con los identificadores indicados, en el mismo orden, y la lista de los que no existen.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Lista de identificadores vacía o con más de los permitidos.")
+    public ResponseEntity<StreamedBatch<BookDocument>> getBooksByIds(
+            @Parameter(name = "ids", description = "Identificadores separados por comas")
+            @RequestParam List<Long> ids,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
+        return this.booksByIds(ids, fields);
+    }
+
+    @PostMapping("/books/_batch")
+    @Operation(
+            operationId = "Obtener libros por sus ids (POST)",
+            description = "Operacion de lectura",
+            summary = "Igual que GET /books?ids=, para listas de identificadores demasiado largas para la URL.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Identificadores de los libros.",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchRequest.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Lista de identificadores vacía o con más de los permitidos.")
+    public ResponseEntity<StreamedBatch<BookDocument>> postBooksByIds(
+            @RequestBody BatchRequest request,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
+        return this.booksByIds(request != null ? request.getIds() : null, fields);
+    }
+
+    private ResponseEntity<StreamedBatch<BookDocument>> booksByIds(List<Long> ids, String fields) {
+        if (ids == null || ids.isEmpty() || ids.size() > maxBatchIds || ids.contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Long> distinct = ids.stream().distinct().collect(Collectors.toList());
+        List<BookDocument> documents = service.getBookDocumentsByIds(distinct);
+        return ResponseEntity.ok(StreamedBatch.books(distinct, documents, FieldSelection.parse(fields)));
     }
 
     @GetMapping("/books/{bookId}")
@@ -91,13 +179,17 @@ public class BookController {
             responseCode = "404",
             content = @Content(mediaType = "application/json", schema = @Schema()),
             description = "No se ha encontrado el libro con el identificador indicado.")
-    public ResponseEntity<BookResponse> getBook(@PathVariable String bookId) {
+    public ResponseEntity<byte[]> getBook(
+            @PathVariable String bookId,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
 
         log.info("Request received for book {}", bookId);
-        Book book = service.getBook(bookId);
+        FieldSelection selection = FieldSelection.parse(fields);
+        byte[] book = service.getBookJson(bookId, selection);
 
         if (book != null) {
-            return ResponseEntity.ok(this.converter.fromMemory(book));
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(book);
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -129,6 +221,42 @@ public class BookController {
 
     }
 
+    @DeleteMapping("/books")
+    @Operation(
+            operationId = "Eliminar libros por filtro",
+            description = "Operacion de escritura asíncrona",
+            summary = "Se eliminan en segundo plano los libros que cumplen los filtros. Se devuelve la tarea que se puede consultar en /tasks/{taskId}.")
+    @ApiResponse(
+            responseCode = "202",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = TaskResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Se necesita al menos un filtro.")
+    public ResponseEntity<TaskResponse> deleteBooks(
+            @Parameter(name = "isbn", description = "Código ISBN del libro")
+            @RequestParam(required = false) String isbn,
+            @Parameter(name = "name", description = "Nombre del libro")
+            @RequestParam(required = false) String name,
+            @Parameter(name = "language", description = "Idioma del libro (ES, EN)")
+            @RequestParam(required = false) String language,
+            @Parameter(name = "descripton", description = "Descripción del libro")
+            @RequestParam(required = false) String description,
+            @Parameter(name = "category", description = "Categoría del libro")
+            @RequestParam(required = false) String category,
+            @Parameter(name = "authorId", description = "Identificador del autor")
+            @RequestParam(required = false) Long authorId) {
+
+        String taskId = service.removeBooks(isbn, name, language, description, category, authorId);
+
+        if (taskId != null) {
+            TaskResponse task = TaskResponse.builder().taskId(taskId).completed(false).build();
+            return ResponseEntity.accepted().location(URI.create("/tasks/" + taskId)).body(task);
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/books")
     @Operation(
             operationId = "Insertar un libro",
@@ -8,16 +8,25 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.BatchRequest;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.ClientResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.DeleteResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.TaskResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Client;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.ClientAPIConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.StreamedBatch;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.StreamedList;
 import net.unir.missi.desarrollowebfullstack.bookabook.service.IClientService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -27,6 +36,9 @@ import java.util.stream.Collectors;
 @Tag(name = "Clients Controller")
 public class ClientController {
 
+    @Value("${bookabook.batch.max-ids:1000}")
+    private int maxBatchIds;
+
     @Autowired
     private ClientAPIConverter converter;
 
@@ -44,7 +56,7 @@ public class ClientController {
             responseCode = "400",
             content = @Content(mediaType = "application/json", schema = @Schema()),
             description = "Datos de cliente introducidos incorrectos.")
-    public ResponseEntity<List<ClientResponse>> getClients(
+    public ResponseEntity<StreamedList<ClientDocument>> getClients(
             @Parameter(name = "firstName", description = "Nombre")
             @RequestParam(required = false) String firstName,
             @Parameter(name = "lastName", description = "Apellido")
@@ -54,19 +66,125 @@ public class ClientController {
             @Parameter(name = "phoneNumber", description = "Teléfono")
             @RequestParam(required = false) String phoneNumber,
             @Parameter(name = "email", description = "Email")
-            @RequestParam(required = false) String email) {
+            @RequestParam(required = false) String email,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
 
-        List<Client> clientDocuments = clientService.getFilterClients(firstName, lastName, address, phoneNumber, email);
+        FieldSelection selection = FieldSelection.parse(fields);
+        List<ClientDocument> clientDocuments = clientService.getClientDocuments(firstName, lastName, address, phoneNumber, email, selection);
         if (clientDocuments == null)
         {
             return ResponseEntity.ok(null);
         }
-        return ResponseEntity.ok(clientDocuments.stream().map(
-                (Client a) ->
-                {
-                    return this.converter.fromMemory(a);
-                }
-        ).collect(Collectors.toList()));
+        return ResponseEntity.ok(StreamedList.clients(clientDocuments, selection));
+    }
+
+    @GetMapping(value = "/clients", params = "ids")
+    @Operation(
+            operationId = "Obtener clientes por sus ids",
+            description = "Operacion de lectura",
+            summary = "Se devuelven en una sola consulta los clientes con los identificadores indicados, en el mismo orden, y la lista de los que no existen.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Lista de identificadores vacía o con más de los permitidos.")
+    public ResponseEntity<StreamedBatch<ClientDocument>> getClientsByIds(
+            @Parameter(name = "ids", description = "Identificadores separados por comas")
+            @RequestParam List<Long> ids,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
+        return this.clientsByIds(ids, fields);
+    }
+
+    @PostMapping("/clients/_batch")
+    @Operation(
+            operationId = "Obtener clientes por sus ids (POST)",
+            description = "Operacion de lectura",
+            summary = "Igual que GET /clients?ids=, para listas de identificadores demasiado largas para la URL.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Identificadores de los clientes.",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BatchRequest.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Lista de identificadores vacía o con más de los permitidos.")
+    public ResponseEntity<StreamedBatch<ClientDocument>> postClientsByIds(
+            @RequestBody BatchRequest request,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
+        return this.clientsByIds(request != null ? request.getIds() : null, fields);
+    }
+
+    private ResponseEntity<StreamedBatch<ClientDocument>> clientsByIds(List<Long> ids, String fields) {
+        if (ids == null || ids.isEmpty() || ids.size() > maxBatchIds || ids.contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Long> distinct = ids.stream().distinct().collect(Collectors.toList());
+        List<ClientDocument> documents = clientService.getClientDocumentsByIds(distinct);
+        return ResponseEntity.ok(StreamedBatch.clients(distinct, documents, FieldSelection.parse(fields)));
+    }
+
+    @GetMapping("/clients/by-email/{email}")
+    @Operation(
+            operationId = "Identificar clientes por email",
+            description = "Operacion de lectura",
+            summary = "Se devuelven los clientes con el email indicado, sin distinguir mayúsculas de minúsculas.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Email vacío.")
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No hay ningún cliente con el email indicado.")
+    public ResponseEntity<StreamedList<ClientDocument>> getClientsByEmail(
+            @PathVariable String email,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
+        List<ClientDocument> clients = clientService.getClientsByEmail(email);
+        if (clients == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return clients.isEmpty() ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(StreamedList.clients(clients, FieldSelection.parse(fields)));
+    }
+
+    @GetMapping("/clients/by-phone/{phone}")
+    @Operation(
+            operationId = "Identificar clientes por teléfono",
+            description = "Operacion de lectura",
+            summary = "Se devuelven los clientes con el teléfono indicado, en cualquier formato (se compara en formato internacional E.164).")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ClientResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "El valor indicado no es un número de teléfono.")
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No hay ningún cliente con el teléfono indicado.")
+    public ResponseEntity<StreamedList<ClientDocument>> getClientsByPhone(
+            @PathVariable String phone,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
+        List<ClientDocument> clients = clientService.getClientsByPhone(phone);
+        if (clients == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return clients.isEmpty() ? ResponseEntity.notFound().build()
+                : ResponseEntity.ok(StreamedList.clients(clients, FieldSelection.parse(fields)));
     }
 
     @GetMapping("/clients/{clientId}")
@@ -81,9 +199,13 @@ public class ClientController {
             responseCode = "404",
             content = @Content(mediaType = "application/json", schema = @Schema()),
             description = "No se ha encontrado el cliente con el identificador indicado.")
-    public ResponseEntity<ClientResponse> getClient(@PathVariable String clientId) {
-        Client clientDocument = clientService.getClient(clientId);
-        return clientDocument != null ? ResponseEntity.ok(this.converter.fromMemory(clientDocument)) : ResponseEntity.notFound().build();
+    public ResponseEntity<byte[]> getClient(
+            @PathVariable String clientId,
+            @Parameter(name = "fields", description = "Campos a devolver separados por comas (por defecto todos)")
+            @RequestParam(required = false) String fields) {
+        FieldSelection selection = FieldSelection.parse(fields);
+        byte[] client = clientService.getClientJson(clientId, selection);
+        return client != null ? ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(client) : ResponseEntity.notFound().build();
     }
 
     @PostMapping("/clients")
@@ -125,6 +247,34 @@ public class ClientController {
         return Boolean.TRUE.equals(clientDeleted) ? ResponseEntity.ok(deleteResponse) : ResponseEntity.notFound().build();
     }
 
+    @DeleteMapping("/clients")
+    @Operation(
+            operationId = "Dar de baja clientes por filtro.",
+            description = "Operacion de escritura asíncrona.",
+            summary = "Se eliminan en segundo plano los clientes que cumplen los filtros. Se devuelve la tarea que se puede consultar en /tasks/{taskId}.")
+    @ApiResponse(
+            responseCode = "202",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = TaskResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Se necesita al menos un filtro.")
+    public ResponseEntity<TaskResponse> deleteClients(
+            @Parameter(name = "firstName", description = "Nombre")
+            @RequestParam(required = false) String firstName,
+            @Parameter(name = "lastName", description = "Apellido")
+            @RequestParam(required = false) String lastName,
+            @Parameter(name = "address", description = "Dirección")
+            @RequestParam(required = false) String address,
+            @Parameter(name = "phoneNumber", description = "Teléfono")
+            @RequestParam(required = false) String phoneNumber,
+            @Parameter(name = "email", description = "Email")
+            @RequestParam(required = false) String email) {
+        String taskId = clientService.deleteClients(firstName, lastName, address, phoneNumber, email);
+        TaskResponse task = TaskResponse.builder().taskId(taskId).completed(false).build();
+        return taskId != null ? ResponseEntity.accepted().location(URI.create("/tasks/" + taskId)).body(task) : ResponseEntity.badRequest().build();
+    }
+
     @PutMapping("/clients/{clientId}")
     @Operation(
             operationId = "Modificar totalmente un cliente.",
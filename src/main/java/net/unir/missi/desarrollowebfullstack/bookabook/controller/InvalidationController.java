@@ -0,0 +1,45 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.CrossInstanceInvalidation;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Admin Controller", description = "Operaciones de diagnóstico del buscador.")
+public class InvalidationController {
+
+    private final CrossInstanceInvalidation invalidation;
+
+    @PostMapping(CrossInstanceInvalidation.PATH)
+    @Operation(
+            operationId = "Invalidar la caché de un índice",
+            description = "Operacion de escritura",
+            summary = "Otra instancia del buscador avisa de que ha escrito en un índice. Requiere el token compartido entre instancias.")
+    @ApiResponse(responseCode = "204")
+    @ApiResponse(responseCode = "400", description = "El índice no existe.")
+    @ApiResponse(responseCode = "403", description = "Token ausente o incorrecto.")
+    public ResponseEntity<Void> invalidate(
+            @Parameter(name = "index", description = "Índice escrito", required = true)
+            @RequestParam String index,
+            @RequestHeader(name = CrossInstanceInvalidation.TOKEN_HEADER, required = false) String token) {
+        String expected = this.invalidation.getPeerToken();
+        if (expected.isEmpty() || token == null
+                || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return this.invalidation.receive(index) ? ResponseEntity.noContent().build() : ResponseEntity.badRequest().build();
+    }
+}
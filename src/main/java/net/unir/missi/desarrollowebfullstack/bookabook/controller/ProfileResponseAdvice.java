@@ -0,0 +1,116 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.Layer;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.Profiling;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.QueryCapture;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.RequestTrace;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchProfileRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.StreamedList;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+// Wraps the body of the profiled requests as {"data": ..., "profile": ...}. The profile has the exclusive time of
+// every layer, the documents fetched from Elasticsearch against the ones returned, and the output of the profile
+// API for each search that was sent.
+@Slf4j
+@ControllerAdvice
+@RequiredArgsConstructor
+public class ProfileResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final ObjectMapper objectMapper;
+
+    private final ElasticsearchProfileRepository profileRepository;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTrace trace = RequestTrace.current();
+        if (body == null || trace == null || !Profiling.isActive()) {
+            return body;
+        }
+
+        try {
+            // The body is serialized here, so that its time can still be reported in the same response
+            long start = System.nanoTime();
+            byte[] data = body instanceof byte[] bytes ? bytes : this.objectMapper.writeValueAsBytes(body);
+            long serializationNanos = System.nanoTime() - start;
+
+            ObjectNode envelope = this.objectMapper.createObjectNode();
+            envelope.putRawValue("data", new RawValue(new String(data, StandardCharsets.UTF_8)));
+            envelope.set("profile", this.profile(trace, returned(body), serializationNanos));
+
+            return ByteArrayHttpMessageConverter.class.isAssignableFrom(selectedConverterType)
+                    ? this.objectMapper.writeValueAsBytes(envelope)
+                    : envelope;
+        } catch (IOException e) {
+            throw new RuntimeException("The profile of " + request.getURI() + " could not be written", e);
+        }
+    }
+
+    private ObjectNode profile(RequestTrace trace, long returned, long serializationNanos) throws IOException {
+        ObjectNode profile = this.objectMapper.createObjectNode();
+        profile.put("totalNanos", trace.totalNanos());
+        ObjectNode layers = profile.putObject("layerNanos");
+        trace.layerNanos().forEach(layers::put);
+        profile.put("conversionNanos", trace.layerNanos().get(Layer.CONVERSION.key()));
+        profile.put("serializationNanos", serializationNanos);
+
+        long fetched = 0;
+        ArrayNode queries = profile.putArray("queries");
+        for (QueryCapture capture : trace.getQueries()) {
+            fetched += capture.hits();
+            ObjectNode query = queries.addObject();
+            query.put("index", capture.index());
+            query.put("hits", capture.hits());
+            if (!capture.request().startsWith("{")) {
+                // Single document GETs do not go through the search API and have nothing to profile
+                query.put("request", capture.request());
+                continue;
+            }
+            query.set("request", this.objectMapper.readTree(capture.request()));
+            try {
+                query.set("profile", this.profileRepository.profile(capture.index(), capture.request()));
+            } catch (RuntimeException e) {
+                log.debug("Profile of a query on {} failed: {}", capture.index(), e.getMessage());
+                query.put("profileError", e.getMessage());
+            }
+        }
+
+        ObjectNode documents = profile.putObject("documents");
+        documents.put("fetched", fetched);
+        documents.put("returned", returned);
+        return profile;
+    }
+
+    private static long returned(Object body) {
+        if (body instanceof StreamedList<?> list) {
+            return list.getDocuments().size();
+        }
+        if (body instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        return 1;
+    }
+}
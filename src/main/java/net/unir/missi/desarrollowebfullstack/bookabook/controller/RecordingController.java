@@ -0,0 +1,122 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.RecordingResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.jfr.FlightRecordings;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Admin Controller", description = "Operaciones de diagnóstico del buscador.")
+public class RecordingController {
+
+    private final FlightRecordings flightRecordings;
+
+    @PostMapping("/admin/recordings")
+    @Operation(
+            operationId = "Grabar un perfil JFR",
+            description = "Operacion de escritura",
+            summary = "Se empieza a grabar con JDK Flight Recorder durante el tiempo indicado, incluyendo los eventos propios de la "
+                    + "aplicación, y se devuelve el identificador de la grabación para descargarla cuando termine. Requiere el token de administración.")
+    @ApiResponse(
+            responseCode = "202",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RecordingResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Configuración de JFR o duración no válida.")
+    @ApiResponse(responseCode = "403", description = "Token ausente o incorrecto.")
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Ya hay una grabación en curso.")
+    public ResponseEntity<RecordingResponse> record(
+            @Parameter(name = "duration", description = "Duración de la grabación (por ejemplo 30s o 2m), limitada por bookabook.jfr.max-duration")
+            @RequestParam(defaultValue = "30s") String duration,
+            @Parameter(name = "settings", description = "Configuración de JDK sobre la que se añaden los eventos propios: default (continua) o profile")
+            @RequestParam(defaultValue = "default") String settings) throws IOException, ParseException {
+
+        Duration length;
+        try {
+            length = DurationStyle.detectAndParse(duration);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (length.isNegative() || length.isZero() || !FlightRecordings.JDK_SETTINGS.contains(settings)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Long recordingId = flightRecordings.start(length, settings);
+        if (recordingId == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        RecordingResponse recording = RecordingResponse.builder().recordingId(recordingId).completed(false).build();
+        return ResponseEntity.accepted().location(URI.create("/admin/recordings/" + recordingId)).body(recording);
+    }
+
+    @GetMapping(value = "/admin/recordings/{recordingId}", produces = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @Operation(
+            operationId = "Descargar un perfil JFR",
+            description = "Operacion de lectura",
+            summary = "Se devuelve el fichero .jfr de una grabación terminada, que se borra después de descargarlo. Requiere el token de administración.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/octet-stream", schema = @Schema(type = "string", format = "binary")))
+    @ApiResponse(
+            responseCode = "202",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = RecordingResponse.class)),
+            description = "La grabación sigue en curso.")
+    @ApiResponse(responseCode = "403", description = "Token ausente o incorrecto.")
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No hay ninguna grabación terminada con el identificador indicado.")
+    public ResponseEntity<?> download(@PathVariable long recordingId) throws IOException {
+        if (flightRecordings.isRunning(recordingId)) {
+            return ResponseEntity.accepted()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(RecordingResponse.builder().recordingId(recordingId).completed(false).build());
+        }
+        Path file = flightRecordings.take(recordingId);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(file.getFileName().toString()).build().toString())
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .body(body);
+    }
+}
@@ -0,0 +1,161 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.AvailabilityResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.ReservationResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.ReservationAPIConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AvailabilityDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ReservationDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.reservation.ReservationConflictException;
+import net.unir.missi.desarrollowebfullstack.bookabook.service.IReservationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Reservations Controller", description = "Reservas de ejemplares de libros por parte de los clientes.")
+public class ReservationController {
+
+    private final IReservationService service;
+
+    private final ReservationAPIConverter converter;
+
+    @PostMapping("/reservations")
+    @Operation(
+            operationId = "Reservar un libro",
+            description = "Operacion de escritura",
+            summary = "Un cliente reserva un ejemplar de un libro, que queda retenido hasta que lo devuelve o la reserva caduca.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Libro y cliente de la reserva.",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservationResponse.class))))
+    @ApiResponse(
+            responseCode = "201",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservationResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Faltan el libro o el cliente.")
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No existe el libro o el cliente indicado.")
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Todos los ejemplares del libro están reservados.")
+    public ResponseEntity<ReservationResponse> reserve(@RequestBody ReservationResponse request) {
+        if (request == null || request.getBookId() == null || request.getClientId() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        ReservationDocument reservation = service.reserve(request.getBookId(), request.getClientId());
+        if (reservation == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.created(URI.create("/reservations/" + reservation.getId()))
+                .body(converter.fromDocument(reservation));
+    }
+
+    @GetMapping("/reservations/{reservationId}")
+    @Operation(
+            operationId = "Obtener una reserva",
+            description = "Operacion de lectura",
+            summary = "Se devuelve una reserva a partir de su identificador.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservationResponse.class)))
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No se ha encontrado la reserva con el identificador indicado.")
+    public ResponseEntity<ReservationResponse> getReservation(@PathVariable String reservationId) {
+        ReservationDocument reservation = service.getReservation(reservationId);
+        return reservation != null ? ResponseEntity.ok(converter.fromDocument(reservation)) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/reservations/{reservationId}/return")
+    @Operation(
+            operationId = "Devolver un libro reservado",
+            description = "Operacion de escritura",
+            summary = "Se cierra una reserva activa y el ejemplar vuelve a estar disponible.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservationResponse.class)))
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No se ha encontrado la reserva con el identificador indicado.")
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "La reserva ya se había devuelto o había caducado.")
+    public ResponseEntity<ReservationResponse> returnReservation(@PathVariable String reservationId) {
+        ReservationDocument reservation = service.returnReservation(reservationId);
+        return reservation != null ? ResponseEntity.ok(converter.fromDocument(reservation)) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/books/{bookId}/availability")
+    @Operation(
+            operationId = "Obtener la disponibilidad de un libro",
+            description = "Operacion de lectura",
+            summary = "Se devuelven los ejemplares de un libro y cuántos de ellos están reservados.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = AvailabilityResponse.class)))
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No se ha encontrado el libro con el identificador indicado.")
+    public ResponseEntity<AvailabilityResponse> getAvailability(@PathVariable Long bookId) {
+        AvailabilityDocument availability = service.getAvailability(bookId);
+        return availability != null ? ResponseEntity.ok(converter.fromDocument(availability)) : ResponseEntity.notFound().build();
+    }
+
+    @PutMapping("/books/{bookId}/availability")
+    @Operation(
+            operationId = "Modificar los ejemplares de un libro",
+            description = "Operacion de escritura",
+            summary = "Se cambia el número de ejemplares de un libro.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Número de ejemplares (copies).",
+                    required = true,
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = AvailabilityResponse.class))))
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = AvailabilityResponse.class)))
+    @ApiResponse(
+            responseCode = "400",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Número de ejemplares ausente o negativo.")
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No se ha encontrado el libro con el identificador indicado.")
+    @ApiResponse(
+            responseCode = "409",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "Hay más ejemplares reservados que los indicados.")
+    public ResponseEntity<AvailabilityResponse> setCopies(@PathVariable Long bookId, @RequestBody AvailabilityResponse request) {
+        if (request == null || request.getCopies() == null || request.getCopies() < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        AvailabilityDocument availability = service.setCopies(bookId, request.getCopies());
+        return availability != null ? ResponseEntity.ok(converter.fromDocument(availability)) : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(ReservationConflictException.class)
+    public ResponseEntity<Void> conflict(ReservationConflictException e) {
+        log.info("Reservation refused: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+}
@@ -0,0 +1,51 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.SlowQuery;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.SlowQueryLog;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Admin Controller", description = "Operaciones de diagnóstico del buscador.")
+public class SlowQueryController {
+
+    private final SlowQueryLog slowQueryLog;
+
+    @GetMapping("/admin/slow-queries")
+    @Operation(
+            operationId = "Obtener las peticiones lentas",
+            description = "Operacion de lectura",
+            summary = "Se devuelven las últimas peticiones que superaron el umbral de lentitud, de la más reciente a la más antigua, "
+                    + "con la consulta enviada a Elasticsearch y el tiempo consumido en cada capa. Requiere el token de administración.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = SlowQuery.class))))
+    @ApiResponse(responseCode = "403", description = "Token ausente o incorrecto.")
+    public ResponseEntity<List<SlowQuery>> getSlowQueries() {
+        return ResponseEntity.ok(this.slowQueryLog.snapshot());
+    }
+
+    @DeleteMapping("/admin/slow-queries")
+    @Operation(
+            operationId = "Vaciar las peticiones lentas",
+            description = "Operacion de escritura",
+            summary = "Se vacía el registro en memoria de peticiones lentas. El fichero de log no se modifica. Requiere el token de administración.")
+    @ApiResponse(responseCode = "204")
+    @ApiResponse(responseCode = "403", description = "Token ausente o incorrecto.")
+    public ResponseEntity<Void> clearSlowQueries() {
+        this.slowQueryLog.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,65 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.tracing.FinishedSpan;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.tracing.InMemorySpanCollector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Admin Controller", description = "Operaciones de diagnóstico del buscador.")
+public class SpanController {
+
+    // Only present when bookabook.tracing.exporter=memory
+    private final ObjectProvider<InMemorySpanCollector> collector;
+
+    @GetMapping("/admin/spans")
+    @Operation(
+            operationId = "Obtener las trazas recogidas en memoria",
+            description = "Operacion de lectura",
+            summary = "Se devuelven los spans recogidos por el exportador en memoria, opcionalmente de una sola traza. Requiere el token de administración.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = FinishedSpan.class))))
+    @ApiResponse(responseCode = "403", description = "Token ausente o incorrecto.")
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "El exportador en memoria no está activado.")
+    public ResponseEntity<List<FinishedSpan>> getSpans(
+            @Parameter(name = "traceId", description = "Identificador W3C de la traza")
+            @RequestParam(required = false) String traceId) {
+        InMemorySpanCollector spans = this.collector.getIfAvailable();
+        return spans != null ? ResponseEntity.ok(spans.getSpans(traceId)) : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("/admin/spans")
+    @Operation(
+            operationId = "Vaciar las trazas recogidas en memoria",
+            description = "Operacion de escritura",
+            summary = "Se descartan los spans recogidos por el exportador en memoria. Requiere el token de administración.")
+    @ApiResponse(responseCode = "204")
+    @ApiResponse(responseCode = "403", description = "Token ausente o incorrecto.")
+    public ResponseEntity<Void> clearSpans() {
+        InMemorySpanCollector spans = this.collector.getIfAvailable();
+        if (spans == null) {
+            return ResponseEntity.notFound().build();
+        }
+        spans.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,47 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.TaskResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.DeleteTask;
+import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.TaskAPIConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.service.ITaskService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Tasks Controller", description = "Consulta del progreso de las operaciones asíncronas.")
+public class TaskController {
+
+    @Autowired
+    private TaskAPIConverter converter;
+
+    private final ITaskService taskService;
+
+    @GetMapping("/tasks/{taskId}")
+    @Operation(
+            operationId = "Obtener el progreso de una tarea",
+            description = "Operacion de lectura",
+            summary = "Se devuelve el progreso de un borrado asíncrono a partir del identificador de su tarea.")
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = TaskResponse.class)))
+    @ApiResponse(
+            responseCode = "404",
+            content = @Content(mediaType = "application/json", schema = @Schema()),
+            description = "No se ha encontrado la tarea con el identificador indicado.")
+    public ResponseEntity<TaskResponse> getTask(@PathVariable String taskId) {
+        DeleteTask task = taskService.getDeleteTask(taskId);
+        return task != null ? ResponseEntity.ok(this.converter.fromMemory(task)) : ResponseEntity.notFound().build();
+    }
+}
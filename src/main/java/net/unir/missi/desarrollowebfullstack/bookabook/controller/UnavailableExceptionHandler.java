@@ -0,0 +1,38 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.admission.OverloadedException;
+import net.unir.missi.desarrollowebfullstack.bookabook.resilience.CircuitOpenException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.Duration;
+
+@RestControllerAdvice
+@Slf4j
+public class UnavailableExceptionHandler {
+
+    // Shed early instead of keeping the request thread waiting on Elasticsearch
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<Void> overloaded(OverloadedException e) {
+        log.debug("Request shed: {}", e.getMessage());
+        return unavailable(e.getRetryAfter());
+    }
+
+    // Elasticsearch is down and nothing was cached for this request
+    @ExceptionHandler(CircuitOpenException.class)
+    public ResponseEntity<Void> circuitOpen(CircuitOpenException e) {
+        log.debug("Request refused: {}", e.getMessage());
+        return unavailable(e.getRetryAfter());
+    }
+
+    private static ResponseEntity<Void> unavailable(Duration retryAfter) {
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .build();
+    }
+}
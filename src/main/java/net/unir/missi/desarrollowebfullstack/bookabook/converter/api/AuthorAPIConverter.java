@@ -2,6 +2,7 @@ package net.unir.missi.desarrollowebfullstack.bookabook.converter.api;
 
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.AuthorResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Author;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -34,4 +35,22 @@ public class AuthorAPIConverter {
                 document.biography(),
                 document.booksWritten());
     }
+
+    public AuthorResponse fromMemory(final Author document, final FieldSelection fields) {
+        if (document == null || fields.isAll()) {
+            return this.fromMemory(document);
+        }
+
+        return AuthorResponse.builder()
+                .id(document.id())
+                .firstName(fields.includes("firstName") ? document.firstName() : null)
+                .lastName(fields.includes("lastName") ? document.lastName() : null)
+                .birthDate(fields.includes("birthDate") ? document.birthDate() : null)
+                .nationality(fields.includes("nationality") ? document.nationality() : null)
+                .email(fields.includes("email") ? document.email() : null)
+                .webSite(fields.includes("webSite") ? document.webSite() : null)
+                .biography(fields.includes("biography") ? document.biography() : null)
+                .booksWrittenId(fields.includes("booksWrittenId") ? document.booksWritten() : null)
+                .build();
+    }
 }
@@ -3,6 +3,7 @@ package net.unir.missi.desarrollowebfullstack.bookabook.converter.api;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.BookResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Book;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
 import org.springframework.stereotype.Component;
 
@@ -27,18 +28,28 @@ public class BookAPIConverter {
     }
 
     public BookResponse fromMemory(final Book document) {
+        return this.fromMemory(document, FieldSelection.ALL);
+    }
+
+    public BookResponse fromMemory(final Book document, final FieldSelection fields) {
         if (document == null) {
             return null;
         }
 
         final BookResponse response = new BookResponse();
         response.setId(document.id());
-        response.setIsbn(document.isbn());
-        response.setName(document.name());
-        response.setLanguage(document.language());
-        response.setDescription(document.description());
-        response.setCategory(document.category());
-        response.setAuthorId(document.authorDocument());
+        if (fields.includes("isbn"))
+            response.setIsbn(document.isbn());
+        if (fields.includes("name"))
+            response.setName(document.name());
+        if (fields.includes("language"))
+            response.setLanguage(document.language());
+        if (fields.includes("description"))
+            response.setDescription(document.description());
+        if (fields.includes("category"))
+            response.setCategory(document.category());
+        if (fields.includes("authorId"))
+            response.setAuthorId(document.authorDocument());
 
         return response;
     }
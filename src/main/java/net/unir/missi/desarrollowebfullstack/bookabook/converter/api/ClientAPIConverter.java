@@ -3,6 +3,7 @@ package net.unir.missi.desarrollowebfullstack.bookabook.converter.api;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.ClientResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Client;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -25,17 +26,26 @@ public class ClientAPIConverter {
     }
 
     public ClientResponse fromMemory(final Client document) {
+        return this.fromMemory(document, FieldSelection.ALL);
+    }
+
+    public ClientResponse fromMemory(final Client document, final FieldSelection fields) {
         if (document == null) {
             return null;
         }
 
         ClientResponse response = new ClientResponse();
         response.setId(document.id());
-        response.setFirstName(document.firstName());
-        response.setLastName(document.lastName());
-        response.setAddress(document.address());
-        response.setPhoneNumber(document.phoneNumber());
-        response.setEmail(document.email());
+        if (fields.includes("firstName"))
+            response.setFirstName(document.firstName());
+        if (fields.includes("lastName"))
+            response.setLastName(document.lastName());
+        if (fields.includes("address"))
+            response.setAddress(document.address());
+        if (fields.includes("phoneNumber"))
+            response.setPhoneNumber(document.phoneNumber());
+        if (fields.includes("email"))
+            response.setEmail(document.email());
 
         return response;
     }
@@ -0,0 +1,41 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.converter.api;
+
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.AvailabilityResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.ReservationResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AvailabilityDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ReservationDocument;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+@Component
+public class ReservationAPIConverter {
+
+    public ReservationResponse fromDocument(final ReservationDocument reservation) {
+        if (reservation == null) {
+            return null;
+        }
+
+        return ReservationResponse.builder()
+                .id(reservation.getId())
+                .bookId(reservation.getBookId())
+                .clientId(reservation.getClientId())
+                .status(reservation.getStatus())
+                .reservedAt(reservation.getReservedAt() != null ? Instant.ofEpochMilli(reservation.getReservedAt()) : null)
+                .expiresAt(reservation.getExpiresAt() != null ? Instant.ofEpochMilli(reservation.getExpiresAt()) : null)
+                .build();
+    }
+
+    public AvailabilityResponse fromDocument(final AvailabilityDocument availability) {
+        if (availability == null) {
+            return null;
+        }
+
+        return AvailabilityResponse.builder()
+                .bookId(availability.getBookId())
+                .copies(availability.getCopies())
+                .reserved(availability.getReserved())
+                .available(Math.max(availability.getCopies() - availability.getReserved(), 0))
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.converter.api;
+
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.TaskResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.DeleteTask;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TaskAPIConverter {
+
+    public TaskResponse fromMemory(final DeleteTask task) {
+        if (task == null) {
+            return null;
+        }
+
+        return TaskResponse.builder()
+                .taskId(task.taskId())
+                .completed(task.completed())
+                .total(task.total())
+                .deleted(task.deleted())
+                .versionConflicts(task.versionConflicts())
+                .failures(task.failures())
+                .build();
+    }
+}
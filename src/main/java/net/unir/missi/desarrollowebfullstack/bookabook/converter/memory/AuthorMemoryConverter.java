@@ -3,14 +3,13 @@ package net.unir.missi.desarrollowebfullstack.bookabook.converter.memory;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Author;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
-import net.unir.missi.desarrollowebfullstack.bookabook.repository.AuthorRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Component
 public class AuthorMemoryConverter {
@@ -40,11 +39,12 @@ public class AuthorMemoryConverter {
             List<BookDocument> booksWritten = new LinkedList<>();
             for (Long id : author.booksWritten())
             {
-                if (repository.getById(id) == null)
+                BookDocument book = repository.getById(id);
+                if (book == null)
                 {
                     throw new RuntimeException("The book with id " + id.toString() + " does not exist");
                 }
-                booksWritten.add(repository.getById(id));
+                booksWritten.add(book);
             }
             document.setBooksWritten(booksWritten);
         }
@@ -57,17 +57,16 @@ public class AuthorMemoryConverter {
     }
 
     public Author fromDocument(final AuthorDocument document) {
+        return this.fromDocument(document, FieldSelection.ALL);
+    }
+
+    public Author fromDocument(final AuthorDocument document, final FieldSelection fields) {
         if (document == null) {
             return null;
         }
 
-        List<Long> bookIds = new LinkedList<Long>();
-        if (document.getBooksWritten() != null)
-        {
-            bookIds = document.getBooksWritten()
-                    .stream().map(BookDocument::getId)
-                    .collect(Collectors.toList());
-        }
+        // Only looked up if the caller asked for them and reads them
+        List<Long> bookIds = fields.includes("booksWrittenId") ? new BooksWrittenIds(repository, document.getId()) : null;
 
         return new Author(
                 document.getId(),
@@ -3,6 +3,7 @@ package net.unir.missi.desarrollowebfullstack.bookabook.converter.memory;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Book;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 import net.unir.missi.desarrollowebfullstack.bookabook.repository.AuthorRepository;
 import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,15 +39,26 @@ public class BookMemoryConverter {
     }
 
     public Book fromDocument(final BookDocument document) {
+        return this.fromDocument(document, FieldSelection.ALL);
+    }
+
+    public Book fromDocument(final BookDocument document, final FieldSelection fields) {
         if (document == null) {
             return null;
         }
 
-        Long author = null;
-        if (document.getAuthorDocument() == null)
-        {
-            author = null;
+        if (!fields.isAll()) {
+            // Only the requested fields were fetched from the _source, the rest are left empty
+            return new Book(
+                    document.getId(),
+                    fields.includes("isbn") ? document.getIsbn() : null,
+                    fields.includes("name") ? document.getName() : null,
+                    fields.includes("language") ? document.getLanguage() : null,
+                    fields.includes("description") ? document.getDescription() : null,
+                    fields.includes("category") ? document.getCategory() : null,
+                    fields.includes("authorId") ? document.getAuthorId() : null);
         }
+
         return new Book(
                 document.getId(),
                 document.getIsbn(),
@@ -54,6 +66,6 @@ public class BookMemoryConverter {
                 document.getLanguage(),
                 document.getDescription(),
                 document.getCategory(),
-                author);
+                document.getAuthorId());
     }
 }
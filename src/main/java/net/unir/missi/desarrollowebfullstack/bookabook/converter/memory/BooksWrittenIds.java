@@ -0,0 +1,39 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.converter.memory;
+
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+
+import java.util.AbstractList;
+import java.util.List;
+
+// Ids of the books of an author, looked up by their authorId the first time the list is read, so authors whose
+// books are never serialized cost no query
+final class BooksWrittenIds extends AbstractList<Long> {
+
+    private final BookRepository repository;
+
+    private final Long authorId;
+
+    private List<Long> ids;
+
+    BooksWrittenIds(BookRepository repository, Long authorId) {
+        this.repository = repository;
+        this.authorId = authorId;
+    }
+
+    @Override
+    public Long get(int index) {
+        return this.ids().get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.ids().size();
+    }
+
+    private synchronized List<Long> ids() {
+        if (this.ids == null) {
+            this.ids = this.authorId != null ? this.repository.getBookIdsByAuthor(this.authorId) : List.of();
+        }
+        return this.ids;
+    }
+}
@@ -0,0 +1,28 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.converter.memory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.DeleteTask;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TaskMemoryConverter {
+
+    // Converts the output of GET _tasks/{taskId} of a delete by query task
+    public DeleteTask fromDocument(final String taskId, final JsonNode document) {
+        if (document == null) {
+            return null;
+        }
+
+        boolean completed = document.path("completed").asBoolean(false);
+        // While running, the progress is in task.status. Once completed, the final counters are in response.
+        JsonNode status = completed ? document.path("response") : document.path("task").path("status");
+
+        return new DeleteTask(
+                taskId,
+                completed,
+                status.path("total").asLong(0),
+                status.path("deleted").asLong(0),
+                status.path("version_conflicts").asLong(0),
+                status.path("failures").size());
+    }
+}
@@ -0,0 +1,52 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.crac;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.warmup.StartupWarmUp;
+import net.unir.missi.desarrollowebfullstack.bookabook.warmup.WarmUpTraffic;
+import org.crac.CheckpointException;
+import org.crac.Core;
+import org.crac.RestoreException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Once the catalog bootstrap and the startup warm-up are done, warms it up with synthetic traffic and takes the
+// checkpoint. With -XX:CRaCCheckpointTo the JVM exits after writing the image; instances restored from it go on from
+// here, already warm. Only with bookabook.crac.enabled as well, since the restore relies on CheckpointRestoreHandler
+// and ElasticsearchConnectionPool, which exist only then.
+@Slf4j
+@Component
+@ConditionalOnExpression("${bookabook.crac.enabled:false} and '${bookabook.crac.checkpoint:none}' == 'after-warm-up'")
+@Order(1)
+@RequiredArgsConstructor
+public class CheckpointAfterWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final WarmUpTraffic warmUpTraffic;
+
+    private final StartupWarmUp startupWarmUp;
+
+    @Value("${bookabook.crac.warm-up-requests:20000}")
+    private int warmUpRequests;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long start = System.nanoTime();
+        int succeeded = this.warmUpTraffic.run(this.warmUpRequests);
+        log.info("Warmed up with {} requests ({} succeeded) in {} ms, taking the checkpoint",
+                this.warmUpRequests, succeeded, (System.nanoTime() - start) / 1_000_000);
+
+        try {
+            Core.checkpointRestore();
+            // The Eureka registration started again from the initial status on restore
+            this.startupWarmUp.markUp();
+        } catch (CheckpointException | RestoreException e) {
+            log.error("Checkpoint and restore failed, the instance goes on without it", e);
+        } catch (UnsupportedOperationException e) {
+            log.warn("This JVM does not support CRaC: {}", e.getMessage());
+        }
+    }
+}
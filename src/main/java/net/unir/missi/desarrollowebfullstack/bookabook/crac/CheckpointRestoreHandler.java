@@ -0,0 +1,103 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.crac;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.bootstrap.CatalogBootstrap;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.IndexGenerations;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.netflix.eureka.EurekaInstanceConfigBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+// Spring stops the lifecycle beans before a CRaC checkpoint and starts them again after the restore. This one runs
+// before the Eureka registration on restore, and fixes what the image got wrong for a new instance:
+// - the host name and IP address registered with Eureka are the ones of the machine the image was taken on
+// - the id counters are the ones of the checkpoint, while other instances may have created documents since then
+// - the cached results may be older than they look, the clock of the cache entries was frozen in the image
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bookabook.crac.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class CheckpointRestoreHandler implements SmartLifecycle {
+
+    // Eureka registers in phase 0
+    private static final int PHASE = -100;
+
+    private final ElasticsearchConnectionPool connectionPool;
+
+    private final CatalogBootstrap catalogBootstrap;
+
+    private final IndexGenerations generations;
+
+    private final ObjectProvider<EurekaInstanceConfigBean> eurekaInstance;
+
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+    private final ObjectProvider<InetUtils> inetUtils;
+
+    private volatile boolean running;
+
+    private volatile boolean checkpointed;
+
+    @Override
+    public void start() {
+        if (this.checkpointed) {
+            this.afterRestore();
+        }
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        // Also on shutdown, where it is just as harmless
+        this.connectionPool.closeConnections();
+        this.checkpointed = true;
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void afterRestore() {
+        long start = System.nanoTime();
+        this.refreshEurekaInstance();
+        for (String index : new String[]{AuthorDocument.INDEX_NAME, BookDocument.INDEX_NAME, ClientDocument.INDEX_NAME}) {
+            this.generations.invalidate(index);
+        }
+        try {
+            this.catalogBootstrap.reserveIds();
+        } catch (RuntimeException e) {
+            log.error("The id counters could not be resynchronized after the restore", e);
+        }
+        log.info("Restored from a checkpoint in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void refreshEurekaInstance() {
+        EurekaInstanceConfigBean instance = this.eurekaInstance.getIfAvailable();
+        InetUtils inet = this.inetUtils.getIfAvailable();
+        if (instance == null || inet == null) {
+            return;
+        }
+        InetUtils.HostInfo host = inet.findFirstNonLoopbackHostInfo();
+        instance.setIpAddress(host.getIpAddress());
+        instance.setHostname(host.getHostname());
+        ApplicationInfoManager infoManager = this.applicationInfoManager.getIfAvailable();
+        if (infoManager != null) {
+            infoManager.refreshDataCenterInfoIfRequired();
+        }
+        log.info("Registering with Eureka as {} ({})", host.getHostname(), host.getIpAddress());
+    }
+}
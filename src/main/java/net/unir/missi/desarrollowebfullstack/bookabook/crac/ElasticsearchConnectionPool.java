@@ -0,0 +1,56 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.crac;
+
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.elasticsearch.RestClientBuilderCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Gives the Elasticsearch client a connection pool we can reach, so that its sockets can be closed before a
+// checkpoint. The client opens new connections by itself on the first requests after the restore.
+@Component
+@ConditionalOnProperty(name = "bookabook.crac.enabled", havingValue = "true")
+public class ElasticsearchConnectionPool implements RestClientBuilderCustomizer {
+
+    // Same limits as the ones RestClientBuilder sets when it creates the pool itself
+    @Value("${bookabook.crac.elasticsearch.max-connections:30}")
+    private int maxConnections;
+
+    @Value("${bookabook.crac.elasticsearch.max-connections-per-route:10}")
+    private int maxConnectionsPerRoute;
+
+    private volatile PoolingNHttpClientConnectionManager connectionManager;
+
+    @Override
+    public void customize(RestClientBuilder builder) {
+    }
+
+    @Override
+    public void customize(HttpAsyncClientBuilder builder) {
+        try {
+            PoolingNHttpClientConnectionManager manager =
+                    new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT));
+            manager.setMaxTotal(this.maxConnections);
+            manager.setDefaultMaxPerRoute(this.maxConnectionsPerRoute);
+            builder.setConnectionManager(manager);
+            this.connectionManager = manager;
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("The Elasticsearch connection pool could not be created", e);
+        }
+    }
+
+    public void closeConnections() {
+        PoolingNHttpClientConnectionManager manager = this.connectionManager;
+        if (manager != null) {
+            manager.closeExpiredConnections();
+            manager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+// Lets through the admin endpoints that expose what the buscador runs (JFR recordings, and the slow queries and spans
+// with the filters of the clients) only for the callers that present the admin token. They are refused to everybody while no
+// token is configured.
+@Slf4j
+@Component
+public class AdminFilter extends OncePerRequestFilter {
+
+    public static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private static final List<String> PATHS = List.of("/admin/recordings", "/admin/slow-queries", "/admin/spans");
+
+    private final byte[] token;
+
+    public AdminFilter(@Value("${bookabook.admin.token:}") String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return PATHS.stream().noneMatch(path::startsWith);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!this.isAllowed(request.getHeader(TOKEN_HEADER))) {
+            log.debug("Admin request {} refused", request.getRequestURI());
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Admin endpoints require a valid " + TOKEN_HEADER);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private boolean isAllowed(String presented) {
+        return this.token.length > 0
+                && StringUtils.hasText(presented)
+                && MessageDigest.isEqual(this.token, presented.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,16 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+// Layers in which the time of a request is split. Time spent outside every other layer (filters, dispatching,
+// argument binding) is charged to FRAMEWORK.
+public enum Layer {
+    FRAMEWORK,
+    CONTROLLER,
+    SERVICE,
+    REPOSITORY,
+    CONVERSION,
+    SERIALIZATION;
+
+    public String key() {
+        return this.name().toLowerCase();
+    }
+}
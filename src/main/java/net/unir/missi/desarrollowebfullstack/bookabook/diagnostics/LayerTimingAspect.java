@@ -0,0 +1,45 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+// Charges the time of every public bean method to the layer of its package
+@Aspect
+@Component
+public class LayerTimingAspect {
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.controller..*)")
+    public Object controller(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(Layer.CONTROLLER, joinPoint);
+    }
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.service..*)")
+    public Object service(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(Layer.SERVICE, joinPoint);
+    }
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.repository..*)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(Layer.REPOSITORY, joinPoint);
+    }
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.converter..*)")
+    public Object conversion(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(Layer.CONVERSION, joinPoint);
+    }
+
+    private static Object time(Layer layer, ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestTrace trace = RequestTrace.current();
+        if (trace == null) {
+            return joinPoint.proceed();
+        }
+        trace.enter(layer);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            trace.exit();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// Lets through ?profile=true on the GET endpoints of books, authors and clients only for the callers that present
+// the profile token. Profiling is refused to everybody while no token is configured.
+@Slf4j
+@Component
+public class ProfileFilter extends OncePerRequestFilter {
+
+    public static final String TOKEN_HEADER = "X-Profile-Token";
+
+    private final byte[] token;
+
+    public ProfileFilter(@Value("${bookabook.profile.token:}") String token) {
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !HttpMethod.GET.matches(request.getMethod())
+                || !"true".equalsIgnoreCase(request.getParameter("profile"))
+                || !(path.startsWith("/books") || path.startsWith("/authors") || path.startsWith("/clients"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!this.isAllowed(request.getHeader(TOKEN_HEADER))) {
+            log.debug("Profile of {} refused", request.getRequestURI());
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Profiling requires a valid " + TOKEN_HEADER);
+            return;
+        }
+        request.setAttribute(Profiling.ATTRIBUTE, Boolean.TRUE);
+        chain.doFilter(request, response);
+    }
+
+    private boolean isAllowed(String presented) {
+        return this.token.length > 0
+                && StringUtils.hasText(presented)
+                && MessageDigest.isEqual(this.token, presented.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,20 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+// Whether the current request asked for (and was allowed) the profile of its queries. The caches step aside for
+// these requests, so that the profile describes what Elasticsearch really did.
+public final class Profiling {
+
+    static final String ATTRIBUTE = Profiling.class.getName() + ".active";
+
+    private Profiling() {
+    }
+
+    public static boolean isActive() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                && Boolean.TRUE.equals(attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST));
+    }
+}
@@ -0,0 +1,5 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+// Request sent to Elasticsearch by a repository while serving an HTTP request, with the number of hits it matched
+public record QueryCapture(String index, String request, long hits) {
+}
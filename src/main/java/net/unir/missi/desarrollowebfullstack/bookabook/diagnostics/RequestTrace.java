@@ -0,0 +1,104 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Timing of the request being served by the current thread. Each layer is charged only with its own (exclusive)
+// time: entering a nested layer pauses the clock of the enclosing one.
+public final class RequestTrace {
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private final long start;
+
+    private final long[] nanos = new long[Layer.values().length];
+
+    private final Deque<Layer> stack = new ArrayDeque<>();
+
+    private final List<QueryCapture> queries = new ArrayList<>();
+
+    private long mark;
+
+    private long end;
+
+    private RequestTrace() {
+        this.start = System.nanoTime();
+        this.mark = this.start;
+    }
+
+    public static RequestTrace begin() {
+        RequestTrace trace = new RequestTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    // Null when the current thread is not serving a traced request (startup tasks, schedulers...)
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    public static void query(String index, String request, long hits) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.queries.add(new QueryCapture(index, request, hits));
+        }
+    }
+
+    public void enter(Layer layer) {
+        this.charge(System.nanoTime());
+        this.stack.push(layer);
+    }
+
+    public void exit() {
+        this.charge(System.nanoTime());
+        this.stack.pop();
+    }
+
+    public void finish() {
+        this.end = System.nanoTime();
+        this.charge(this.end);
+        this.stack.clear();
+        CURRENT.remove();
+    }
+
+    public long totalNanos() {
+        return (this.end != 0 ? this.end : System.nanoTime()) - this.start;
+    }
+
+    public double totalMillis() {
+        return this.totalNanos() / NANOS_PER_MILLI;
+    }
+
+    public Map<String, Double> layerMillis() {
+        Map<String, Double> layers = new LinkedHashMap<>();
+        for (Layer layer : Layer.values()) {
+            layers.put(layer.key(), this.nanos[layer.ordinal()] / NANOS_PER_MILLI);
+        }
+        return layers;
+    }
+
+    public Map<String, Long> layerNanos() {
+        Map<String, Long> layers = new LinkedHashMap<>();
+        for (Layer layer : Layer.values()) {
+            layers.put(layer.key(), this.nanos[layer.ordinal()]);
+        }
+        return layers;
+    }
+
+    public List<QueryCapture> getQueries() {
+        return Collections.unmodifiableList(this.queries);
+    }
+
+    private void charge(long now) {
+        Layer owner = this.stack.isEmpty() ? Layer.FRAMEWORK : this.stack.peek();
+        this.nanos[owner.ordinal()] += now - this.mark;
+        this.mark = now;
+    }
+}
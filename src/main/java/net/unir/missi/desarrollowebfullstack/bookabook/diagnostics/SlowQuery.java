@@ -0,0 +1,16 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public record SlowQuery(Instant timestamp,
+                        String method,
+                        String endpoint,
+                        String path,
+                        Map<String, String> params,
+                        int status,
+                        double totalMillis,
+                        Map<String, Double> layerMillis,
+                        List<QueryCapture> queries) {
+}
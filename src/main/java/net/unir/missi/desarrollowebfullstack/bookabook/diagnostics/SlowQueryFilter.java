@@ -0,0 +1,67 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Traces every request and hands the ones slower than the threshold to the slow query log
+@Component
+@RequiredArgsConstructor
+public class SlowQueryFilter extends OncePerRequestFilter {
+
+    private final SlowQueryLog slowQueryLog;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        Instant timestamp = Instant.now();
+        RequestTrace trace = RequestTrace.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            trace.finish();
+            if (this.slowQueryLog.isSlow(trace)) {
+                this.slowQueryLog.record(new SlowQuery(
+                        timestamp,
+                        request.getMethod(),
+                        endpoint(request),
+                        request.getRequestURI(),
+                        normalizedParams(request),
+                        response.getStatus(),
+                        trace.totalMillis(),
+                        trace.layerMillis(),
+                        trace.getQueries()));
+            }
+        }
+    }
+
+    // Route template (/books/{bookId}) so that slow requests on different ids are grouped together
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : request.getRequestURI();
+    }
+
+    // Sorted by name, trimmed, and without the parameters that the controllers ignore because they are blank
+    private static Map<String, String> normalizedParams(HttpServletRequest request) {
+        Map<String, String> params = new TreeMap<>();
+        request.getParameterMap().forEach((name, values) -> {
+            String value = String.join(",", values).trim();
+            if (StringUtils.hasText(value)) {
+                params.put(name, value);
+            }
+        });
+        return params;
+    }
+}
@@ -0,0 +1,75 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Last slow requests kept in a bounded ring buffer, and appended as JSON lines to the slow query log file
+@Component
+public class SlowQueryLog {
+
+    // Routed to its own rolling file in logback-spring.xml
+    private static final Logger SLOW_QUERIES = LoggerFactory.getLogger("bookabook.slow-queries");
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration threshold;
+
+    private final int capacity;
+
+    private final Deque<SlowQuery> entries;
+
+    public SlowQueryLog(ObjectMapper objectMapper,
+                        @Value("${bookabook.slow-query.threshold:500ms}") Duration threshold,
+                        @Value("${bookabook.slow-query.buffer-size:200}") int capacity) {
+        this.objectMapper = objectMapper;
+        this.threshold = threshold;
+        this.capacity = capacity;
+        this.entries = new ArrayDeque<>(capacity);
+    }
+
+    public boolean isSlow(RequestTrace trace) {
+        return trace.totalNanos() >= this.threshold.toNanos();
+    }
+
+    public void record(SlowQuery entry) {
+        synchronized (this.entries) {
+            if (this.entries.size() == this.capacity) {
+                this.entries.removeLast();
+            }
+            this.entries.addFirst(entry);
+        }
+
+        try {
+            SLOW_QUERIES.info(this.objectMapper.writeValueAsString(entry));
+        } catch (JsonProcessingException e) {
+            SLOW_QUERIES.warn("Could not serialize slow query on {} {}: {}", entry.method(), entry.path(), e.getMessage());
+        }
+    }
+
+    // Newest first
+    public List<SlowQuery> snapshot() {
+        synchronized (this.entries) {
+            return new ArrayList<>(this.entries);
+        }
+    }
+
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+    }
+
+    public Duration getThreshold() {
+        return this.threshold;
+    }
+}
@@ -0,0 +1,28 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("bookabook.CacheLookup")
+@Label("Cache Lookup")
+@Category({"Book-a-book", "Cache"})
+@Description("Lookup in an in-process cache, including the load on a miss")
+@Enabled(false)
+@StackTrace(false)
+public class CacheLookupEvent extends Event {
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Outcome")
+    @Description("hit, miss, or bypass when the result could not be stored")
+    public String outcome;
+}
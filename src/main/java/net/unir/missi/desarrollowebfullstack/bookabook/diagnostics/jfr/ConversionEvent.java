@@ -0,0 +1,24 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("bookabook.Conversion")
+@Label("Conversion")
+@Category({"Book-a-book", "Conversion"})
+@Description("Invocation of a document, memory or API converter")
+@Enabled(false)
+@StackTrace(false)
+public class ConversionEvent extends Event {
+
+    @Label("Converter")
+    String converter;
+
+    @Label("Method")
+    String method;
+}
@@ -0,0 +1,109 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.jfr;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Time-boxed JFR recordings started on demand. The settings are those of a JDK profile ("default" is the
+// continuous one, "profile" samples more) plus the application events enabled by jfr/bookabook.jfc. JFR stops each
+// recording by itself once its duration is over and writes it to a temporary file, so no thread waits for it; the
+// file is kept until it is downloaded or the next recording starts. One recording at a time.
+@Slf4j
+@Component
+public class FlightRecordings {
+
+    public static final Set<String> JDK_SETTINGS = Set.of("default", "profile");
+
+    private static final String APPLICATION_SETTINGS = "/jfr/bookabook.jfc";
+
+    private final Duration maxDuration;
+
+    private final Map<String, String> applicationSettings;
+
+    // The last recording started, until its file is taken
+    private Started last;
+
+    public FlightRecordings(@Value("${bookabook.jfr.max-duration:5m}") Duration maxDuration) throws IOException, ParseException {
+        this.maxDuration = maxDuration;
+        try (Reader reader = new InputStreamReader(
+                FlightRecordings.class.getResourceAsStream(APPLICATION_SETTINGS), StandardCharsets.UTF_8)) {
+            this.applicationSettings = Configuration.create(reader).getSettings();
+        }
+    }
+
+    // Starts a recording for the given duration (capped) and returns its id. Null if another recording is running.
+    public synchronized Long start(Duration duration, String jdkSettings) throws IOException, ParseException {
+        if (this.last != null && !this.last.isFinished()) {
+            return null;
+        }
+        this.discard();
+
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration(jdkSettings).getSettings());
+        settings.putAll(this.applicationSettings);
+
+        Duration length = duration.compareTo(this.maxDuration) > 0 ? this.maxDuration : duration;
+        Path file = Files.createTempFile("bookabook-", ".jfr");
+        Recording recording = new Recording(settings);
+        try {
+            recording.setName("bookabook-admin");
+            recording.setToDisk(true);
+            recording.setDuration(length);
+            recording.setDestination(file);
+            recording.start();
+        } catch (IOException | RuntimeException e) {
+            recording.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        log.info("Started the JFR recording {} for {} with the {} settings", recording.getId(), length, jdkSettings);
+        this.last = new Started(recording, file);
+        return recording.getId();
+    }
+
+    public synchronized boolean isRunning(long id) {
+        return this.last != null && this.last.recording().getId() == id && !this.last.isFinished();
+    }
+
+    // The file of the finished recording with that id, which the caller has to delete. Null if there is none.
+    public synchronized Path take(long id) {
+        if (this.last == null || this.last.recording().getId() != id || !this.last.isFinished()) {
+            return null;
+        }
+        Path file = this.last.file();
+        this.last = null;
+        return file;
+    }
+
+    @PreDestroy
+    public synchronized void discard() throws IOException {
+        if (this.last != null) {
+            this.last.recording().close();
+            Files.deleteIfExists(this.last.file());
+            this.last = null;
+        }
+    }
+
+    private record Started(Recording recording, Path file) {
+
+        // JFR closes a recording with a destination once it has written it there
+        private boolean isFinished() {
+            return this.recording.getState() == RecordingState.CLOSED;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.jfr;
+
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.AuthorRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ClientRepository;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Emits the repository and converter events. Their fields are only filled in when a recording has them enabled.
+@Aspect
+@Component
+public class JfrEventAspect {
+
+    private static final Map<Class<?>, String> INDICES = Map.of(
+            BookRepository.class, BookDocument.INDEX_NAME,
+            AuthorRepository.class, AuthorDocument.INDEX_NAME,
+            ClientRepository.class, ClientDocument.INDEX_NAME);
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.repository..*)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        event.begin();
+        Object result = joinPoint.proceed();
+        event.end();
+        if (event.shouldCommit()) {
+            Class<?> repository = joinPoint.getSignature().getDeclaringType();
+            event.repository = repository.getSimpleName();
+            event.index = INDICES.get(repository);
+            event.operation = joinPoint.getSignature().getName();
+            event.hits = hits(((MethodSignature) joinPoint.getSignature()).getReturnType(), result);
+            event.commit();
+        }
+        return result;
+    }
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.converter..*)")
+    public Object conversion(ProceedingJoinPoint joinPoint) throws Throwable {
+        ConversionEvent event = new ConversionEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+
+        event.begin();
+        Object result = joinPoint.proceed();
+        event.end();
+        if (event.shouldCommit()) {
+            event.converter = joinPoint.getSignature().getDeclaringType().getSimpleName();
+            event.method = joinPoint.getSignature().getName();
+            event.commit();
+        }
+        return result;
+    }
+
+    private static long hits(Class<?> returnType, Object result) {
+        if (returnType == void.class || returnType == String.class) {
+            return -1;
+        }
+        if (result instanceof Collection<?> documents) {
+            return documents.size();
+        }
+        return result != null ? 1 : 0;
+    }
+}
@@ -0,0 +1,32 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Disabled unless the recording uses the settings in jfr/bookabook.jfc
+@Name("bookabook.RepositoryCall")
+@Label("Repository Call")
+@Category({"Book-a-book", "Elasticsearch"})
+@Description("Call to a repository of the buscador, with the index it works on and the documents it returned")
+@Enabled(false)
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Index")
+    String index;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Hit Count")
+    @Description("Documents returned, 0 or 1 for single lookups and -1 when the call does not return documents")
+    long hits;
+}
@@ -0,0 +1,69 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.springframework.stereotype.Component;
+
+// Client span for every HTTP request sent to Elasticsearch, propagated with the W3C traceparent header so that the
+// cluster slow logs and task APIs can be correlated with the request that caused them. The span is started on the
+// calling thread around RestClient.performRequest, which Spring Data Elasticsearch and the repositories go through:
+// the interceptors of the underlying HTTP client run on its I/O threads, where there is no current span.
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ElasticsearchTracingAspect {
+
+    private final Tracer tracer;
+
+    private final Propagator propagator;
+
+    @Around("execution(* org.elasticsearch.client.RestClient.performRequest(..)) && args(request)")
+    public Object performRequest(ProceedingJoinPoint joinPoint, Request request) throws Throwable {
+        if (this.tracer.currentSpan() == null) {
+            return joinPoint.proceed();
+        }
+
+        String endpoint = request.getEndpoint();
+        // A child of the current span, as the builder takes it for its parent
+        Span span = this.tracer.spanBuilder()
+                .name("elasticsearch " + request.getMethod())
+                .kind(Span.Kind.CLIENT)
+                .tag("layer", "elasticsearch")
+                .tag("http.method", request.getMethod())
+                .tag("http.path", endpoint)
+                .start();
+        RequestOptions.Builder options = request.getOptions().toBuilder();
+        this.propagator.inject(span.context(), options, RequestOptions.Builder::addHeader);
+        request.setOptions(options);
+
+        try {
+            Object result = joinPoint.proceed();
+            if (result instanceof Response response) {
+                span.tag("http.status_code", String.valueOf(response.getStatusLine().getStatusCode()));
+            }
+            return result;
+        } catch (ResponseException e) {
+            // Missing documents and conflicts are answers, not failures of the call
+            int status = e.getResponse().getStatusLine().getStatusCode();
+            span.tag("http.status_code", String.valueOf(status));
+            if (status >= 500) {
+                span.error(e);
+            }
+            throw e;
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
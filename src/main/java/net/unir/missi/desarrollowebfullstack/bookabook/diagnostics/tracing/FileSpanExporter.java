@@ -0,0 +1,47 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+// Local exporter: one JSON line per finished span, in the rolling file configured in logback-spring.xml
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bookabook.tracing.exporter", havingValue = "file")
+public class FileSpanExporter implements SpanExporter {
+
+    private static final Logger SPANS = LoggerFactory.getLogger("bookabook.spans");
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        for (SpanData span : spans) {
+            try {
+                SPANS.info(this.objectMapper.writeValueAsString(FinishedSpan.from(span)));
+            } catch (JsonProcessingException e) {
+                return CompletableResultCode.ofFailure();
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,33 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.tracing;
+
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Exported view of a span, written by the file exporter and returned by the in-memory collector
+public record FinishedSpan(String traceId,
+                           String spanId,
+                           String parentSpanId,
+                           String name,
+                           String kind,
+                           long startEpochNanos,
+                           double durationMillis,
+                           String status,
+                           Map<String, String> attributes) {
+
+    public static FinishedSpan from(SpanData span) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        return new FinishedSpan(
+                span.getTraceId(),
+                span.getSpanId(),
+                span.getParentSpanContext().isValid() ? span.getParentSpanId() : null,
+                span.getName(),
+                span.getKind().name(),
+                span.getStartEpochNanos(),
+                (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000d,
+                span.getStatus().getStatusCode().name(),
+                attributes);
+    }
+}
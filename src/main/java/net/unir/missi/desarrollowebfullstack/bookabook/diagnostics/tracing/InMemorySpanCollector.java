@@ -0,0 +1,71 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+// Local exporter that keeps the last finished spans in memory, to be inspected at /admin/spans
+@Component
+@ConditionalOnProperty(name = "bookabook.tracing.exporter", havingValue = "memory")
+public class InMemorySpanCollector implements SpanExporter {
+
+    private final int capacity;
+
+    private final Deque<FinishedSpan> spans;
+
+    public InMemorySpanCollector(@Value("${bookabook.tracing.memory.capacity:2000}") int capacity) {
+        this.capacity = capacity;
+        this.spans = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> finished) {
+        synchronized (this.spans) {
+            for (SpanData span : finished) {
+                if (this.spans.size() == this.capacity) {
+                    this.spans.removeFirst();
+                }
+                this.spans.addLast(FinishedSpan.from(span));
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    // Spans of a trace in the order they finished, or every kept span when traceId is null
+    public List<FinishedSpan> getSpans(String traceId) {
+        synchronized (this.spans) {
+            List<FinishedSpan> result = new ArrayList<>();
+            for (FinishedSpan span : this.spans) {
+                if (traceId == null || traceId.equals(span.traceId())) {
+                    result.add(span);
+                }
+            }
+            return result;
+        }
+    }
+
+    public void clear() {
+        synchronized (this.spans) {
+            this.spans.clear();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,73 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+// One span per controller handler, service method and repository call, nested under the server span of the request
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class TracingAspect {
+
+    private final Tracer tracer;
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.controller..*)")
+    public Object controller(ProceedingJoinPoint joinPoint) throws Throwable {
+        return this.trace("controller", joinPoint);
+    }
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.service..*)")
+    public Object service(ProceedingJoinPoint joinPoint) throws Throwable {
+        return this.trace("service", joinPoint);
+    }
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.repository..*)")
+    public Object repository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return this.trace("repository", joinPoint);
+    }
+
+    private Object trace(String layer, ProceedingJoinPoint joinPoint) throws Throwable {
+        // Outside of a request (startup, schedulers) there is nothing to attach the span to
+        if (this.tracer.currentSpan() == null) {
+            return joinPoint.proceed();
+        }
+
+        String name = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        Span span = this.tracer.nextSpan().name(name).tag("layer", layer).start();
+        try (Tracer.SpanInScope ignored = this.tracer.withSpan(span)) {
+            Object result = joinPoint.proceed();
+            tagResult(span, result);
+            return result;
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private static void tagResult(Span span, Object result) {
+        if (result instanceof ResponseEntity<?> response) {
+            span.tag("http.status_code", String.valueOf(response.getStatusCode().value()));
+            result = response.getBody();
+        }
+        if (result instanceof MappingJacksonValue value) {
+            result = value.getValue();
+        }
+
+        if (result instanceof Collection<?> items) {
+            span.tag("result.count", String.valueOf(items.size()));
+        } else {
+            span.tag("result.found", String.valueOf(result != null));
+        }
+    }
+}
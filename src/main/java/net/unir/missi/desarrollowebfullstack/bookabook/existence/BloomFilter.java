@@ -0,0 +1,100 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.existence;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter over 64-bit hashes, safe for concurrent adds and lookups. The bit positions come from the two halves of
+// the hash (Kirsch-Mitzenmacher double hashing), so callers only hash each key once.
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+
+    private final long bits;
+
+    private final int hashes;
+
+    private final long capacity;
+
+    private final AtomicLong insertions = new AtomicLong();
+
+    private BloomFilter(long bits, int hashes, long capacity) {
+        this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+        this.bits = bits;
+        this.hashes = hashes;
+        this.capacity = capacity;
+    }
+
+    // Sized for the given number of keys at the given false positive probability
+    static BloomFilter create(long capacity, double falsePositiveProbability) {
+        long keys = Math.max(capacity, 1);
+        long bits = Math.max(64, (long) Math.ceil(-keys * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2))));
+        int hashes = Math.max(1, (int) Math.round((double) bits / keys * Math.log(2)));
+        return new BloomFilter(bits, hashes, keys);
+    }
+
+    void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean changed = false;
+        for (int i = 1; i <= this.hashes; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % this.bits;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = this.words.get(word);
+            while ((current & mask) == 0) {
+                if (this.words.compareAndSet(word, current, current | mask)) {
+                    changed = true;
+                    break;
+                }
+                current = this.words.get(word);
+            }
+        }
+        if (changed) {
+            this.insertions.incrementAndGet();
+        }
+    }
+
+    boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= this.hashes; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % this.bits;
+            if ((this.words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Keys added (duplicates of keys already present are not counted)
+    long insertions() {
+        return this.insertions.get();
+    }
+
+    long capacity() {
+        return this.capacity;
+    }
+
+    // False positive probability expected with the keys added so far
+    double expectedFalsePositiveProbability() {
+        return Math.pow(1 - Math.exp(-this.hashes * (double) this.insertions.get() / this.bits), this.hashes);
+    }
+
+    static long hash(long key) {
+        // SplitMix64 finalizer
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static long hash(String key) {
+        // FNV-1a, then mixed so that both halves are usable
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return hash(h);
+    }
+}
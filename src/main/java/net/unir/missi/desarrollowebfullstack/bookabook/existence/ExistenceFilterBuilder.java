@@ -0,0 +1,132 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.existence;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.AuthorRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ClientRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchIndexRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Builds the existence filters from the indices once the application is up and rebuilds each one when it is not
+// trusted anymore, when it holds more keys than it was sized for, and periodically, which drops the deleted keys.
+// Rebuilds for untrusted filters are spaced out, so that a stream of writes from other instances does not keep this
+// one scanning the indices.
+@Slf4j
+@Component
+public class ExistenceFilterBuilder implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final ExistenceFilters filters;
+
+    private final BookRepository bookRepository;
+
+    private final AuthorRepository authorRepository;
+
+    private final ClientRepository clientRepository;
+
+    private final ElasticsearchIndexRepository indexRepository;
+
+    private final boolean enabled;
+
+    private final Duration rebuildInterval;
+
+    private final Duration minRebuildInterval;
+
+    private final Duration checkInterval;
+
+    private final Map<String, Long> lastAttemptNanos = new HashMap<>();
+
+    private final ScheduledExecutorService executor;
+
+    public ExistenceFilterBuilder(ExistenceFilters filters, BookRepository bookRepository,
+                                  AuthorRepository authorRepository, ClientRepository clientRepository,
+                                  ElasticsearchIndexRepository indexRepository,
+                                  @Value("${bookabook.existence.enabled:true}") boolean enabled,
+                                  @Value("${bookabook.existence.rebuild-interval:1h}") Duration rebuildInterval,
+                                  @Value("${bookabook.existence.min-rebuild-interval:1m}") Duration minRebuildInterval,
+                                  @Value("${bookabook.existence.check-interval:10s}") Duration checkInterval) {
+        this.filters = filters;
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.clientRepository = clientRepository;
+        this.indexRepository = indexRepository;
+        this.enabled = enabled;
+        this.rebuildInterval = rebuildInterval;
+        this.minRebuildInterval = minRebuildInterval;
+        this.checkInterval = checkInterval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bookabook-existence-filters");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (this.enabled) {
+            this.executor.scheduleWithFixedDelay(this::check, 0, this.checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void check() {
+        for (String name : this.filters.names()) {
+            Long lastAttempt = this.lastAttemptNanos.get(name);
+            boolean due = lastAttempt == null || System.nanoTime() - lastAttempt > this.minRebuildInterval.toNanos();
+            if (due && this.filters.needsRebuild(name, this.rebuildInterval)) {
+                this.lastAttemptNanos.put(name, System.nanoTime());
+                this.build(name);
+            }
+        }
+    }
+
+    private void build(String name) {
+        long start = System.nanoTime();
+        ExistenceFilters.Build build = null;
+        try {
+            build = this.filters.begin(name, this.indexRepository.count(this.filters.indexOf(name)));
+            if (build == null) {
+                // A recent write may be missing from the scan, the next check tries again
+                this.lastAttemptNanos.remove(name);
+                return;
+            }
+            this.scan(name, build);
+            if (this.filters.finish(build)) {
+                log.info("Existence filter {} built with {} keys in {} ms", name, build.insertions(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } else {
+                log.info("Existence filter {} discarded, its index was written by another instance while building", name);
+            }
+        } catch (RuntimeException e) {
+            if (build != null) {
+                this.filters.abort(build);
+            }
+            log.warn("Existence filter {} could not be built: {}", name, e.toString());
+        }
+    }
+
+    private void scan(String name, ExistenceFilters.Build build) {
+        switch (name) {
+            case BookDocument.INDEX_NAME -> this.bookRepository.scanIdsAndIsbns(book -> build.add(book.getId()));
+            case ExistenceFilters.ISBN -> this.bookRepository.scanIdsAndIsbns(book -> build.addIsbn(book.getIsbn()));
+            case AuthorDocument.INDEX_NAME -> this.authorRepository.scanIds(build::add);
+            default -> this.clientRepository.scanIds(build::add);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
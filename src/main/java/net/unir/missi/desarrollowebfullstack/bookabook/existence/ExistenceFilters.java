@@ -0,0 +1,377 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.existence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.IndexGenerations;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Bloom filters of the ids of books, authors and clients and of the ISBNs of the books, so that lookups of keys that
+// do not exist are answered without calling Elasticsearch. Writes of this instance are added as they happen and the
+// filters are rebuilt from the indices in the background (ExistenceFilterBuilder), which also takes care of the
+// deletes a Bloom filter cannot forget. A filter is not trusted, and every key may exist, until it is first built and
+// whenever another instance has written to its index since it was built. Writes of this instance must be added after
+// the generation of the index is bumped, so that a build starting meanwhile waits for them to be searchable.
+//
+// Other instances only tell about their writes a moment later, so a miss is only trusted for keys that cannot be new:
+// ids are handed out in increasing order, and ids above the highest one a filter has seen always go to Elasticsearch.
+// ISBNs have no such order, so once another instance is known to write books, ISBN misses are never trusted.
+@Component
+public class ExistenceFilters {
+
+    public static final String ISBN = "isbn";
+
+    private final IndexGenerations generations;
+
+    private final double falsePositiveProbability;
+
+    private final double headroom;
+
+    private final Map<String, Filter> filters = new LinkedHashMap<>();
+
+    public ExistenceFilters(IndexGenerations generations, MeterRegistry registry,
+                            @Value("${bookabook.existence.false-positive-probability:0.01}") double falsePositiveProbability,
+                            @Value("${bookabook.existence.headroom:0.5}") double headroom) {
+        this.generations = generations;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.headroom = headroom;
+        for (String index : new String[]{BookDocument.INDEX_NAME, AuthorDocument.INDEX_NAME, ClientDocument.INDEX_NAME}) {
+            this.filters.put(index, new Filter(index, index, true, registry));
+        }
+        this.filters.put(ISBN, new Filter(ISBN, BookDocument.INDEX_NAME, false, registry));
+    }
+
+    // False only if no document of the index has the id
+    public boolean mightContain(String index, Long id) {
+        Filter filter = this.filters.get(index);
+        return filter == null || id == null || filter.mightContain(BloomFilter.hash(id), id);
+    }
+
+    // False only if no book has an ISBN the phrase search of this one matches. Only a whole ISBN-13 can tell, as the
+    // phrase of its key matches no other key: a shorter one also matches the ISBN-13 that contain it, such as
+    // 978-1-23-456789-0 for 1-23-456789-0.
+    public boolean mightMatchIsbn(String isbn) {
+        String key = isbnKey(isbn);
+        return key == null || key.length() != 13 || this.filters.get(ISBN).mightContain(BloomFilter.hash(key), null);
+    }
+
+    // The document read by the loader, or null without calling it when the filter knows the id does not exist
+    public <T> T get(String index, Long id, Supplier<T> loader) {
+        if (!this.mightContain(index, id)) {
+            return null;
+        }
+        T document = loader.get();
+        if (document == null) {
+            this.falsePositive(index);
+        }
+        return document;
+    }
+
+    // The documents read by the loader in the order of the ids, with null for the missing ones. Only the ids that may
+    // exist are passed to the loader, which is not called at all when there are none.
+    public <T> List<T> getAll(String index, List<Long> ids, Function<List<Long>, List<T>> loader) {
+        List<Long> candidates = ids.stream()
+                .filter(id -> this.mightContain(index, id))
+                .collect(Collectors.toList());
+        if (candidates.size() == ids.size()) {
+            List<T> documents = loader.apply(ids);
+            documents.stream().filter(Objects::isNull).forEach(missing -> this.falsePositive(index));
+            return documents;
+        }
+
+        Map<Long, T> found = new HashMap<>();
+        if (!candidates.isEmpty()) {
+            List<T> documents = loader.apply(candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                if (documents.get(i) != null) {
+                    found.put(candidates.get(i), documents.get(i));
+                } else {
+                    this.falsePositive(index);
+                }
+            }
+        }
+        List<T> documents = new ArrayList<>(ids.size());
+        ids.forEach(id -> documents.add(found.get(id)));
+        return documents;
+    }
+
+    public void add(String index, Long id) {
+        Filter filter = this.filters.get(index);
+        if (filter != null && id != null) {
+            filter.add(BloomFilter.hash(id), id);
+        }
+    }
+
+    // An ISBN that is not a bare complete one may match searches for other ISBNs, so the filter is not trusted
+    // anymore until it is rebuilt
+    public void addIsbn(String isbn) {
+        String key = isbnKey(isbn);
+        if (key != null) {
+            this.filters.get(ISBN).add(BloomFilter.hash(key), null);
+        } else if (StringUtils.hasText(isbn)) {
+            this.filters.get(ISBN).markIrregular();
+        }
+    }
+
+    // A key the filter let through did not exist after all
+    public void falsePositive(String filter) {
+        Filter existing = this.filters.get(filter);
+        if (existing != null && existing.isTrusted()) {
+            existing.falsePositives.increment();
+            existing.falsePositivesSinceBuild.incrementAndGet();
+        }
+    }
+
+    // Digits and check character of a complete ISBN-10 or ISBN-13, or null if it is not one
+    public static String isbnKey(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(13);
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = Character.toUpperCase(isbn.charAt(i));
+            if ((c >= '0' && c <= '9') || c == 'X') {
+                key.append(c);
+            } else if (c != '-' && c != ' ') {
+                return null;
+            }
+        }
+        return key.length() == 10 || key.length() == 13 ? key.toString() : null;
+    }
+
+    Set<String> names() {
+        return this.filters.keySet();
+    }
+
+    String indexOf(String filter) {
+        return this.filters.get(filter).index;
+    }
+
+    // Never built, out of date, fuller than it was sized for, or older than maxAge. Not when misses of its keys can
+    // never be trusted anymore.
+    boolean needsRebuild(String name, Duration maxAge) {
+        Filter filter = this.filters.get(name);
+        Build current = filter.current;
+        if (!filter.byId && this.generations.foreignWrites(filter.index) > 0) {
+            return false;
+        }
+        return current == null
+                || !filter.isTrusted()
+                || current.bloom.insertions() > current.bloom.capacity()
+                || System.nanoTime() - current.builtAtNanos > maxAge.toNanos();
+    }
+
+    // Starts building a new filter for the given number of keys, or returns null if the index had a recent write that
+    // searches may not show yet. Writes of this instance from now on are added to it too.
+    Build begin(String name, long expectedKeys) {
+        Filter filter = this.filters.get(name);
+        Build build = new Build(filter, BloomFilter.create(
+                (long) Math.ceil(Math.max(expectedKeys, 1) * (1 + this.headroom)), this.falsePositiveProbability),
+                this.generations.externalInvalidations(filter.index));
+        filter.building = build;
+        if (!this.generations.isSettled(filter.index)) {
+            filter.building = null;
+            return null;
+        }
+        return build;
+    }
+
+    // Replaces the filter with the one built, unless another instance wrote to the index meanwhile. The new filter is
+    // published before the build stops taking writes, so none falls in between.
+    boolean finish(Build build) {
+        Filter filter = build.filter;
+        boolean current = this.generations.externalInvalidations(filter.index) == build.external;
+        if (current) {
+            build.builtAtNanos = System.nanoTime();
+            filter.absentSinceBuild.set(0);
+            filter.falsePositivesSinceBuild.set(0);
+            filter.current = build;
+        }
+        filter.building = null;
+        return current;
+    }
+
+    void abort(Build build) {
+        build.filter.building = null;
+    }
+
+    static final class Build {
+
+        private final Filter filter;
+
+        private final BloomFilter bloom;
+
+        private final long external;
+
+        private volatile boolean irregular;
+
+        private volatile long builtAtNanos;
+
+        // Highest id added, for the filters of ids
+        private final AtomicLong highestId = new AtomicLong(Long.MIN_VALUE);
+
+        private Build(Filter filter, BloomFilter bloom, long external) {
+            this.filter = filter;
+            this.bloom = bloom;
+            this.external = external;
+        }
+
+        void add(Long id) {
+            this.add(BloomFilter.hash(id), id);
+        }
+
+        void addIsbn(String isbn) {
+            String key = isbnKey(isbn);
+            if (key != null) {
+                this.bloom.add(BloomFilter.hash(key));
+            } else if (StringUtils.hasText(isbn)) {
+                this.irregular = true;
+            }
+        }
+
+        long insertions() {
+            return this.bloom.insertions();
+        }
+
+        private void add(long hash, Long id) {
+            this.bloom.add(hash);
+            if (id != null) {
+                this.highestId.accumulateAndGet(id, Math::max);
+            }
+        }
+    }
+
+    private final class Filter {
+
+        private final String index;
+
+        private final boolean byId;
+
+        private volatile Build current;
+
+        private volatile Build building;
+
+        private final AtomicLong absentSinceBuild = new AtomicLong();
+
+        private final AtomicLong falsePositivesSinceBuild = new AtomicLong();
+
+        private final Counter absent;
+
+        private final Counter maybe;
+
+        private final Counter bypass;
+
+        private final Counter falsePositives;
+
+        private Filter(String name, String index, boolean byId, MeterRegistry registry) {
+            this.index = index;
+            this.byId = byId;
+            this.absent = this.checks(registry, name, "absent");
+            this.maybe = this.checks(registry, name, "maybe");
+            this.bypass = this.checks(registry, name, "bypass");
+            this.falsePositives = Counter.builder("bookabook.existence.false-positives")
+                    .description("Keys the existence filter let through that did not exist")
+                    .tag("filter", name)
+                    .register(registry);
+            Gauge.builder("bookabook.existence.false-positive.ratio", this, Filter::observedFalsePositiveRatio)
+                    .description("False positives over lookups of keys that do not exist, since the filter was built")
+                    .tag("filter", name)
+                    .register(registry);
+            Gauge.builder("bookabook.existence.expected-false-positive.ratio", this,
+                            filter -> filter.current != null ? filter.current.bloom.expectedFalsePositiveProbability() : 0)
+                    .description("False positive probability of the filter for the keys it holds")
+                    .tag("filter", name)
+                    .register(registry);
+            Gauge.builder("bookabook.existence.keys", this,
+                            filter -> filter.current != null ? filter.current.bloom.insertions() : 0)
+                    .description("Keys held by the existence filter")
+                    .tag("filter", name)
+                    .register(registry);
+            Gauge.builder("bookabook.existence.trusted", this, filter -> filter.isTrusted() ? 1 : 0)
+                    .description("1 while the existence filter answers lookups, 0 while every key is let through")
+                    .tag("filter", name)
+                    .register(registry);
+        }
+
+        private boolean isTrusted() {
+            return this.isTrusted(this.current);
+        }
+
+        private boolean isTrusted(Build current) {
+            return current != null && !current.irregular
+                    && generations.externalInvalidations(this.index) == current.external
+                    && (this.byId || generations.foreignWrites(this.index) == 0);
+        }
+
+        // id is the key itself for the filters of ids, null otherwise
+        private boolean mightContain(long hash, Long id) {
+            Build current = this.current;
+            if (!this.isTrusted(current) || (id != null && id > current.highestId.get())) {
+                this.bypass.increment();
+                return true;
+            }
+            if (current.bloom.mightContain(hash)) {
+                this.maybe.increment();
+                return true;
+            }
+            this.absent.increment();
+            this.absentSinceBuild.incrementAndGet();
+            return false;
+        }
+
+        // The build in progress is read first: if it is already gone, the filter it became is the current one
+        private void add(long hash, Long id) {
+            Build next = this.building;
+            if (next != null) {
+                next.add(hash, id);
+            }
+            Build current = this.current;
+            if (current != null) {
+                current.add(hash, id);
+            }
+        }
+
+        private void markIrregular() {
+            Build next = this.building;
+            if (next != null) {
+                next.irregular = true;
+            }
+            Build current = this.current;
+            if (current != null) {
+                current.irregular = true;
+            }
+        }
+
+        private double observedFalsePositiveRatio() {
+            long falsePositives = this.falsePositivesSinceBuild.get();
+            long negatives = falsePositives + this.absentSinceBuild.get();
+            return negatives > 0 ? (double) falsePositives / negatives : 0;
+        }
+
+        private Counter checks(MeterRegistry registry, String name, String outcome) {
+            return Counter.builder("bookabook.existence.checks")
+                    .description("Lookups checked against the existence filter")
+                    .tag("filter", name)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.identification;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ids of the clients by normalized email and by normalized phone number, in memory. Kept up to date by the writes of
+// this instance and filled in the background at startup (ContactIndexLoader). It only adds to the term lookups on the
+// keyword fields, which find what other instances wrote: what this instance wrote is found here before Elasticsearch
+// refreshes it, and callers check what they get from here.
+@Component
+public class ClientContactIndex {
+
+    private final ContactNormalizer normalizer;
+
+    private final Map<String, Set<Long>> byEmail = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Long>> byPhone = new ConcurrentHashMap<>();
+
+    private final Map<Long, Contact> contacts = new ConcurrentHashMap<>();
+
+    // Deleted while the startup scan was running, which may still return them
+    private final Set<Long> removedWhileLoading = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean loaded;
+
+    public ClientContactIndex(ContactNormalizer normalizer, MeterRegistry registry) {
+        this.normalizer = normalizer;
+        Gauge.builder("bookabook.clients.contact-index.size", this.contacts, Map::size)
+                .description("Clients in the in-memory index by email and phone number")
+                .register(registry);
+    }
+
+    // Null until the index is loaded
+    public Set<Long> byEmail(String emailKey) {
+        return this.loaded ? this.byEmail.getOrDefault(emailKey, Set.of()) : null;
+    }
+
+    // Null until the index is loaded
+    public Set<Long> byPhone(String phoneKey) {
+        return this.loaded ? this.byPhone.getOrDefault(phoneKey, Set.of()) : null;
+    }
+
+    public void put(ClientDocument client) {
+        Contact contact = this.contactOf(client);
+        this.contacts.compute(client.getId(), (id, previous) -> this.replace(id, previous, contact));
+    }
+
+    public void remove(Long id) {
+        if (!this.loaded) {
+            this.removedWhileLoading.add(id);
+        }
+        this.contacts.computeIfPresent(id, (i, previous) -> this.replace(i, previous, null));
+    }
+
+    // A client read by the startup scan, unless this instance wrote or deleted it since
+    void load(ClientDocument client) {
+        Contact contact = this.contactOf(client);
+        this.contacts.compute(client.getId(), (id, previous) ->
+                previous != null || this.removedWhileLoading.contains(id) ? previous : this.replace(id, null, contact));
+    }
+
+    void markLoaded() {
+        this.loaded = true;
+        this.removedWhileLoading.clear();
+    }
+
+    private Contact contactOf(ClientDocument client) {
+        return new Contact(this.normalizer.email(client.getEmail()), this.normalizer.phone(client.getPhoneNumber()));
+    }
+
+    private Contact replace(Long id, Contact previous, Contact next) {
+        if (previous != null) {
+            unlink(this.byEmail, previous.email(), id);
+            unlink(this.byPhone, previous.phone(), id);
+        }
+        if (next != null) {
+            link(this.byEmail, next.email(), id);
+            link(this.byPhone, next.phone(), id);
+        }
+        return next;
+    }
+
+    private static void link(Map<String, Set<Long>> index, String key, Long id) {
+        if (key != null) {
+            index.compute(key, (k, ids) -> {
+                Set<Long> linked = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                linked.add(id);
+                return linked;
+            });
+        }
+    }
+
+    private static void unlink(Map<String, Set<Long>> index, String key, Long id) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private record Contact(String email, String phone) {
+    }
+}
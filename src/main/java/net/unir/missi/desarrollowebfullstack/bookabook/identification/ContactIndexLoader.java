@@ -0,0 +1,103 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.identification;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ClientRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Fills the contact index with every client in the background once the application is up, so it does not delay
+// readiness. Clients saved before the normalized contact fields existed get them on the way, in bulks, so that the
+// term lookups find them too.
+@Slf4j
+@Component
+public class ContactIndexLoader implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final ClientRepository clientRepository;
+
+    private final ClientContactIndex contactIndex;
+
+    private final ContactNormalizer normalizer;
+
+    private final boolean enabled;
+
+    private final int backfillBulkSize;
+
+    private final Duration retryInterval;
+
+    private final ScheduledExecutorService executor;
+
+    public ContactIndexLoader(ClientRepository clientRepository, ClientContactIndex contactIndex,
+                              ContactNormalizer normalizer,
+                              @Value("${bookabook.clients.identification.index-enabled:true}") boolean enabled,
+                              @Value("${bookabook.clients.identification.backfill-bulk-size:1000}") int backfillBulkSize,
+                              @Value("${bookabook.clients.identification.retry-interval:30s}") Duration retryInterval) {
+        this.clientRepository = clientRepository;
+        this.contactIndex = contactIndex;
+        this.normalizer = normalizer;
+        this.enabled = enabled;
+        this.backfillBulkSize = backfillBulkSize;
+        this.retryInterval = retryInterval;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bookabook-contact-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (this.enabled) {
+            this.executor.execute(this::load);
+        }
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        int[] clients = {0};
+        List<ClientDocument> backfill = new ArrayList<>();
+        try {
+            this.clientRepository.scanContacts(client -> {
+                this.contactIndex.load(client);
+                clients[0]++;
+                if (this.needsKeys(client)) {
+                    backfill.add(client);
+                    if (backfill.size() >= this.backfillBulkSize) {
+                        this.clientRepository.bulkSetContactKeys(backfill);
+                        backfill.clear();
+                    }
+                }
+            });
+            if (!backfill.isEmpty()) {
+                this.clientRepository.bulkSetContactKeys(backfill);
+            }
+            this.contactIndex.markLoaded();
+            log.info("Contact index loaded with {} clients in {} ms", clients[0],
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            log.warn("The contact index could not be loaded, retrying in {}: {}", this.retryInterval, e.toString());
+            this.executor.schedule(this::load, this.retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean needsKeys(ClientDocument client) {
+        return !Objects.equals(client.getEmailKey(), this.normalizer.email(client.getEmail()))
+                || !Objects.equals(client.getPhoneKey(), this.normalizer.phone(client.getPhoneNumber()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
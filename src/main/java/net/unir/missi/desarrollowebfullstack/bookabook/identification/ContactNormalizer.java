@@ -0,0 +1,59 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.identification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Locale;
+
+// Canonical forms of the contact details of the clients: emails case-folded, phone numbers in E.164 (+ and up to 15
+// digits). Numbers written without an international prefix are taken as national numbers of default-country-code.
+@Component
+public class ContactNormalizer {
+
+    private static final int MAX_E164_DIGITS = 15;
+
+    private final String defaultCountryCode;
+
+    public ContactNormalizer(@Value("${bookabook.clients.identification.default-country-code:34}") String defaultCountryCode) {
+        this.defaultCountryCode = defaultCountryCode;
+    }
+
+    // Null if blank
+    public String email(String email) {
+        if (!StringUtils.hasText(email)) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Null if it has no digits or too many for a phone number
+    public String phone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(MAX_E164_DIGITS + 4);
+        boolean plus = false;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            } else if (c == '+' && digits.length() == 0) {
+                plus = true;
+            }
+        }
+        if (digits.length() == 0) {
+            return null;
+        }
+
+        String international;
+        if (plus) {
+            international = digits.toString();
+        } else if (digits.length() > 2 && digits.charAt(0) == '0' && digits.charAt(1) == '0') {
+            international = digits.substring(2);
+        } else {
+            international = this.defaultCountryCode + digits;
+        }
+        return international.length() <= MAX_E164_DIGITS ? "+" + international : null;
+    }
+}
@@ -11,8 +11,11 @@ import org.springframework.data.elasticsearch.annotations.FieldType;
 import java.time.LocalDate;
 import java.util.List;
 
-@Document(indexName = "author")
+@Document(indexName = AuthorDocument.INDEX_NAME, createIndex = false)
 public class AuthorDocument {
+
+    public static final String INDEX_NAME = "author";
+
     @Id
     @Field(
             type = FieldType.Long
@@ -52,6 +55,13 @@ public class AuthorDocument {
     @Field(type = FieldType.Nested)
     private List<BookDocument> booksWritten;
 
+    // Reads counted by the popularity tracker, which adds to it with scripted updates. Saves never write it, and keep
+    // the count stored (ElasticsearchIndexRepository.replaceKeepingPopularity).
+    @Field(
+            type = FieldType.Long
+    )
+    private Long popularity;
+
     public AuthorDocument(Long id, String firstName, String lastName, LocalDate birthDate, String nationality, String email, String webSite, String biography, List<BookDocument> booksWritten) {
         this.id = id;
         this.firstName = firstName;
@@ -159,6 +169,15 @@ public class AuthorDocument {
         this.booksWritten = booksWritten;
     }
 
+    @JsonIgnore
+    public Long getPopularity() {
+        return this.popularity;
+    }
+
+    public void setPopularity(Long popularity) {
+        this.popularity = popularity;
+    }
+
     public static class AuthorDocumentBuilder {
         private Long id;
         private String firstName;
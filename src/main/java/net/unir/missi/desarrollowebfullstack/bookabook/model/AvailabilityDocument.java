@@ -0,0 +1,24 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.model;
+
+import lombok.*;
+
+import java.util.List;
+
+// Copies of a book and how many of them are reserved, one document per book with the book id as its id. Only
+// changed with conditional writes, which is what keeps reserved from ever going over copies. The reservations holding
+// the reserved copies are listed, so that taking or giving back the copy of a reservation twice changes nothing.
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@ToString
+public class AvailabilityDocument {
+
+    public static final String INDEX_NAME = "availability";
+
+    private Long bookId;
+    private Integer copies;
+    private Integer reserved;
+    private List<String> holders;
+}
@@ -7,8 +7,11 @@ import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 
-@Document(indexName = "book")
+@Document(indexName = BookDocument.INDEX_NAME, createIndex = false)
 public class BookDocument {
+
+    public static final String INDEX_NAME = "book";
+
     @Id
     @Field(
             type = FieldType.Long
@@ -39,6 +42,19 @@ public class BookDocument {
     @Field(type = FieldType.Nested)
     private AuthorDocument authorDocument;
 
+    // Indexed reference to the author, so that the books of an author can be found with a term query
+    @Field(
+            type = FieldType.Long
+    )
+    private Long authorId;
+
+    // Reads counted by the popularity tracker, which adds to it with scripted updates. Saves never write it, and keep
+    // the count stored (ElasticsearchIndexRepository.replaceKeepingPopularity).
+    @Field(
+            type = FieldType.Long
+    )
+    private Long popularity;
+
     public BookDocument(Long id, String isbn, String name, String language, String description, String category, AuthorDocument authorDocument) {
         this.id = id;
         this.isbn = isbn;
@@ -47,6 +63,7 @@ public class BookDocument {
         this.description = description;
         this.category = category;
         this.authorDocument = authorDocument;
+        this.authorId = authorDocument != null ? authorDocument.getId() : null;
     }
 
     public BookDocument() {
@@ -66,6 +83,7 @@ public class BookDocument {
                 ", description='" + description + '\'' +
                 ", category='" + category + '\'' +
                 ", authorDocument=" + authorDocument +
+                ", authorId=" + authorId +
                 '}';
     }
 
@@ -97,6 +115,10 @@ public class BookDocument {
         return this.authorDocument;
     }
 
+    public Long getAuthorId() {
+        return this.authorId;
+    }
+
     public void setId(Long id) {
         this.id = id;
     }
@@ -126,6 +148,19 @@ public class BookDocument {
         this.authorDocument = authorDocument;
     }
 
+    public void setAuthorId(Long authorId) {
+        this.authorId = authorId;
+    }
+
+    @JsonIgnore
+    public Long getPopularity() {
+        return this.popularity;
+    }
+
+    public void setPopularity(Long popularity) {
+        this.popularity = popularity;
+    }
+
     public static class BookDocumentBuilder {
         private Long id;
         private String isbn;
@@ -1,5 +1,6 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
@@ -12,8 +13,11 @@ import org.springframework.data.elasticsearch.annotations.FieldType;
 @NoArgsConstructor
 @Builder
 @ToString
-@Document(indexName = "client")
+@Document(indexName = ClientDocument.INDEX_NAME, createIndex = false)
 public class ClientDocument {
+
+    public static final String INDEX_NAME = "client";
+
     @Id
     @Field(
             type = FieldType.Long
@@ -39,4 +43,16 @@ public class ClientDocument {
             type = FieldType.Text
     )
     private String email;
+
+    // Email and phone number as normalized on every save, for the exact lookups by contact
+    @JsonIgnore
+    @Field(
+            type = FieldType.Keyword
+    )
+    private String emailKey;
+    @JsonIgnore
+    @Field(
+            type = FieldType.Keyword
+    )
+    private String phoneKey;
 }
@@ -0,0 +1,36 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.model;
+
+import lombok.*;
+
+// A copy of a book held by a client. Stored through ElasticsearchReservationRepository, with conditional writes, so
+// that a reservation is only returned or expired once. It is written PENDING before its copy is taken and becomes
+// ACTIVE after, so that a copy taken by a request that died halfway is found and given back by the expiry (the copy
+// ledger lists the reservations holding a copy, so one that never took it gives nothing back); CANCELLED if the copy
+// could not be taken. Times are epoch milliseconds.
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder(toBuilder = true)
+@ToString
+public class ReservationDocument {
+
+    public static final String INDEX_NAME = "reservation";
+
+    public static final String PENDING = "PENDING";
+
+    public static final String ACTIVE = "ACTIVE";
+
+    public static final String CANCELLED = "CANCELLED";
+
+    public static final String RETURNED = "RETURNED";
+
+    public static final String EXPIRED = "EXPIRED";
+
+    private String id;
+    private Long bookId;
+    private Long clientId;
+    private String status;
+    private Long reservedAt;
+    private Long expiresAt;
+}
@@ -0,0 +1,48 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.popularity;
+
+// Approximate read count of every id in fixed memory: each id adds to one counter per row, and its estimate is the
+// smallest of them, which can only overcount. Only used from the flush thread.
+final class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final long[][] counters;
+
+    private final int mask;
+
+    // Width rounded up to a power of two
+    CountMinSketch(int width) {
+        int size = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.counters = new long[SEEDS.length][size];
+        this.mask = size - 1;
+    }
+
+    void add(long id, long count) {
+        for (int row = 0; row < SEEDS.length; row++) {
+            this.counters[row][this.index(row, id)] += count;
+        }
+    }
+
+    long estimate(long id) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, this.counters[row][this.index(row, id)]);
+        }
+        return estimate;
+    }
+
+    // Ages the counts, so that the estimates follow what is read now rather than since startup
+    void halve() {
+        for (long[] row : this.counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+    }
+
+    private int index(int row, long id) {
+        long hash = (id ^ (id >>> 33)) * SEEDS[row];
+        return (int) (hash ^ (hash >>> 29)) & this.mask;
+    }
+}
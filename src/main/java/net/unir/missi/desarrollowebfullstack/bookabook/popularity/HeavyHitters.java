@@ -0,0 +1,57 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.popularity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Space-saving top-k: at most capacity ids are tracked. An id that is not tracked takes the place of the one with
+// the lowest score only if the count-min sketch says it was read more, so that a burst of one-off reads does not
+// flush the real heavy hitters. Only used from the flush thread.
+final class HeavyHitters {
+
+    private final int capacity;
+
+    private final Map<Long, double[]> scores = new HashMap<>();
+
+    HeavyHitters(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void offer(long id, long reads, long estimate) {
+        double[] score = this.scores.get(id);
+        if (score != null) {
+            score[0] += reads;
+            return;
+        }
+        if (this.scores.size() < this.capacity) {
+            this.scores.put(id, new double[]{reads});
+            return;
+        }
+
+        Map.Entry<Long, double[]> lowest = null;
+        for (Map.Entry<Long, double[]> entry : this.scores.entrySet()) {
+            if (lowest == null || entry.getValue()[0] < lowest.getValue()[0]) {
+                lowest = entry;
+            }
+        }
+        if (estimate > lowest.getValue()[0]) {
+            this.scores.remove(lowest.getKey());
+            // Space-saving: the newcomer inherits the count of the evicted id, an upper bound of its own
+            this.scores.put(id, new double[]{lowest.getValue()[0] + reads});
+        }
+    }
+
+    void decay(double factor) {
+        this.scores.values().forEach(score -> score[0] *= factor);
+    }
+
+    List<PopularityTracker.Hit> ranking() {
+        List<PopularityTracker.Hit> ranking = new ArrayList<>(this.scores.size());
+        this.scores.forEach((id, score) -> ranking.add(new PopularityTracker.Hit(id, Math.round(score[0]))));
+        ranking.sort(Comparator.comparingLong(PopularityTracker.Hit::score).reversed()
+                .thenComparingLong(PopularityTracker.Hit::id));
+        return List.copyOf(ranking);
+    }
+}
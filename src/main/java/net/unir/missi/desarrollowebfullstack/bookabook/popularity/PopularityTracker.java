@@ -0,0 +1,207 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.popularity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchIndexRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts the reads of single books and authors. The read path only increments a LongAdder per id; every
+// flush-interval the counts are drained by a single thread, which feeds the count-min sketch and the top-k of each
+// index, publishes the new ranking and adds the counts to the popularity field of the documents with one bulk request.
+// Reads are only counted once the instance takes traffic, so the startup warm-up does not make anything popular.
+@Slf4j
+@Component
+public class PopularityTracker {
+
+    public record Hit(long id, long score) {
+    }
+
+    private final Map<String, Tracked> indices;
+
+    private final ElasticsearchIndexRepository indexRepository;
+
+    private final ApplicationAvailability availability;
+
+    private final ScheduledExecutorService flusher;
+
+    private final Counter flushFailures;
+
+    @Value("${bookabook.popularity.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookabook.popularity.flush-interval:10s}")
+    private Duration flushInterval;
+
+    @Value("${bookabook.popularity.half-life:10m}")
+    private Duration halfLife;
+
+    @Value("${bookabook.popularity.bulk-size:1000}")
+    private int bulkSize;
+
+    private long flushesSinceHalving;
+
+    public PopularityTracker(ElasticsearchIndexRepository indexRepository, ApplicationAvailability availability,
+                             MeterRegistry registry,
+                             @Value("${bookabook.popularity.top-k:100}") int topK,
+                             @Value("${bookabook.popularity.sketch-width:16384}") int sketchWidth) {
+        this.indexRepository = indexRepository;
+        this.availability = availability;
+        this.indices = Map.of(
+                BookDocument.INDEX_NAME, new Tracked(topK, sketchWidth),
+                AuthorDocument.INDEX_NAME, new Tracked(topK, sketchWidth));
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bookabook-popularity");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flushFailures = Counter.builder("bookabook.popularity.flush.failures")
+                .description("Popularity flushes that could not be written to Elasticsearch")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (this.enabled) {
+            this.flusher.scheduleWithFixedDelay(this::flush,
+                    this.flushInterval.toMillis(), this.flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void record(String index, Long id) {
+        Tracked tracked = this.indices.get(index);
+        if (!this.enabled || tracked == null || id == null
+                || this.availability.getReadinessState() != ReadinessState.ACCEPTING_TRAFFIC) {
+            return;
+        }
+        LongAdder reads = tracked.pending.get(id);
+        if (reads == null) {
+            LongAdder created = new LongAdder();
+            reads = tracked.pending.putIfAbsent(id, created);
+            if (reads == null) {
+                reads = created;
+            }
+        }
+        reads.increment();
+    }
+
+    // Most read documents of the index, recent reads weighing more, highest score first
+    public List<Hit> trending(String index, int limit) {
+        Tracked tracked = this.indices.get(index);
+        if (tracked == null) {
+            return List.of();
+        }
+        List<Hit> ranking = tracked.ranking;
+        return ranking.subList(0, Math.min(limit, ranking.size()));
+    }
+
+    private void flush() {
+        boolean halve = ++this.flushesSinceHalving * this.flushInterval.toMillis() >= this.halfLife.toMillis();
+        if (halve) {
+            this.flushesSinceHalving = 0;
+        }
+        double decay = Math.pow(0.5, (double) this.flushInterval.toMillis() / this.halfLife.toMillis());
+
+        this.indices.forEach((index, tracked) -> {
+            Map<Long, Long> deltas = tracked.drain();
+            tracked.hitters.decay(decay);
+            if (halve) {
+                tracked.sketch.halve();
+            }
+            deltas.forEach((id, reads) -> {
+                tracked.sketch.add(id, reads);
+                tracked.hitters.offer(id, reads, tracked.sketch.estimate(id));
+            });
+            tracked.ranking = tracked.hitters.ranking();
+
+            Map<Long, Long> batch = new HashMap<>();
+            for (Map.Entry<Long, Long> delta : deltas.entrySet()) {
+                batch.put(delta.getKey(), delta.getValue());
+                if (batch.size() == this.bulkSize) {
+                    this.write(index, tracked, batch);
+                    batch = new HashMap<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                this.write(index, tracked, batch);
+            }
+        });
+    }
+
+    private void write(String index, Tracked tracked, Map<Long, Long> deltas) {
+        List<Long> failed;
+        try {
+            failed = this.indexRepository.bulkAddPopularity(index, deltas);
+        } catch (RuntimeException e) {
+            // Nothing was applied: the whole batch is kept for the next flush
+            this.flushFailures.increment();
+            log.warn("Popularity of {} {} documents not flushed: {}", deltas.size(), index, e.getMessage());
+            deltas.forEach((id, reads) -> this.requeue(tracked, id, reads));
+            return;
+        }
+        if (!failed.isEmpty()) {
+            // Only the documents that failed: the others already counted their reads
+            this.flushFailures.increment();
+            log.warn("Popularity of {} of {} {} documents not flushed", failed.size(), deltas.size(), index);
+            failed.forEach(id -> this.requeue(tracked, id, deltas.get(id)));
+        }
+    }
+
+    private void requeue(Tracked tracked, Long id, long reads) {
+        tracked.pending.computeIfAbsent(id, i -> new LongAdder()).add(reads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.flusher.shutdownNow();
+    }
+
+    private static final class Tracked {
+
+        private final ConcurrentMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+        private final CountMinSketch sketch;
+
+        private final HeavyHitters hitters;
+
+        private volatile List<Hit> ranking = List.of();
+
+        private Tracked(int topK, int sketchWidth) {
+            this.sketch = new CountMinSketch(sketchWidth);
+            this.hitters = new HeavyHitters(topK);
+        }
+
+        // Ids not read during a whole interval are dropped, so the map only holds what is being read. A read that
+        // lands on an adder right after it was dropped is lost, which is fine for a popularity count.
+        private Map<Long, Long> drain() {
+            Map<Long, Long> deltas = new HashMap<>();
+            this.pending.forEach((id, reads) -> {
+                long count = reads.sumThenReset();
+                if (count > 0) {
+                    deltas.put(id, count);
+                } else {
+                    this.pending.remove(id, reads);
+                }
+            });
+            return deltas;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.query;
+
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Parsed value of the "fields" query parameter. A null field set means that every field is requested.
+public final class FieldSelection {
+
+    public static final String FILTER_ID = "fieldSelection";
+
+    public static final FieldSelection ALL = new FieldSelection(null);
+
+    private final Set<String> fields;
+
+    private FieldSelection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldSelection parse(String fields) {
+        if (!StringUtils.hasText(fields)) {
+            return ALL;
+        }
+
+        Set<String> selected = new LinkedHashSet<>();
+        // The id is always returned so that list views can link to the detail of each element
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            if (StringUtils.hasText(field)) {
+                selected.add(field.trim());
+            }
+        }
+        return new FieldSelection(Collections.unmodifiableSet(selected));
+    }
+
+    public boolean isAll() {
+        return this.fields == null;
+    }
+
+    public boolean includes(String field) {
+        return this.fields == null || this.fields.contains(field);
+    }
+
+    public Set<String> getFields() {
+        return this.fields;
+    }
+
+    public String[] toArray() {
+        return this.fields == null ? new String[0] : this.fields.toArray(new String[0]);
+    }
+
+    public FilterProvider toFilterProvider() {
+        return new SimpleFilterProvider().addFilter(FILTER_ID, SimpleBeanPropertyFilter.filterOutAllExcept(this.fields));
+    }
+
+    public MappingJacksonValue wrap(Object body) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        if (!this.isAll()) {
+            value.setFilters(this.toFilterProvider());
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return this.fields == null ? "*" : String.join(",", this.fields);
+    }
+}
@@ -0,0 +1,181 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.query;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+import org.springframework.data.elasticsearch.core.query.StringQuery;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Builds the Elasticsearch query DSL for the list filters. Blank or null values are ignored, so an empty filter
+// matches every document of the index.
+public class FilterQuery {
+
+    // Largest result window of an index unless raised in its settings
+    public static final int MAX_RESULT_WINDOW = 10_000;
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private final ArrayNode filters = NODES.arrayNode();
+
+    // Relevance order (index order for filters only) unless set
+    private String descendingField;
+
+    // Every match, up to the result window, unless set
+    private PageRequest page;
+
+    public FilterQuery phrase(String field, String value) {
+        if (StringUtils.hasText(value)) {
+            ObjectNode clause = NODES.objectNode();
+            clause.putObject("match_phrase").put(field, value);
+            this.filters.add(clause);
+        }
+        return this;
+    }
+
+    public FilterQuery term(String field, Object value) {
+        if (value != null) {
+            ObjectNode clause = NODES.objectNode();
+            clause.putObject("term").put(field, value.toString());
+            this.filters.add(clause);
+        }
+        return this;
+    }
+
+    public FilterQuery terms(String field, Collection<?> values) {
+        if (values != null && !values.isEmpty()) {
+            ObjectNode clause = NODES.objectNode();
+            ArrayNode terms = clause.putObject("terms").putArray(field);
+            values.forEach(value -> terms.add(value.toString()));
+            this.filters.add(clause);
+        }
+        return this;
+    }
+
+    // Highest values first, ties and documents without the field ordered by id
+    public FilterQuery sortDescending(String field) {
+        this.descendingField = field;
+        return this;
+    }
+
+    // Page number (from 0) of the given size, in id order unless another order is set
+    public FilterQuery page(int page, int size) {
+        this.page = PageRequest.of(page, size);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return this.filters.isEmpty();
+    }
+
+    public int size() {
+        return this.filters.size();
+    }
+
+    public ObjectNode toNode() {
+        ObjectNode query = NODES.objectNode();
+        if (this.filters.isEmpty()) {
+            query.putObject("match_all");
+        } else {
+            query.putObject("bool").set("filter", this.filters.deepCopy());
+        }
+        return query;
+    }
+
+    public String toJson() {
+        return this.toNode().toString();
+    }
+
+    // Search body as sent by toQuery, for the slow query log
+    public String toRequestJson(FieldSelection fields) {
+        ObjectNode request = NODES.objectNode();
+        request.set("query", this.toNode());
+        if (!fields.isAll()) {
+            request.set("_source", sourceNode(fields));
+        }
+        if (this.descendingField != null) {
+            ArrayNode sort = request.putArray("sort");
+            sort.addObject().putObject(this.descendingField).put("order", "desc");
+            sort.addObject().putObject("id").put("order", "asc");
+        } else if (this.page != null) {
+            request.putArray("sort").addObject().putObject("id").put("order", "asc");
+        }
+        PageRequest page = this.pageOrWindow();
+        request.put("from", page.getOffset());
+        request.put("size", page.getPageSize());
+        return request.toString();
+    }
+
+    public Query toQuery(FieldSelection fields) {
+        StringQuery query = new StringQuery(this.toJson());
+        if (!fields.isAll()) {
+            query.addSourceFilter(sourceFilter(fields));
+        }
+        if (this.descendingField != null) {
+            query.addSort(Sort.by(Sort.Order.desc(this.descendingField), Sort.Order.asc("id")));
+        } else if (this.page != null) {
+            query.addSort(Sort.by(Sort.Order.asc("id")));
+        }
+        // Without a pageable Spring Data Elasticsearch only returns the first 10 hits
+        query.setPageable(this.pageOrWindow());
+        return query;
+    }
+
+    private PageRequest pageOrWindow() {
+        return this.page != null ? this.page : PageRequest.of(0, MAX_RESULT_WINDOW);
+    }
+
+    // Multi-get query for a single id that only fetches the selected fields of the _source
+    public static Query byId(Long id, FieldSelection fields) {
+        return NativeQuery.builder()
+                .withIds(List.of(id.toString()))
+                .withSourceFilter(sourceFilter(fields))
+                .build();
+    }
+
+    // Multi-get query for whole documents, answered in the order of the ids
+    public static Query byIds(List<Long> ids) {
+        return NativeQuery.builder()
+                .withIds(ids.stream().map(String::valueOf).collect(Collectors.toList()))
+                .build();
+    }
+
+    // Multi-get body as sent by byId, for the slow query log
+    public static String byIdRequestJson(Long id, FieldSelection fields) {
+        return byIdsRequestJson(List.of(id), fields);
+    }
+
+    // Multi-get body as sent by byIds, for the slow query log
+    public static String byIdsRequestJson(List<Long> ids, FieldSelection fields) {
+        ObjectNode request = NODES.objectNode();
+        ArrayNode idsNode = request.putArray("ids");
+        for (Long id : ids) {
+            idsNode.add(id.toString());
+        }
+        if (!fields.isAll()) {
+            request.set("_source", sourceNode(fields));
+        }
+        return request.toString();
+    }
+
+    private static ArrayNode sourceNode(FieldSelection fields) {
+        ArrayNode includes = NODES.arrayNode();
+        for (String field : fields.toArray()) {
+            includes.add(field);
+        }
+        return includes;
+    }
+
+    public static SourceFilter sourceFilter(FieldSelection fields) {
+        return new FetchSourceFilterBuilder().withIncludes(fields.toArray()).build();
+    }
+}
@@ -1,13 +1,26 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.repository;
 
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.DeleteTaskWatcher;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.IndexGenerations;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.RequestTrace;
+import net.unir.missi.desarrollowebfullstack.bookabook.existence.ExistenceFilters;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FilterQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -18,17 +31,79 @@ public class AuthorRepository {
 
     private final AuthorElasticRepository repository;
 
-    public AuthorRepository(AuthorElasticRepository repository) {
+    private final ElasticsearchOperations operations;
+
+    private final ElasticsearchTaskRepository taskRepository;
+
+    private final IndexGenerations generations;
+
+    private final DeleteTaskWatcher deleteTasks;
+
+    private final ElasticsearchIndexRepository indexRepository;
+
+    private final BatchedLookups lookups;
+
+    private final ExistenceFilters existence;
+
+    public AuthorRepository(AuthorElasticRepository repository, ElasticsearchOperations operations,
+                            ElasticsearchTaskRepository taskRepository, IndexGenerations generations,
+                            DeleteTaskWatcher deleteTasks, ElasticsearchIndexRepository indexRepository,
+                            BatchedLookups lookups, ExistenceFilters existence) {
         this.repository = repository;
+        this.operations = operations;
+        this.taskRepository = taskRepository;
+        this.generations = generations;
+        this.deleteTasks = deleteTasks;
+        this.indexRepository = indexRepository;
+        this.lookups = lookups;
+        this.existence = existence;
     }
 
     public List<AuthorDocument> findAll() {
         List<AuthorDocument> ret = new LinkedList<>();
         repository.findAll().forEach(ret::add);
+        RequestTrace.query(AuthorDocument.INDEX_NAME, new FilterQuery().toRequestJson(FieldSelection.ALL), ret.size());
         return ret;
     }
+
+    public List<AuthorDocument> findAll(FieldSelection fields) {
+        if (fields.isAll()) {
+            return this.findAll();
+        }
+        return this.search(new FilterQuery(), fields);
+    }
+
     public AuthorDocument getById(Long id) {
-        return repository.findById(id).orElse(null);
+        return existence.get(AuthorDocument.INDEX_NAME, id, () -> {
+            AuthorDocument document = lookups.get(AuthorDocument.INDEX_NAME, AuthorDocument.class, id);
+            RequestTrace.query(AuthorDocument.INDEX_NAME, FilterQuery.byIdRequestJson(id, FieldSelection.ALL), document != null ? 1 : 0);
+            return document;
+        });
+    }
+
+    public AuthorDocument getById(Long id, FieldSelection fields) {
+        if (fields.isAll()) {
+            return this.getById(id);
+        }
+
+        return existence.get(AuthorDocument.INDEX_NAME, id, () -> {
+            List<MultiGetItem<AuthorDocument>> items = operations.multiGet(FilterQuery.byId(id, fields), AuthorDocument.class);
+            AuthorDocument document = items.isEmpty() || !items.get(0).hasItem() ? null : items.get(0).getItem();
+            RequestTrace.query(AuthorDocument.INDEX_NAME, FilterQuery.byIdRequestJson(id, fields), document != null ? 1 : 0);
+            return document;
+        });
+    }
+
+    // Whole documents in the order of the ids, with null for the missing ones, fetched with one multi-get
+    public List<AuthorDocument> getByIds(List<Long> ids) {
+        return existence.getAll(AuthorDocument.INDEX_NAME, ids, candidates -> {
+            List<AuthorDocument> documents = operations.multiGet(FilterQuery.byIds(candidates), AuthorDocument.class).stream()
+                    .map((MultiGetItem<AuthorDocument> item) -> item.hasItem() ? item.getItem() : null)
+                    .collect(Collectors.toList());
+            RequestTrace.query(AuthorDocument.INDEX_NAME, FilterQuery.byIdsRequestJson(candidates, FieldSelection.ALL),
+                    documents.stream().filter(Objects::nonNull).count());
+            return documents;
+        });
     }
 
     public AuthorDocument save(AuthorDocument authorDocument) {
@@ -41,7 +116,12 @@ public class AuthorRepository {
                 authorDocument.setId(numAuthors);
                 numAuthors++;
             }
-            a = repository.save(authorDocument);
+            indexRepository.replaceKeepingPopularity(AuthorDocument.INDEX_NAME, authorDocument.getId(),
+                    operations.getElasticsearchConverter().mapObject(authorDocument));
+            a = authorDocument;
+            lookups.forget(AuthorDocument.INDEX_NAME, a.getId());
+            generations.bump(AuthorDocument.INDEX_NAME);
+            existence.add(AuthorDocument.INDEX_NAME, a.getId());
 
         }
         catch (Exception e)
@@ -55,49 +135,77 @@ public class AuthorRepository {
         return a;
     }
 
+    // Id of every author, read with a scroll
+    public void scanIds(Consumer<Long> consumer) {
+        try (SearchHitsIterator<AuthorDocument> hits = operations.searchForStream(
+                new FilterQuery().toQuery(FieldSelection.parse("id")), AuthorDocument.class)) {
+            hits.forEachRemaining(hit -> consumer.accept(hit.getContent().getId()));
+        }
+    }
+
     public void delete(AuthorDocument authorDocument) {
         repository.delete(authorDocument);
+        lookups.forget(AuthorDocument.INDEX_NAME, authorDocument.getId());
+        generations.bump(AuthorDocument.INDEX_NAME);
     }
 
     public List<AuthorDocument> search(String firstName, String lastName, LocalDate birthDate, String nationality,
                                        String email, String webSite, String biography, BookDocument booksWritten) {
+        return this.search(firstName, lastName, birthDate, nationality, email, webSite, biography, booksWritten, FieldSelection.ALL);
+    }
 
-        List<AuthorDocument> listAuthorDocument = new LinkedList<>();
-        repository.findAll().forEach(listAuthorDocument::add);
-
-        return listAuthorDocument.stream()
-                .filter((AuthorDocument doc) ->
-                {
-                    if (!doc.getFirstName().equals(firstName)) {
-                        return false;
-                    }
-                    if (!doc.getLastName().equals(lastName)) {
-                        return false;
-                    }
-                    if (!doc.getBirthDate().equals(birthDate)) {
-                        return false;
-                    }
-                    if (!doc.getNationality().equals(nationality)) {
-                        return false;
-                    }
-                    if (! doc.getEmail().equals(email))
-                    {
-                        return false;
-                    }
-                    if (! doc.getWebSite().equals(webSite))
-                    {
-                        return false;
-                    }
-                    if (! doc.getBiography().equals(biography))
-                    {
-                        return false;
-                    }
-                    return true;
-                    // TODO filter by booksWritten
-                })
-                .collect(Collectors.toList());
+    public List<AuthorDocument> search(String firstName, String lastName, LocalDate birthDate, String nationality,
+                                       String email, String webSite, String biography, BookDocument booksWritten,
+                                       FieldSelection fields) {
+
+        if (booksWritten != null && booksWritten.getAuthorId() == null) {
+            // A book without author
+            return new LinkedList<>();
+        }
+        // The author of a book is the one its indexed authorId refers to, so the filter is a term on the id
+        FilterQuery filter = this.filter(firstName, lastName, birthDate, nationality, email, webSite, biography)
+                .term("id", booksWritten != null ? booksWritten.getAuthorId() : null);
+        return this.search(filter, fields);
     }
 
+    // Starts an asynchronous delete by query with the same filters as search. Returns null if there is no filter.
+    public String deleteByQuery(String firstName, String lastName, LocalDate birthDate, String nationality,
+                                String email, String webSite, String biography) {
 
+        FilterQuery filter = this.filter(firstName, lastName, birthDate, nationality, email, webSite, biography);
+        if (filter.isEmpty()) {
+            return null;
+        }
+        String taskId = taskRepository.deleteByQuery(AuthorDocument.INDEX_NAME, filter);
+        deleteTasks.watch(AuthorDocument.INDEX_NAME, taskId);
+        return taskId;
+    }
+
+    private FilterQuery filter(String firstName, String lastName, LocalDate birthDate, String nationality,
+                               String email, String webSite, String biography) {
+        return new FilterQuery()
+                .phrase("firstName", firstName)
+                .phrase("lastName", lastName)
+                .term("birthDate", birthDate)
+                .phrase("nationality", nationality)
+                .phrase("email", email)
+                .phrase("webSite", webSite)
+                .phrase("biography", biography);
+    }
+
+    private List<AuthorDocument> search(FilterQuery filter, FieldSelection fields) {
+        SearchHits<AuthorDocument> hits = operations.search(filter.toQuery(fields), AuthorDocument.class);
+        RequestTrace.query(AuthorDocument.INDEX_NAME, filter.toRequestJson(fields), hits.getTotalHits());
+        return hits.getSearchHits()
+                .stream()
+                .map(SearchHit::getContent)
+                .collect(Collectors.toList());
+    }
 
+    // Ids up to the given one are taken by documents already in the index, new ones are numbered after them
+    public void reserveIdsUpTo(long lastId) {
+        if (numAuthors <= lastId) {
+            numAuthors = lastId + 1;
+        }
+    }
 }
@@ -0,0 +1,188 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// Lookup by id of the documents of one index. Callers asking for an id that is already being fetched wait for the
+// same future (single flight), and the ids asked for within the batching window are fetched with one multi-get. Each
+// caller gets its own copy of the document, since callers modify what they get before saving it.
+class BatchedLookup<T> {
+
+    private final Function<List<Long>, List<T>> multiGet;
+
+    private final UnaryOperator<T> copy;
+
+    private final Duration timeout;
+
+    private final ScheduledExecutorService executor;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final Map<Long, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    private final Queue<Pending<T>> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final Counter requests;
+
+    private final Counter coalesced;
+
+    private final Counter batches;
+
+    private final DistributionSummary batchSize;
+
+    // multiGet returns the documents in the order of the ids, with null for the missing ones
+    BatchedLookup(String index, Function<List<Long>, List<T>> multiGet, UnaryOperator<T> copy,
+                  ScheduledExecutorService executor, Duration window, int maxBatchSize, Duration timeout,
+                  MeterRegistry registry) {
+        this.multiGet = multiGet;
+        this.copy = copy;
+        this.timeout = timeout;
+        this.executor = executor;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+
+        this.requests = Counter.builder("bookabook.lookup.requests")
+                .description("Lookups by id")
+                .tag("index", index)
+                .register(registry);
+        this.coalesced = Counter.builder("bookabook.lookup.coalesced")
+                .description("Lookups by id answered by a fetch already in flight for the same id")
+                .tag("index", index)
+                .register(registry);
+        this.batches = Counter.builder("bookabook.lookup.batches")
+                .description("Multi-get requests sent to Elasticsearch")
+                .tag("index", index)
+                .register(registry);
+        this.batchSize = DistributionSummary.builder("bookabook.lookup.batch.size")
+                .description("Ids fetched by each multi-get")
+                .tag("index", index)
+                .register(registry);
+        Gauge.builder("bookabook.lookup.coalescing.ratio", this,
+                        lookup -> lookup.requests.count() / Math.max(1d, lookup.batches.count()))
+                .description("Lookups by id per request sent to Elasticsearch")
+                .tag("index", index)
+                .register(registry);
+    }
+
+    T get(Long id) {
+        this.requests.increment();
+        CompletableFuture<T> created = new CompletableFuture<>();
+        CompletableFuture<T> future = this.inFlight.putIfAbsent(id, created);
+        if (future != null) {
+            this.coalesced.increment();
+        } else {
+            future = created;
+            created.orTimeout(this.timeout.toNanos(), TimeUnit.NANOSECONDS)
+                    .whenComplete((document, e) -> this.inFlight.remove(id, created));
+            this.enqueue(new Pending<>(id, created));
+        }
+
+        T document;
+        try {
+            document = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new RuntimeException("The lookup of id " + id + " timed out after " + this.timeout, e.getCause());
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return document != null ? this.copy.apply(document) : null;
+    }
+
+    // After a write the id has to be fetched again: a fetch already in flight may have read the previous version.
+    // Whoever is waiting on it still gets its result.
+    void forget(Long id) {
+        this.inFlight.remove(id);
+    }
+
+    private void enqueue(Pending<T> lookup) {
+        this.pending.add(lookup);
+        if (this.windowNanos <= 0) {
+            this.pendingCount.incrementAndGet();
+            this.flush();
+            return;
+        }
+        try {
+            if (this.pendingCount.incrementAndGet() >= this.maxBatchSize) {
+                this.executor.execute(this::flush);
+            } else if (this.flushScheduled.compareAndSet(false, true)) {
+                this.executor.schedule(this::flush, this.windowNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // Shutting down: nobody else is going to send the batch
+            this.flush();
+        }
+    }
+
+    private void flush() {
+        this.flushScheduled.set(false);
+        List<Pending<T>> batch;
+        while (!(batch = this.drain()).isEmpty()) {
+            this.fetch(batch);
+        }
+    }
+
+    private List<Pending<T>> drain() {
+        List<Pending<T>> batch = new ArrayList<>(Math.min(this.maxBatchSize, Math.max(1, this.pendingCount.get())));
+        Pending<T> lookup;
+        while (batch.size() < this.maxBatchSize && (lookup = this.pending.poll()) != null) {
+            this.pendingCount.decrementAndGet();
+            batch.add(lookup);
+        }
+        return batch;
+    }
+
+    private void fetch(List<Pending<T>> batch) {
+        this.batches.increment();
+        this.batchSize.record(batch.size());
+
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (Pending<T> lookup : batch) {
+            ids.add(lookup.id());
+        }
+
+        // Every waiter is released whatever goes wrong, those already completed are left as they are
+        try {
+            List<T> documents = this.multiGet.apply(ids);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(documents.get(i));
+            }
+        } catch (Throwable e) {
+            for (Pending<T> lookup : batch) {
+                lookup.future().completeExceptionally(e);
+            }
+            if (e instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private record Pending<T>(Long id, CompletableFuture<T> future) {
+    }
+}
@@ -0,0 +1,95 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Coalesced and micro-batched lookups by id, one BatchedLookup per index
+@Component
+public class BatchedLookups {
+
+    private final ElasticsearchOperations operations;
+
+    private final MeterRegistry registry;
+
+    private final Duration window;
+
+    private final int maxBatchSize;
+
+    private final Duration timeout;
+
+    private final ScheduledExecutorService executor;
+
+    private final Map<String, BatchedLookup<?>> lookups = new ConcurrentHashMap<>();
+
+    public BatchedLookups(ElasticsearchOperations operations, MeterRegistry registry,
+                          @Value("${bookabook.lookup.window:1ms}") Duration window,
+                          @Value("${bookabook.lookup.max-batch-size:64}") int maxBatchSize,
+                          @Value("${bookabook.lookup.threads:4}") int threads,
+                          @Value("${bookabook.lookup.timeout:5s}") Duration timeout) {
+        this.operations = operations;
+        this.registry = registry;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.timeout = timeout;
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bookabook-lookup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The whole document with the given id, or null if it does not exist
+    @SuppressWarnings("unchecked")
+    public <T> T get(String index, Class<T> type, Long id) {
+        Assert.notNull(id, "The given id must not be null");
+        BatchedLookup<T> lookup = (BatchedLookup<T>) this.lookups.computeIfAbsent(index, i ->
+                new BatchedLookup<>(i, ids -> this.multiGet(type, ids), document -> this.copy(type, document),
+                        this.executor, this.window, this.maxBatchSize, this.timeout, this.registry));
+        return lookup.get(id);
+    }
+
+    public void forget(String index, Long id) {
+        BatchedLookup<?> lookup = this.lookups.get(index);
+        if (lookup != null && id != null) {
+            lookup.forget(id);
+        }
+    }
+
+    private <T> List<T> multiGet(Class<T> type, List<Long> ids) {
+        NativeQuery query = NativeQuery.builder()
+                .withIds(ids.stream().map(String::valueOf).collect(Collectors.toList()))
+                .build();
+        return this.operations.multiGet(query, type).stream()
+                .map((MultiGetItem<T> item) -> item.hasItem() ? item.getItem() : null)
+                .collect(Collectors.toList());
+    }
+
+    // Deep copy through the same mapping used to read and write the index
+    private <T> T copy(Class<T> type, T document) {
+        ElasticsearchConverter converter = this.operations.getElasticsearchConverter();
+        return converter.read(type, converter.mapObject(document));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+}
@@ -1,14 +1,27 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.repository;
 
 import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.DeleteTaskWatcher;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.IndexGenerations;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.RequestTrace;
+import net.unir.missi.desarrollowebfullstack.bookabook.existence.ExistenceFilters;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FilterQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
 import org.springframework.stereotype.Component;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.function.Supplier;
-import java.util.logging.Logger;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
@@ -16,20 +29,69 @@ import java.util.stream.Collectors;
 public class BookRepository {
 
     private static Long numBooks = 3L;
+
+    public static final int MAX_RESULT_WINDOW = FilterQuery.MAX_RESULT_WINDOW;
+
+    private static final FieldSelection ID_ONLY = FieldSelection.parse("id");
+
+    private static final String AUTHOR_ID_BACKFILL =
+            "def author = ctx._source.authorDocument; "
+                    + "if (author instanceof Map && author.id != null) { ctx._source.authorId = author.id } "
+                    + "else if (ctx._source.author_id != null) { ctx._source.authorId = ctx._source.author_id } "
+                    + "else { ctx.op = 'noop' }";
+
     private final BookElasticRepository repository;
+    private final ElasticsearchOperations operations;
+    private final ElasticsearchTaskRepository taskRepository;
+    private final IndexGenerations generations;
+    private final DeleteTaskWatcher deleteTasks;
+    private final ElasticsearchIndexRepository indexRepository;
+    private final BatchedLookups lookups;
+    private final ExistenceFilters existence;
 
     public List<BookDocument> getBooks() {
-        List<BookDocument> ret = new LinkedList<>();
-        repository.findAll().forEach(ret::add);
+        return this.getBooks(FieldSelection.ALL);
+    }
+
+    public List<BookDocument> getBooks(FieldSelection fields) {
+        return this.getBooks(fields, false);
+    }
 
-        Logger.getGlobal().warning("list content:" + ret.toString());
-        Logger.getGlobal().warning("ffins all repo" + repository.findAll().toString());
-        //Logger.getGlobal().warning((Supplier<String>) repository.findAll());
-        return ret;
+    public List<BookDocument> getBooks(FieldSelection fields, boolean byPopularity) {
+        return this.search(this.sort(new FilterQuery(), byPopularity), fields);
     }
 
     public BookDocument getById(Long id) {
-        return repository.findById(id).orElse(null);
+        return existence.get(BookDocument.INDEX_NAME, id, () -> {
+            BookDocument document = lookups.get(BookDocument.INDEX_NAME, BookDocument.class, id);
+            RequestTrace.query(BookDocument.INDEX_NAME, FilterQuery.byIdRequestJson(id, FieldSelection.ALL), document != null ? 1 : 0);
+            return document;
+        });
+    }
+
+    public BookDocument getById(Long id, FieldSelection fields) {
+        if (fields.isAll()) {
+            return this.getById(id);
+        }
+
+        return existence.get(BookDocument.INDEX_NAME, id, () -> {
+            List<MultiGetItem<BookDocument>> items = operations.multiGet(FilterQuery.byId(id, fields), BookDocument.class);
+            BookDocument document = items.isEmpty() || !items.get(0).hasItem() ? null : items.get(0).getItem();
+            RequestTrace.query(BookDocument.INDEX_NAME, FilterQuery.byIdRequestJson(id, fields), document != null ? 1 : 0);
+            return document;
+        });
+    }
+
+    // Whole documents in the order of the ids, with null for the missing ones, fetched with one multi-get
+    public List<BookDocument> getByIds(List<Long> ids) {
+        return existence.getAll(BookDocument.INDEX_NAME, ids, candidates -> {
+            List<BookDocument> documents = operations.multiGet(FilterQuery.byIds(candidates), BookDocument.class).stream()
+                    .map((MultiGetItem<BookDocument> item) -> item.hasItem() ? item.getItem() : null)
+                    .collect(Collectors.toList());
+            RequestTrace.query(BookDocument.INDEX_NAME, FilterQuery.byIdsRequestJson(candidates, FieldSelection.ALL),
+                    documents.stream().filter(Objects::nonNull).count());
+            return documents;
+        });
     }
 
     public BookDocument save(BookDocument book) {
@@ -38,42 +100,159 @@ public class BookRepository {
             book.setId(numBooks);
             numBooks++;
         }
-        BookDocument r = repository.save(book);
-        return r;
+        if (book.getAuthorDocument() != null)
+        {
+            book.setAuthorId(book.getAuthorDocument().getId());
+        }
+        indexRepository.replaceKeepingPopularity(BookDocument.INDEX_NAME, book.getId(),
+                operations.getElasticsearchConverter().mapObject(book));
+        lookups.forget(BookDocument.INDEX_NAME, book.getId());
+        generations.bump(BookDocument.INDEX_NAME);
+        existence.add(BookDocument.INDEX_NAME, book.getId());
+        existence.addIsbn(book.getIsbn());
+        return book;
     }
 
     public void delete(BookDocument book) {
         repository.delete(book);
+        lookups.forget(BookDocument.INDEX_NAME, book.getId());
+        generations.bump(BookDocument.INDEX_NAME);
     }
 
     public List<BookDocument> search(String isbn, String name, String language,
                                      String description, String category, AuthorDocument authorDocument) {
+        return this.search(isbn, name, language, description, category, authorDocument, FieldSelection.ALL);
+    }
+
+    public List<BookDocument> search(String isbn, String name, String language, String description,
+                                     String category, AuthorDocument authorDocument, FieldSelection fields) {
+        return this.search(isbn, name, language, description, category, authorDocument, fields, false);
+    }
+
+    public List<BookDocument> search(String isbn, String name, String language, String description,
+                                     String category, AuthorDocument authorDocument, FieldSelection fields,
+                                     boolean byPopularity) {
+
+        // An ISBN-13 no book has cannot match, whatever the other filters
+        boolean filtered = isbn13(isbn);
+        if (filtered && !existence.mightMatchIsbn(isbn)) {
+            return new ArrayList<>();
+        }
+
+        Long authorId = authorDocument != null ? authorDocument.getId() : null;
+        FilterQuery filter = this.filter(isbn, name, language, description, category, authorId);
+        List<BookDocument> books = this.search(this.sort(filter, byPopularity), fields);
+        if (books.isEmpty() && filtered && filter.size() == 1) {
+            existence.falsePositive(ExistenceFilters.ISBN);
+        }
+        return books;
+    }
+
+    // One page of the books of an author in id order, with a single term query on the authorId of the books
+    public List<BookDocument> getBooksByAuthor(Long authorId, int page, int size, FieldSelection fields) {
+        return this.search(new FilterQuery().term("authorId", authorId).page(page, size), fields);
+    }
 
-        List<BookDocument> listBookDocument = new LinkedList<>();
-        repository.findAll().forEach(listBookDocument::add);
-
-        return listBookDocument.stream()
-                .filter((BookDocument doc) ->
-                {
-                    if (!doc.getIsbn().equals(isbn)) {
-                        return false;
-                    }
-                    if (!doc.getName().equals(name)) {
-                        return false;
-                    }
-                    if (!doc.getLanguage().equals(language)) {
-                        return false;
-                    }
-                    if (!doc.getDescription().equals(description)) {
-                        return false;
-                    }
-                    if (!doc.getCategory().equals(category)) {
-                        return false;
-                    }
-                    // TODO filter by authorDocument
-                    return true;
-                })
+    // Ids of the books of an author, up to the result window
+    public List<Long> getBookIdsByAuthor(Long authorId) {
+        return this.getBooksByAuthor(authorId, 0, MAX_RESULT_WINDOW, ID_ONLY)
+                .stream()
+                .map(BookDocument::getId)
                 .collect(Collectors.toList());
     }
 
-}
\ No newline at end of file
+    // Ids of the books of each author, in the order of the authors, read with a scroll over one terms query
+    public List<List<Long>> getBookIdsByAuthors(List<Long> authorIds) {
+        if (authorIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<Long>> books = new HashMap<>();
+        FilterQuery filter = new FilterQuery().terms("authorId", authorIds);
+        FieldSelection fields = FieldSelection.parse("id,authorId");
+        long hits = 0;
+        try (SearchHitsIterator<BookDocument> iterator = operations.searchForStream(filter.toQuery(fields),
+                BookDocument.class)) {
+            while (iterator.hasNext()) {
+                BookDocument book = iterator.next().getContent();
+                books.computeIfAbsent(book.getAuthorId(), id -> new ArrayList<>()).add(book.getId());
+                hits++;
+            }
+        }
+        RequestTrace.query(BookDocument.INDEX_NAME, filter.toRequestJson(fields), hits);
+        List<List<Long>> ids = new ArrayList<>(authorIds.size());
+        for (Long authorId : authorIds) {
+            List<Long> written = books.getOrDefault(authorId, new ArrayList<>());
+            written.sort(null);
+            ids.add(written);
+        }
+        return ids;
+    }
+
+    // Id and ISBN of every book, read with a scroll
+    public void scanIdsAndIsbns(Consumer<BookDocument> consumer) {
+        FieldSelection fields = FieldSelection.parse("id,isbn");
+        try (SearchHitsIterator<BookDocument> hits = operations.searchForStream(new FilterQuery().toQuery(fields),
+                BookDocument.class)) {
+            hits.forEachRemaining(hit -> consumer.accept(hit.getContent()));
+        }
+    }
+
+    // Starts an asynchronous delete by query with the same filters as search. Returns null if there is no filter.
+    public String deleteByQuery(String isbn, String name, String language, String description,
+                                String category, Long authorId) {
+
+        FilterQuery filter = this.filter(isbn, name, language, description, category, authorId);
+        if (filter.isEmpty()) {
+            return null;
+        }
+        String taskId = taskRepository.deleteByQuery(BookDocument.INDEX_NAME, filter);
+        deleteTasks.watch(BookDocument.INDEX_NAME, taskId);
+        return taskId;
+    }
+
+    private FilterQuery filter(String isbn, String name, String language, String description,
+                               String category, Long authorId) {
+        return new FilterQuery()
+                .phrase("isbn", isbn)
+                .phrase("name", name)
+                .phrase("language", language)
+                .phrase("description", description)
+                .phrase("category", category)
+                .term("authorId", authorId);
+    }
+
+    private static boolean isbn13(String isbn) {
+        String key = ExistenceFilters.isbnKey(isbn);
+        return key != null && key.length() == 13;
+    }
+
+    private FilterQuery sort(FilterQuery filter, boolean byPopularity) {
+        return byPopularity ? filter.sortDescending("popularity") : filter;
+    }
+
+    private List<BookDocument> search(FilterQuery filter, FieldSelection fields) {
+        SearchHits<BookDocument> hits = operations.search(filter.toQuery(fields), BookDocument.class);
+        RequestTrace.query(BookDocument.INDEX_NAME, filter.toRequestJson(fields), hits.getTotalHits());
+        return hits.getSearchHits()
+                .stream()
+                .map(SearchHit::getContent)
+                .collect(Collectors.toList());
+    }
+
+    // Books stored before authorId existed, by older versions or by seeds that nest the author, get it from the author
+    // they were saved with. Books with nothing to take it from keep no author, and are not found by author.
+    public long backfillAuthorIds() {
+        long updated = indexRepository.updateWhereMissing(BookDocument.INDEX_NAME, "authorId", AUTHOR_ID_BACKFILL);
+        if (updated > 0) {
+            generations.bump(BookDocument.INDEX_NAME);
+        }
+        return updated;
+    }
+
+    // Ids up to the given one are taken by documents already in the index, new ones are numbered after them
+    public void reserveIdsUpTo(long lastId) {
+        if (numBooks <= lastId) {
+            numBooks = lastId + 1;
+        }
+    }
+}
@@ -1,11 +1,28 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.repository;
 
 import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.DeleteTaskWatcher;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.IndexGenerations;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.RequestTrace;
+import net.unir.missi.desarrollowebfullstack.bookabook.existence.ExistenceFilters;
+import net.unir.missi.desarrollowebfullstack.bookabook.identification.ClientContactIndex;
+import net.unir.missi.desarrollowebfullstack.bookabook.identification.ContactNormalizer;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FilterQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.MultiGetItem;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
@@ -14,57 +31,165 @@ public class ClientRepository {
 
     private static Long numClients = 1L;
     private final ClientElasticRepository repository;
+    private final ElasticsearchOperations operations;
+    private final ElasticsearchTaskRepository taskRepository;
+    private final IndexGenerations generations;
+    private final DeleteTaskWatcher deleteTasks;
+    private final ElasticsearchIndexRepository indexRepository;
+    private final ContactNormalizer contactNormalizer;
+    private final ClientContactIndex contactIndex;
+    private final ExistenceFilters existence;
 
     public ClientDocument getClientById(Long id) {
-        return repository.findById(id).orElse(null);
+        return existence.get(ClientDocument.INDEX_NAME, id, () -> {
+            ClientDocument document = repository.findById(id).orElse(null);
+            RequestTrace.query(ClientDocument.INDEX_NAME, FilterQuery.byIdRequestJson(id, FieldSelection.ALL), document != null ? 1 : 0);
+            return document;
+        });
+    }
+
+    public ClientDocument getClientById(Long id, FieldSelection fields) {
+        if (fields.isAll()) {
+            return this.getClientById(id);
+        }
+
+        return existence.get(ClientDocument.INDEX_NAME, id, () -> {
+            List<MultiGetItem<ClientDocument>> items = operations.multiGet(FilterQuery.byId(id, fields), ClientDocument.class);
+            ClientDocument document = items.isEmpty() || !items.get(0).hasItem() ? null : items.get(0).getItem();
+            RequestTrace.query(ClientDocument.INDEX_NAME, FilterQuery.byIdRequestJson(id, fields), document != null ? 1 : 0);
+            return document;
+        });
+    }
+
+    // Whole documents in the order of the ids, with null for the missing ones, fetched with one multi-get
+    public List<ClientDocument> getClientsByIds(List<Long> ids) {
+        return existence.getAll(ClientDocument.INDEX_NAME, ids, candidates -> {
+            List<ClientDocument> documents = operations.multiGet(FilterQuery.byIds(candidates), ClientDocument.class).stream()
+                    .map((MultiGetItem<ClientDocument> item) -> item.hasItem() ? item.getItem() : null)
+                    .collect(Collectors.toList());
+            RequestTrace.query(ClientDocument.INDEX_NAME, FilterQuery.byIdsRequestJson(candidates, FieldSelection.ALL),
+                    documents.stream().filter(Objects::nonNull).count());
+            return documents;
+        });
     }
 
     public List<ClientDocument> getAllClients() {
         List<ClientDocument> ret = new LinkedList<>();
         this.repository.findAll().forEach(ret::add);
+        RequestTrace.query(ClientDocument.INDEX_NAME, new FilterQuery().toRequestJson(FieldSelection.ALL), ret.size());
         return ret;
     }
 
+    public List<ClientDocument> getAllClients(FieldSelection fields) {
+        if (fields.isAll()) {
+            return this.getAllClients();
+        }
+        return this.search(new FilterQuery(), fields);
+    }
+
     public ClientDocument addClient(ClientDocument clientDocument) {
         if (clientDocument.getId() == null)
         {
             clientDocument.setId(numClients);
             numClients++;
         }
-        return repository.save(clientDocument);
+        clientDocument.setEmailKey(contactNormalizer.email(clientDocument.getEmail()));
+        clientDocument.setPhoneKey(contactNormalizer.phone(clientDocument.getPhoneNumber()));
+        ClientDocument saved = repository.save(clientDocument);
+        generations.bump(ClientDocument.INDEX_NAME);
+        existence.add(ClientDocument.INDEX_NAME, saved.getId());
+        contactIndex.put(saved);
+        return saved;
     }
 
     public void deleteClient(ClientDocument clientDocument) {
         repository.delete(clientDocument);
+        generations.bump(ClientDocument.INDEX_NAME);
+        contactIndex.remove(clientDocument.getId());
+    }
+
+    // Clients with the given normalized email, with a term query on its keyword field
+    public List<ClientDocument> getClientsByEmailKey(String emailKey) {
+        return this.search(new FilterQuery().term("emailKey", emailKey), FieldSelection.ALL);
+    }
+
+    // Clients with the given normalized phone number, with a term query on its keyword field
+    public List<ClientDocument> getClientsByPhoneKey(String phoneKey) {
+        return this.search(new FilterQuery().term("phoneKey", phoneKey), FieldSelection.ALL);
+    }
+
+    // Contact details of every client, read with a scroll
+    public void scanContacts(Consumer<ClientDocument> consumer) {
+        FieldSelection fields = FieldSelection.parse("email,phoneNumber,emailKey,phoneKey");
+        try (SearchHitsIterator<ClientDocument> hits = operations.searchForStream(new FilterQuery().toQuery(fields),
+                ClientDocument.class)) {
+            hits.forEachRemaining(hit -> consumer.accept(hit.getContent()));
+        }
+    }
+
+    // Id of every client, read with a scroll
+    public void scanIds(Consumer<Long> consumer) {
+        try (SearchHitsIterator<ClientDocument> hits = operations.searchForStream(
+                new FilterQuery().toQuery(FieldSelection.parse("id")), ClientDocument.class)) {
+            hits.forEachRemaining(hit -> consumer.accept(hit.getContent().getId()));
+        }
+    }
+
+    // Sets the normalized contact fields of clients saved before they existed
+    public void bulkSetContactKeys(List<ClientDocument> clients) {
+        Map<Long, Map<String, String>> fields = new HashMap<>();
+        for (ClientDocument client : clients) {
+            Map<String, String> keys = new HashMap<>();
+            keys.put("emailKey", contactNormalizer.email(client.getEmail()));
+            keys.put("phoneKey", contactNormalizer.phone(client.getPhoneNumber()));
+            fields.put(client.getId(), keys);
+        }
+        indexRepository.bulkSetFields(ClientDocument.INDEX_NAME, fields);
+        generations.bump(ClientDocument.INDEX_NAME);
     }
 
     public List<ClientDocument> filterClients(String firstName, String lastName, String address, String phoneNumber, String email) {
-        List<ClientDocument> listClientDocument = new LinkedList<>();
-        repository.findAll().forEach(listClientDocument::add);
-
-        return listClientDocument.stream()
-                .filter((ClientDocument doc) ->
-                {
-                    if (!doc.getFirstName().equals(firstName)) {
-                        return false;
-                    }
-                    if (!doc.getLastName().equals(lastName)) {
-                        return false;
-                    }
-                    if (!doc.getAddress().equals(address)) {
-                        return false;
-                    }
-                    if (!doc.getPhoneNumber().equals(phoneNumber)) {
-                        return false;
-                    }
-                    if (! doc.getEmail().equals(email))
-                    {
-                        return false;
-                    }
-                    return true;
-                    // TODO filter by booksWritten
-                })
+        return this.filterClients(firstName, lastName, address, phoneNumber, email, FieldSelection.ALL);
+    }
+
+    public List<ClientDocument> filterClients(String firstName, String lastName, String address, String phoneNumber,
+                                              String email, FieldSelection fields) {
+        return this.search(this.filter(firstName, lastName, address, phoneNumber, email), fields);
+    }
+
+    // Starts an asynchronous delete by query with the same filters as filterClients. Returns null if there is no filter.
+    public String deleteByQuery(String firstName, String lastName, String address, String phoneNumber, String email) {
+        FilterQuery filter = this.filter(firstName, lastName, address, phoneNumber, email);
+        if (filter.isEmpty()) {
+            return null;
+        }
+        String taskId = taskRepository.deleteByQuery(ClientDocument.INDEX_NAME, filter);
+        deleteTasks.watch(ClientDocument.INDEX_NAME, taskId);
+        return taskId;
+    }
+
+    private FilterQuery filter(String firstName, String lastName, String address, String phoneNumber, String email) {
+        return new FilterQuery()
+                .phrase("firstName", firstName)
+                .phrase("lastName", lastName)
+                .phrase("address", address)
+                .phrase("phoneNumber", phoneNumber)
+                .phrase("email", email);
+    }
+
+    private List<ClientDocument> search(FilterQuery filter, FieldSelection fields) {
+        SearchHits<ClientDocument> hits = operations.search(filter.toQuery(fields), ClientDocument.class);
+        RequestTrace.query(ClientDocument.INDEX_NAME, filter.toRequestJson(fields), hits.getTotalHits());
+        return hits.getSearchHits()
+                .stream()
+                .map(SearchHit::getContent)
                 .collect(Collectors.toList());
     }
 
-}
\ No newline at end of file
+    // Ids up to the given one are taken by documents already in the index, new ones are numbered after them
+    public void reserveIdsUpTo(long lastId) {
+        if (numClients <= lastId) {
+            numClients = lastId + 1;
+        }
+    }
+}
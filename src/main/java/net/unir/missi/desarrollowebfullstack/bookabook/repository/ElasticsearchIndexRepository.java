@@ -0,0 +1,254 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Index administration and bulk loading, used by the bootstrap before the application takes any traffic, the bulk
+// popularity updates of the popularity tracker, and the saves of books and authors, which must not overwrite them
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class ElasticsearchIndexRepository {
+
+    private static final String POPULARITY_SCRIPT =
+            "ctx._source.popularity = (ctx._source.popularity == null ? 0 : ctx._source.popularity) + params.delta";
+
+    private static final String REPLACE_KEEPING_POPULARITY_SCRIPT =
+            "def popularity = ctx._source.popularity; ctx._source.clear(); ctx._source.putAll(params.source); "
+                    + "if (popularity != null) { ctx._source.popularity = popularity; }";
+
+    private final RestClient restClient;
+
+    private final ObjectMapper objectMapper;
+
+    public record BulkDocument(String index, Long id, JsonNode source) {
+    }
+
+    public record BulkResult(int created, int existing, int failed) {
+
+        public BulkResult plus(BulkResult other) {
+            return new BulkResult(this.created + other.created, this.existing + other.existing,
+                    this.failed + other.failed);
+        }
+    }
+
+    public void putIndexTemplate(String name, JsonNode template) {
+        Request request = new Request("PUT", "/_index_template/" + name);
+        request.setJsonEntity(template.toString());
+        this.perform(request, "The index template " + name + " could not be stored");
+    }
+
+    public boolean exists(String index) {
+        try {
+            Response response = restClient.performRequest(new Request("HEAD", "/" + index));
+            return response.getStatusLine().getStatusCode() == 200;
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return false;
+            }
+            throw new RuntimeException("The index " + index + " could not be checked", e);
+        } catch (IOException e) {
+            throw new RuntimeException("The index " + index + " could not be checked", e);
+        }
+    }
+
+    public void create(String index, JsonNode mappings) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.set("mappings", mappings);
+        Request request = new Request("PUT", "/" + index);
+        request.setJsonEntity(body.toString());
+        this.perform(request, "The index " + index + " could not be created");
+        log.info("Index {} created", index);
+    }
+
+    // Adds the fields of the mappings missing from an existing index
+    public void putMapping(String index, JsonNode mappings) {
+        Request request = new Request("PUT", "/" + index + "/_mapping");
+        request.setJsonEntity(mappings.toString());
+        this.perform(request, "The mappings of index " + index + " could not be updated");
+    }
+
+    // "-1" disables the periodic refresh, which makes bulk loads much cheaper
+    public void setRefreshInterval(String index, String interval) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("index").put("refresh_interval", interval);
+        Request request = new Request("PUT", "/" + index + "/_settings");
+        request.setJsonEntity(body.toString());
+        this.perform(request, "The refresh interval of index " + index + " could not be changed");
+    }
+
+    public void refresh(String index) {
+        this.perform(new Request("POST", "/" + index + "/_refresh"), "The index " + index + " could not be refreshed");
+    }
+
+    public long count(String index) {
+        JsonNode response = this.perform(new Request("GET", "/" + index + "/_count"),
+                "The documents of index " + index + " could not be counted");
+        return response.path("count").asLong(0);
+    }
+
+    // Highest id stored in the index, or 0 when it is empty
+    public long maxId(String index) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("size", 0);
+        body.putObject("aggs").putObject("max_id").putObject("max").put("field", "id");
+        Request request = new Request("POST", "/" + index + "/_search");
+        request.setJsonEntity(body.toString());
+        JsonNode response = this.perform(request, "The highest id of index " + index + " could not be read");
+        return response.path("aggregations").path("max_id").path("value").asLong(0);
+    }
+
+    // Uses "create" operations, so that documents already in the index are left as they are
+    public BulkResult bulkCreate(List<BulkDocument> documents) {
+        StringBuilder body = new StringBuilder(documents.size() * 512);
+        for (BulkDocument document : documents) {
+            ObjectNode action = objectMapper.createObjectNode();
+            action.putObject("create").put("_index", document.index()).put("_id", String.valueOf(document.id()));
+            body.append(action).append('\n').append(document.source()).append('\n');
+        }
+        Request request = new Request("POST", "/_bulk");
+        request.setJsonEntity(body.toString());
+        JsonNode response = this.perform(request, "A bulk of " + documents.size() + " documents could not be loaded");
+
+        int created = 0;
+        int existing = 0;
+        int failed = 0;
+        for (JsonNode item : response.path("items")) {
+            JsonNode result = item.path("create");
+            int status = result.path("status").asInt();
+            if (status == 201) {
+                created++;
+            } else if (status == 409) {
+                existing++;
+            } else {
+                if (failed == 0) {
+                    log.warn("Document {}/{} could not be loaded: {}", result.path("_index").asText(),
+                            result.path("_id").asText(), result.path("error"));
+                }
+                failed++;
+            }
+        }
+        return new BulkResult(created, existing, failed);
+    }
+
+    // Adds each delta to the popularity of its document and returns the ids whose update failed, while the rest of
+    // the batch applied. Documents deleted in the meantime are skipped.
+    public List<Long> bulkAddPopularity(String index, Map<Long, Long> deltas) {
+        StringBuilder body = new StringBuilder(deltas.size() * 160);
+        deltas.forEach((id, delta) -> {
+            ObjectNode action = objectMapper.createObjectNode();
+            action.putObject("update").put("_index", index).put("_id", String.valueOf(id)).put("retry_on_conflict", 3);
+            ObjectNode update = objectMapper.createObjectNode();
+            update.putObject("script")
+                    .put("source", POPULARITY_SCRIPT)
+                    .putObject("params").put("delta", delta);
+            body.append(action).append('\n').append(update).append('\n');
+        });
+        Request request = new Request("POST", "/_bulk");
+        request.setJsonEntity(body.toString());
+        JsonNode response = this.perform(request, "The popularity of " + deltas.size() + " documents could not be updated");
+        if (!response.path("errors").asBoolean()) {
+            return List.of();
+        }
+        List<Long> failed = new ArrayList<>();
+        for (JsonNode item : response.path("items")) {
+            JsonNode result = item.path("update");
+            if (result.path("status").asInt() != 200 && result.path("status").asInt() != 404) {
+                if (failed.isEmpty()) {
+                    log.warn("The popularity of {}/{} could not be updated: {}", index, result.path("_id").asText(),
+                            result.path("error"));
+                }
+                failed.add(Long.valueOf(result.path("_id").asText()));
+            }
+        }
+        return failed;
+    }
+
+    // Replaces the _source of the document, or creates it, with the popularity it has stored: the popularity tracker
+    // adds to it at any time, so the count of a copy read before would undo its updates
+    public void replaceKeepingPopularity(String index, Long id, Map<String, Object> source) {
+        ObjectNode document = objectMapper.valueToTree(source);
+        document.remove("popularity");
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("script")
+                .put("source", REPLACE_KEEPING_POPULARITY_SCRIPT)
+                .putObject("params").set("source", document);
+        body.set("upsert", document);
+        Request request = new Request("POST", "/" + index + "/_update/" + id);
+        request.addParameter("retry_on_conflict", "3");
+        request.setJsonEntity(body.toString());
+        this.perform(request, "The document " + index + "/" + id + " could not be saved");
+    }
+
+    // Sets the given fields of each document, leaving the rest of its _source as it is. Documents deleted in the
+    // meantime are skipped.
+    public void bulkSetFields(String index, Map<Long, Map<String, String>> fields) {
+        StringBuilder body = new StringBuilder(fields.size() * 160);
+        fields.forEach((id, values) -> {
+            ObjectNode action = objectMapper.createObjectNode();
+            action.putObject("update").put("_index", index).put("_id", String.valueOf(id)).put("retry_on_conflict", 3);
+            ObjectNode update = objectMapper.createObjectNode();
+            ObjectNode doc = update.putObject("doc");
+            values.forEach(doc::put);
+            body.append(action).append('\n').append(update).append('\n');
+        });
+        Request request = new Request("POST", "/_bulk");
+        request.setJsonEntity(body.toString());
+        JsonNode response = this.perform(request, fields.size() + " documents of " + index + " could not be updated");
+        if (response.path("errors").asBoolean()) {
+            for (JsonNode item : response.path("items")) {
+                JsonNode result = item.path("update");
+                if (result.path("status").asInt() != 200 && result.path("status").asInt() != 404) {
+                    throw new RuntimeException("The document " + index + "/" + result.path("_id").asText()
+                            + " could not be updated: " + result.path("error"));
+                }
+            }
+        }
+    }
+
+    // Runs the script on every document without the field, as one update by query that waits for it to end. Returns the
+    // number of documents changed; the script leaves the others alone with ctx.op = 'noop'.
+    public long updateWhereMissing(String index, String field, String script) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.putObject("query").putObject("bool").putObject("must_not").putObject("exists").put("field", field);
+        body.putObject("script").put("source", script);
+        Request request = new Request("POST", "/" + index + "/_update_by_query");
+        request.addParameter("conflicts", "proceed");
+        request.addParameter("refresh", "true");
+        request.setJsonEntity(body.toString());
+        JsonNode response = this.perform(request, "The documents of " + index + " without " + field + " could not be updated");
+        if (response.path("failures").size() > 0) {
+            throw new RuntimeException("The documents of " + index + " without " + field + " could not be updated: "
+                    + response.path("failures").get(0));
+        }
+        return response.path("updated").asLong(0);
+    }
+
+    private JsonNode perform(Request request, String failure) {
+        try {
+            Response response = restClient.performRequest(request);
+            if (response.getEntity() == null) {
+                return objectMapper.createObjectNode();
+            }
+            try (InputStream content = response.getEntity().getContent()) {
+                return objectMapper.readTree(content);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(failure, e);
+        }
+    }
+}
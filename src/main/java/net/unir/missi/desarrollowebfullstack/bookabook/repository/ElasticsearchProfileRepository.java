@@ -0,0 +1,37 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Runs a search body again with the profile API of Elasticsearch
+@RequiredArgsConstructor
+@Component
+public class ElasticsearchProfileRepository {
+
+    private final RestClient restClient;
+
+    private final ObjectMapper objectMapper;
+
+    // The "profile" section of the response, with the shards and timings of every query and collector
+    public JsonNode profile(String index, String searchJson) {
+        try {
+            ObjectNode body = (ObjectNode) objectMapper.readTree(searchJson);
+            body.put("profile", true);
+
+            Request request = new Request("POST", "/" + index + "/_search");
+            request.setJsonEntity(objectMapper.writeValueAsString(body));
+            Response response = restClient.performRequest(request);
+            return objectMapper.readTree(response.getEntity().getContent()).path("profile");
+        } catch (IOException e) {
+            throw new RuntimeException("The query on index " + index + " could not be profiled", e);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AvailabilityDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ReservationDocument;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Availability and reservation documents, read with their sequence number and written only if nobody else wrote
+// them since (optimistic concurrency control of Elasticsearch). A lost race is answered with null, never with an
+// exception, so that the caller can read again and retry.
+@RequiredArgsConstructor
+@Component
+public class ElasticsearchReservationRepository {
+
+    private final RestClient restClient;
+
+    private final ObjectMapper objectMapper;
+
+    // A document with the version it was read or written at
+    public record Versioned<T>(T value, long seqNo, long primaryTerm) {
+    }
+
+    public Versioned<AvailabilityDocument> getAvailability(Long bookId) {
+        return this.get(AvailabilityDocument.INDEX_NAME, String.valueOf(bookId), AvailabilityDocument.class);
+    }
+
+    // Created if expected is null, otherwise only written over that version. Null if someone else wrote first.
+    public Versioned<AvailabilityDocument> saveAvailability(AvailabilityDocument availability,
+                                                            Versioned<AvailabilityDocument> expected) {
+        return this.put(AvailabilityDocument.INDEX_NAME, String.valueOf(availability.getBookId()), availability, expected);
+    }
+
+    public Versioned<ReservationDocument> getReservation(String id) {
+        return this.get(ReservationDocument.INDEX_NAME, id, ReservationDocument.class);
+    }
+
+    public Versioned<ReservationDocument> saveReservation(ReservationDocument reservation,
+                                                          Versioned<ReservationDocument> expected) {
+        return this.put(ReservationDocument.INDEX_NAME, reservation.getId(), reservation, expected);
+    }
+
+    // Active reservations past their expiry and pending ones reserved before pendingBefore, oldest first
+    public List<Versioned<ReservationDocument>> getExpiredReservations(long now, long pendingBefore, int size) {
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("size", size);
+        body.put("seq_no_primary_term", true);
+        ObjectNode bool = body.putObject("query").putObject("bool");
+        bool.putArray("should")
+                .add(this.statusBefore(ReservationDocument.ACTIVE, "expiresAt", now))
+                .add(this.statusBefore(ReservationDocument.PENDING, "reservedAt", pendingBefore));
+        bool.put("minimum_should_match", 1);
+        body.putArray("sort").addObject().put("expiresAt", "asc");
+        Request request = new Request("POST", "/" + ReservationDocument.INDEX_NAME + "/_search");
+        request.setJsonEntity(body.toString());
+
+        List<Versioned<ReservationDocument>> expired = new ArrayList<>();
+        try {
+            Response response = restClient.performRequest(request);
+            try (InputStream content = response.getEntity().getContent()) {
+                for (JsonNode hit : objectMapper.readTree(content).path("hits").path("hits")) {
+                    expired.add(this.versioned(hit, ReservationDocument.class));
+                }
+            }
+            return expired;
+        } catch (IOException e) {
+            throw new RuntimeException("The expired reservations could not be read", e);
+        }
+    }
+
+    private ObjectNode statusBefore(String status, String field, long before) {
+        ObjectNode clause = objectMapper.createObjectNode();
+        clause.putObject("bool").putArray("filter")
+                .add(objectMapper.createObjectNode().set("term",
+                        objectMapper.createObjectNode().put("status", status)))
+                .add(objectMapper.createObjectNode().set("range",
+                        objectMapper.createObjectNode().set(field, objectMapper.createObjectNode().put("lt", before))));
+        return clause;
+    }
+
+    private <T> Versioned<T> get(String index, String id, Class<T> type) {
+        try {
+            Response response = restClient.performRequest(new Request("GET", "/" + index + "/_doc/" + id));
+            try (InputStream content = response.getEntity().getContent()) {
+                return this.versioned(objectMapper.readTree(content), type);
+            }
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return null;
+            }
+            throw new RuntimeException("The document " + id + " of index " + index + " could not be read", e);
+        } catch (IOException e) {
+            throw new RuntimeException("The document " + id + " of index " + index + " could not be read", e);
+        }
+    }
+
+    private <T> Versioned<T> put(String index, String id, T document, Versioned<T> expected) {
+        Request request = new Request("PUT", "/" + index + "/_doc/" + id);
+        if (expected == null) {
+            request.addParameter("op_type", "create");
+        } else {
+            request.addParameter("if_seq_no", String.valueOf(expected.seqNo()));
+            request.addParameter("if_primary_term", String.valueOf(expected.primaryTerm()));
+        }
+        try {
+            request.setJsonEntity(objectMapper.writeValueAsString(document));
+            Response response = restClient.performRequest(request);
+            try (InputStream content = response.getEntity().getContent()) {
+                JsonNode result = objectMapper.readTree(content);
+                return new Versioned<>(document, result.path("_seq_no").asLong(), result.path("_primary_term").asLong());
+            }
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 409) {
+                return null;
+            }
+            throw new RuntimeException("The document " + id + " of index " + index + " could not be written", e);
+        } catch (IOException e) {
+            throw new RuntimeException("The document " + id + " of index " + index + " could not be written", e);
+        }
+    }
+
+    private <T> Versioned<T> versioned(JsonNode hit, Class<T> type) throws IOException {
+        return new Versioned<>(objectMapper.treeToValue(hit.path("_source"), type),
+                hit.path("_seq_no").asLong(), hit.path("_primary_term").asLong());
+    }
+}
@@ -0,0 +1,51 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.repository;
+
+import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.diagnostics.RequestTrace;
+import net.unir.missi.desarrollowebfullstack.bookabook.existence.ExistenceFilters;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Raw _source of single documents, for the endpoints that pass it through without mapping it to a document
+@RequiredArgsConstructor
+@Component
+public class ElasticsearchSourceRepository {
+
+    private final RestClient restClient;
+
+    private final ExistenceFilters existence;
+
+    // The _source bytes as stored (restricted to the selected fields), or null if the document does not exist
+    public byte[] getSource(String index, Long id, FieldSelection fields) {
+        return existence.get(index, id, () -> this.readSource(index, id, fields));
+    }
+
+    private byte[] readSource(String index, Long id, FieldSelection fields) {
+        Request request = new Request("GET", "/" + index + "/_source/" + id);
+        if (!fields.isAll()) {
+            request.addParameter("_source_includes", fields.toString());
+        }
+
+        try {
+            Response response = restClient.performRequest(request);
+            byte[] source = EntityUtils.toByteArray(response.getEntity());
+            RequestTrace.query(index, request.getEndpoint() + "?" + request.getParameters(), 1);
+            return source;
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                RequestTrace.query(index, request.getEndpoint() + "?" + request.getParameters(), 0);
+                return null;
+            }
+            throw new RuntimeException("The document " + id + " of index " + index + " could not be read", e);
+        } catch (IOException e) {
+            throw new RuntimeException("The document " + id + " of index " + index + " could not be read", e);
+        }
+    }
+}
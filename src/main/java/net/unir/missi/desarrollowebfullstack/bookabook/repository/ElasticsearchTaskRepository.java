@@ -0,0 +1,74 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FilterQuery;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Long running operations that Spring Data does not expose, executed as Elasticsearch tasks
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class ElasticsearchTaskRepository {
+
+    private final RestClient restClient;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${bookabook.delete-by-query.requests-per-second:500}")
+    private float requestsPerSecond;
+
+    @Value("${bookabook.delete-by-query.scroll-size:500}")
+    private int scrollSize;
+
+    public String deleteByQuery(String index, FilterQuery filter) {
+        Request request = new Request("POST", "/" + index + "/_delete_by_query");
+        request.addParameter("wait_for_completion", "false");
+        request.addParameter("conflicts", "proceed");
+        // Throttle the batches so that mass deletes leave room for the read traffic
+        request.addParameter("requests_per_second", String.valueOf(this.requestsPerSecond));
+        request.addParameter("scroll_size", String.valueOf(this.scrollSize));
+
+        ObjectNode body = objectMapper.createObjectNode();
+        body.set("query", filter.toNode());
+        request.setJsonEntity(body.toString());
+
+        try {
+            Response response = restClient.performRequest(request);
+            try (InputStream content = response.getEntity().getContent()) {
+                String taskId = objectMapper.readTree(content).path("task").asText(null);
+                log.info("Delete by query on index {} started as task {}", index, taskId);
+                return taskId;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("The delete by query on index " + index + " could not be started", e);
+        }
+    }
+
+    public JsonNode getTask(String taskId) {
+        try {
+            Response response = restClient.performRequest(new Request("GET", "/_tasks/" + taskId));
+            try (InputStream content = response.getEntity().getContent()) {
+                return objectMapper.readTree(content);
+            }
+        } catch (ResponseException e) {
+            if (e.getResponse().getStatusLine().getStatusCode() == 404) {
+                return null;
+            }
+            throw new RuntimeException("The task " + taskId + " could not be read", e);
+        } catch (IOException e) {
+            throw new RuntimeException("The task " + taskId + " could not be read", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Write watermark of each index, shared by all the instances of the service: one document per index, whose
+// _version Elasticsearch increments on every write. Reading them is a single realtime multi get, no search.
+@RequiredArgsConstructor
+@Component
+public class ElasticsearchWatermarkRepository {
+
+    public static final String INDEX_NAME = "bookabook-watermarks";
+
+    private final RestClient restClient;
+
+    private final ObjectMapper objectMapper;
+
+    // Advances the watermark of the index and returns its new version
+    public long saveWatermark(String index, String instance) {
+        ObjectNode body = objectMapper.createObjectNode()
+                .put("instance", instance)
+                .put("writtenAt", System.currentTimeMillis());
+        Request request = new Request("PUT", "/" + INDEX_NAME + "/_doc/" + index);
+        request.setJsonEntity(body.toString());
+        try {
+            Response response = restClient.performRequest(request);
+            try (InputStream content = response.getEntity().getContent()) {
+                return objectMapper.readTree(content).path("_version").asLong();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("The watermark of index " + index + " could not be saved", e);
+        }
+    }
+
+    // Current version of the watermark of each index, 0 for the indices never written since the watermarks exist
+    public Map<String, Long> getWatermarks(Collection<String> indices) {
+        ObjectNode body = objectMapper.createObjectNode();
+        ArrayNode ids = body.putArray("ids");
+        indices.forEach(ids::add);
+        Request request = new Request("POST", "/" + INDEX_NAME + "/_mget");
+        request.addParameter("_source", "false");
+        request.setJsonEntity(body.toString());
+
+        Map<String, Long> versions = new HashMap<>();
+        indices.forEach(index -> versions.put(index, 0L));
+        try {
+            Response response = restClient.performRequest(request);
+            try (InputStream content = response.getEntity().getContent()) {
+                for (JsonNode document : objectMapper.readTree(content).path("docs")) {
+                    // Before the first write the index does not exist, and every document comes with an error
+                    if (document.path("found").asBoolean()) {
+                        versions.put(document.path("_id").asText(), document.path("_version").asLong());
+                    }
+                }
+            }
+            return versions;
+        } catch (IOException e) {
+            throw new RuntimeException("The watermarks could not be read", e);
+        }
+    }
+}
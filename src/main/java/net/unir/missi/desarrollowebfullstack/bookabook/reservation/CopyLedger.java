@@ -0,0 +1,217 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.reservation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.admission.OverloadedException;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AvailabilityDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchReservationRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchReservationRepository.Versioned;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+// Takes and gives back copies of books. Changes to the copies of a book are serialized inside the instance by the
+// lock of its stripe, so a burst of reservations of the same title becomes a queue of conditional writes instead of a
+// storm of conflicting ones; between instances, the conditional writes alone prevent giving out more copies than
+// there are. The last version written or read is kept, so a change usually costs one write and no read, and a title
+// known to be sold out is refused without calling Elasticsearch for sold-out-recheck. Only the known-books most
+// recently changed are kept, split across the stripes.
+@Slf4j
+@Component
+public class CopyLedger {
+
+    private final ElasticsearchReservationRepository repository;
+
+    private final Stripe[] stripes;
+
+    private final int defaultCopies;
+
+    private final int maxAttempts;
+
+    private final long soldOutRecheckNanos;
+
+    private final Counter taken;
+
+    private final Counter soldOut;
+
+    private final Counter conflicts;
+
+    public CopyLedger(ElasticsearchReservationRepository repository, MeterRegistry registry,
+                      @Value("${bookabook.reservations.stripes:64}") int stripes,
+                      @Value("${bookabook.reservations.default-copies:1}") int defaultCopies,
+                      @Value("${bookabook.reservations.max-attempts:5}") int maxAttempts,
+                      @Value("${bookabook.reservations.sold-out-recheck:1s}") Duration soldOutRecheck,
+                      @Value("${bookabook.reservations.known-books:10000}") int knownBooks) {
+        this.repository = repository;
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(Math.max(1, knownBooks / stripes));
+        }
+        this.defaultCopies = defaultCopies;
+        this.maxAttempts = maxAttempts;
+        this.soldOutRecheckNanos = soldOutRecheck.toNanos();
+        this.taken = this.counter(registry, "taken");
+        this.soldOut = this.counter(registry, "sold-out");
+        this.conflicts = this.counter(registry, "conflict");
+    }
+
+    // A copy for the reservation, false if every copy is already reserved. True without a write if it holds one.
+    public boolean take(Long bookId, String reservationId) {
+        Versioned<AvailabilityDocument> written = this.update(bookId, reservationId, availability -> {
+            List<String> holders = holdersOf(availability);
+            if (holders.contains(reservationId)) {
+                return availability;
+            }
+            if (availability.getReserved() >= availability.getCopies()) {
+                return null;
+            }
+            List<String> next = new ArrayList<>(holders);
+            next.add(reservationId);
+            return availability.toBuilder().reserved(availability.getReserved() + 1).holders(next).build();
+        });
+        (written != null ? this.taken : this.soldOut).increment();
+        return written != null;
+    }
+
+    // Gives back the copy of the reservation, if it holds one: a reservation whose copy was never taken, or was
+    // already given back, leaves the copies as they are
+    public void release(Long bookId, String reservationId) {
+        this.update(bookId, null, availability -> {
+            List<String> holders = holdersOf(availability);
+            if (!holders.contains(reservationId)) {
+                return null;
+            }
+            List<String> next = new ArrayList<>(holders);
+            next.remove(reservationId);
+            return availability.toBuilder().reserved(availability.getReserved() - 1).holders(next).build();
+        });
+    }
+
+    // Null if more copies than that are reserved right now
+    public AvailabilityDocument setCopies(Long bookId, int copies) {
+        Versioned<AvailabilityDocument> written = this.update(bookId, null, availability ->
+                availability.getReserved() <= copies ? availability.toBuilder().copies(copies).build() : null);
+        return written != null ? written.value() : null;
+    }
+
+    // As stored, without creating it: books never reserved have the default number of copies
+    public AvailabilityDocument get(Long bookId) {
+        Versioned<AvailabilityDocument> current = this.repository.getAvailability(bookId);
+        return current != null ? current.value() : new AvailabilityDocument(bookId, this.defaultCopies, 0, List.of());
+    }
+
+    // Applies the change with a conditional write and returns the version written, or null if the change did not
+    // apply (the operator returned null). An operator returning the availability it was given needs no write.
+    // A taker is refused while the book was sold out lately, unless it holds one of the copies
+    private Versioned<AvailabilityDocument> update(Long bookId, String taker,
+                                                   UnaryOperator<AvailabilityDocument> change) {
+        Stripe stripe = this.stripeOf(bookId);
+        stripe.lock.lock();
+        try {
+            Known known = stripe.books.get(bookId);
+            if (taker != null && known != null && known.isSoldOut()
+                    && !holdersOf(known.availability.value()).contains(taker)
+                    && System.nanoTime() - known.atNanos < this.soldOutRecheckNanos) {
+                return null;
+            }
+            Versioned<AvailabilityDocument> current = known != null ? known.availability : null;
+            boolean read = false;
+            for (int attempt = 0; attempt < this.maxAttempts; attempt++) {
+                if (current == null) {
+                    current = this.load(bookId);
+                    read = true;
+                }
+                AvailabilityDocument next = change.apply(current.value());
+                if (next == null || next == current.value()) {
+                    if (!read) {
+                        // Decided on what this instance wrote last: the holders may have changed since
+                        current = null;
+                        attempt--;
+                        continue;
+                    }
+                    stripe.books.put(bookId, new Known(current));
+                    return next != null ? current : null;
+                }
+                Versioned<AvailabilityDocument> written;
+                try {
+                    written = this.repository.saveAvailability(next, current);
+                } catch (RuntimeException e) {
+                    // The write may have applied or not
+                    stripe.books.remove(bookId);
+                    throw e;
+                }
+                if (written != null) {
+                    stripe.books.put(bookId, new Known(written));
+                    return written;
+                }
+                // Another instance changed the copies of this book: read them again
+                this.conflicts.increment();
+                current = null;
+            }
+            // Still losing to other instances: answered like a full bulkhead, 503 with Retry-After
+            throw new OverloadedException("reservations", Duration.ofMillis(100));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Versioned<AvailabilityDocument> load(Long bookId) {
+        Versioned<AvailabilityDocument> current = this.repository.getAvailability(bookId);
+        if (current != null) {
+            return current;
+        }
+        Versioned<AvailabilityDocument> created = this.repository.saveAvailability(
+                new AvailabilityDocument(bookId, this.defaultCopies, 0, List.of()), null);
+        // Null if another instance created it first
+        return created != null ? created : this.repository.getAvailability(bookId);
+    }
+
+    private static List<String> holdersOf(AvailabilityDocument availability) {
+        return availability.getHolders() != null ? availability.getHolders() : List.of();
+    }
+
+    private Stripe stripeOf(Long bookId) {
+        return this.stripes[(int) (((bookId * 0x9E3779B97F4A7C15L) >>> 32) % this.stripes.length)];
+    }
+
+    private Counter counter(MeterRegistry registry, String outcome) {
+        return Counter.builder("bookabook.reservations.admission")
+                .description("Attempts to take or change the copies of a book")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Long, Known> books;
+
+        // Accessed only under the lock, in access order so that the book changed longest ago goes first
+        private Stripe(int capacity) {
+            this.books = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Known> eldest) {
+                    return this.size() > capacity;
+                }
+            };
+        }
+    }
+
+    private record Known(Versioned<AvailabilityDocument> availability, long atNanos) {
+
+        private Known(Versioned<AvailabilityDocument> availability) {
+            this(availability, System.nanoTime());
+        }
+
+        private boolean isSoldOut() {
+            return this.availability.value().getReserved() >= this.availability.value().getCopies();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.reservation;
+
+// The state of the copies or of the reservation does not allow the operation; answered with 409
+public class ReservationConflictException extends RuntimeException {
+
+    public ReservationConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,58 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.reservation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.service.IReservationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Expires the reservations past their time and gives their copies back. Every instance runs it; the conditional
+// writes make sure each reservation is expired once.
+@Slf4j
+@Component
+public class ReservationExpiry {
+
+    private final IReservationService reservationService;
+
+    private final ScheduledExecutorService scheduler;
+
+    @Value("${bookabook.reservations.expire-interval:1m}")
+    private Duration interval;
+
+    public ReservationExpiry(IReservationService reservationService) {
+        this.reservationService = reservationService;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bookabook-reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        this.scheduler.scheduleWithFixedDelay(this::expire, this.interval.toMillis(), this.interval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private void expire() {
+        try {
+            int expired = this.reservationService.expireDue();
+            if (expired > 0) {
+                log.info("{} reservations expired", expired);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Expired reservations could not be processed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,109 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Opens after a number of consecutive failed calls to Elasticsearch. While open no call is sent, and a background
+// probe checks the cluster until it answers again, which closes the breaker.
+@Slf4j
+@Component
+public class CircuitBreaker {
+
+    private final RestClient restClient;
+
+    private final int failureThreshold;
+
+    private final Duration probeInterval;
+
+    private final ScheduledExecutorService prober;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile boolean open;
+
+    private ScheduledFuture<?> probe;
+
+    public CircuitBreaker(RestClient restClient, MeterRegistry registry,
+                          @Value("${bookabook.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                          @Value("${bookabook.circuit-breaker.probe-interval:2s}") Duration probeInterval) {
+        this.restClient = restClient;
+        this.failureThreshold = failureThreshold;
+        this.probeInterval = probeInterval;
+        this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bookabook-circuit-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("bookabook.circuit.open", this, breaker -> breaker.open ? 1 : 0)
+                .description("1 while the circuit breaker in front of Elasticsearch is open")
+                .register(registry);
+    }
+
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    public Duration getProbeInterval() {
+        return this.probeInterval;
+    }
+
+    public void onSuccess() {
+        this.consecutiveFailures.set(0);
+    }
+
+    public void onFailure(RuntimeException e) {
+        if (this.consecutiveFailures.incrementAndGet() >= this.failureThreshold) {
+            this.trip(e);
+        }
+    }
+
+    private synchronized void trip(RuntimeException e) {
+        if (this.open) {
+            return;
+        }
+        log.warn("Opening the circuit breaker after {} failed calls to Elasticsearch: {}", this.failureThreshold, e.getMessage());
+        this.open = true;
+        this.probe = this.prober.scheduleWithFixedDelay(this::probe,
+                this.probeInterval.toMillis(), this.probeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void probe() {
+        try {
+            this.restClient.performRequest(new Request("GET", "/_cluster/health"));
+        } catch (IOException | RuntimeException e) {
+            log.debug("Elasticsearch is still unavailable: {}", e.getMessage());
+            return;
+        }
+        this.close();
+    }
+
+    private synchronized void close() {
+        log.info("Elasticsearch answers again, closing the circuit breaker");
+        this.consecutiveFailures.set(0);
+        this.open = false;
+        if (this.probe != null) {
+            this.probe.cancel(false);
+            this.probe = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.prober.shutdownNow();
+    }
+}
@@ -0,0 +1,136 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.resilience;
+
+import lombok.RequiredArgsConstructor;
+import net.unir.missi.desarrollowebfullstack.bookabook.admission.OverloadedException;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.AuthorRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ClientRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchSourceRepository;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+// Puts the circuit breaker in front of the outermost repository call of a thread, ahead of the bulkheads. The reads
+// whose result is only serialized keep their last result, answered while the breaker is open or when the read fails;
+// the rest just fail fast while it is open.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class CircuitBreakerAspect {
+
+    private static final ThreadLocal<Boolean> INSIDE = new ThreadLocal<>();
+
+    private static final Map<Class<?>, String> INDICES = Map.of(
+            BookRepository.class, BookDocument.INDEX_NAME,
+            AuthorRepository.class, AuthorDocument.INDEX_NAME,
+            ClientRepository.class, ClientDocument.INDEX_NAME);
+
+    // getById is left out on purpose: the services modify the documents it returns before saving them
+    private static final Set<String> CACHED_READS = Set.of("getSource", "search", "getBooks", "findAll",
+            "getAllClients", "filterClients");
+
+    private final CircuitBreaker breaker;
+
+    private final LastKnownGoodCache lastKnownGood;
+
+    @Around("within(net.unir.missi.desarrollowebfullstack.bookabook.repository..*)")
+    public Object guard(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (INSIDE.get() != null) {
+            return joinPoint.proceed();
+        }
+
+        INSIDE.set(Boolean.TRUE);
+        try {
+            String index = this.indexOf(joinPoint);
+            if (index == null || !CACHED_READS.contains(joinPoint.getSignature().getName())) {
+                if (this.breaker.isOpen()) {
+                    throw new CircuitOpenException(this.breaker.getProbeInterval());
+                }
+                return this.call(joinPoint);
+            }
+            return this.read(joinPoint);
+        } finally {
+            INSIDE.remove();
+        }
+    }
+
+    private Object read(ProceedingJoinPoint joinPoint) {
+        String key = key(joinPoint);
+        LastKnownGoodCache.Entry entry = this.lastKnownGood.get(key);
+
+        if (this.breaker.isOpen()) {
+            if (entry == null) {
+                throw new CircuitOpenException(this.breaker.getProbeInterval());
+            }
+            return this.lastKnownGood.serveStale(entry);
+        }
+
+        Object value;
+        try {
+            value = this.call(joinPoint);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Elasticsearch failed or shed the read: an old answer beats an error
+            if (entry == null) {
+                throw e;
+            }
+            return this.lastKnownGood.serveStale(entry);
+        }
+        this.lastKnownGood.put(key, value);
+        return value;
+    }
+
+    private Object call(ProceedingJoinPoint joinPoint) {
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (OverloadedException | IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            this.breaker.onFailure(e);
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            IllegalStateException failure = new IllegalStateException(e);
+            this.breaker.onFailure(failure);
+            throw failure;
+        }
+        this.breaker.onSuccess();
+        return result;
+    }
+
+    private String indexOf(ProceedingJoinPoint joinPoint) {
+        Class<?> repository = joinPoint.getSignature().getDeclaringType();
+        if (repository == ElasticsearchSourceRepository.class) {
+            return (String) joinPoint.getArgs()[0];
+        }
+        return INDICES.get(repository);
+    }
+
+    private static String key(ProceedingJoinPoint joinPoint) {
+        StringJoiner key = new StringJoiner(",", joinPoint.getSignature().toShortString() + "(", ")");
+        for (Object arg : joinPoint.getArgs()) {
+            if (arg instanceof BookDocument book) {
+                key.add("book:" + book.getId());
+            } else if (arg instanceof AuthorDocument author) {
+                key.add("author:" + author.getId());
+            } else {
+                key.add(String.valueOf(arg));
+            }
+        }
+        return key.toString();
+    }
+}
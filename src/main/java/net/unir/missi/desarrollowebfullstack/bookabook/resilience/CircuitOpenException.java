@@ -0,0 +1,18 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.resilience;
+
+import java.time.Duration;
+
+// Elasticsearch is considered down and there is no last known good value to answer with; answered with 503
+public class CircuitOpenException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public CircuitOpenException(Duration retryAfter) {
+        super("The circuit breaker in front of Elasticsearch is open");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return this.retryAfter;
+    }
+}
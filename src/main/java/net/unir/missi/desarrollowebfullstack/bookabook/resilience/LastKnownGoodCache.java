@@ -0,0 +1,64 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.CompactDocuments;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Last value read from Elasticsearch for every read operation. Entries only answer reads Elasticsearch cannot: while
+// the breaker is open or when the read itself failed. A read may depend on more indices than the one of its repository,
+// such as the search of authors by the books they wrote, so no generation could tell that an entry is still current.
+@Component
+public class LastKnownGoodCache {
+
+    private static final String CACHE_NAME = "last-known-good";
+
+    private final Cache<String, Entry> cache;
+
+    private final Counter staleServed;
+
+    private final CompactDocuments compactDocuments;
+
+    public LastKnownGoodCache(MeterRegistry registry, CompactDocuments compactDocuments,
+                              @Value("${bookabook.cache.last-known-good.maximum-size:10000}") long maximumSize,
+                              @Value("${bookabook.cache.last-known-good.max-stale:1h}") Duration maxStale) {
+        this.compactDocuments = compactDocuments;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxStale)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(registry, this.cache, CACHE_NAME);
+        this.staleServed = Counter.builder("bookabook.cache.last-known-good.stale")
+                .description("Reads answered with a stale value because Elasticsearch was unavailable")
+                .register(registry);
+    }
+
+    public Entry get(String key) {
+        return this.cache.getIfPresent(key);
+    }
+
+    public void put(String key, Object value) {
+        this.cache.put(key, new Entry(this.compactDocuments.encode(value), System.nanoTime()));
+    }
+
+    public Object serveStale(Entry entry) {
+        this.staleServed.increment();
+        StaleReads.mark(Duration.ofNanos(entry.ageNanos()));
+        return this.compactDocuments.decode(entry.value());
+    }
+
+    public record Entry(Object value, long storedNanos) {
+
+        long ageNanos() {
+            return System.nanoTime() - this.storedNanos;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.resilience;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+
+// Remembers on the current request that part of its answer came from the last known good cache, and how old it was
+public final class StaleReads {
+
+    private static final String ATTRIBUTE = StaleReads.class.getName() + ".age";
+
+    private StaleReads() {
+    }
+
+    public static void mark(Duration age) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        Duration current = (Duration) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (current == null || age.compareTo(current) > 0) {
+            attributes.setAttribute(ATTRIBUTE, age, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    // Age of the oldest stale value served to the current request, or null when everything was fresh
+    public static Duration age() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                ? (Duration) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                : null;
+    }
+}
@@ -0,0 +1,131 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+// Writes the documents with the same JSON as their BookResponse / AuthorResponse / ClientResponse (same property
+// order, nulls included, unselected fields left out) without building the memory and API objects in between
+public final class DocumentJsonWriter {
+
+    private static final SerializedString ID = new SerializedString("id");
+
+    private static final SerializedString ISBN = new SerializedString("isbn");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString LANGUAGE = new SerializedString("language");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString CATEGORY = new SerializedString("category");
+    private static final SerializedString AUTHOR_ID = new SerializedString("authorId");
+
+    private static final SerializedString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializedString LAST_NAME = new SerializedString("lastName");
+    private static final SerializedString BIRTH_DATE = new SerializedString("birthDate");
+    private static final SerializedString NATIONALITY = new SerializedString("nationality");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString WEB_SITE = new SerializedString("webSite");
+    private static final SerializedString BIOGRAPHY = new SerializedString("biography");
+    private static final SerializedString BOOKS_WRITTEN_ID = new SerializedString("booksWrittenId");
+
+    private static final SerializedString ADDRESS = new SerializedString("address");
+    private static final SerializedString PHONE_NUMBER = new SerializedString("phoneNumber");
+
+    private DocumentJsonWriter() {
+    }
+
+    public static void writeBook(JsonGenerator generator, BookDocument book, FieldSelection fields) throws IOException {
+        generator.writeStartObject();
+        writeLong(generator, ID, book.getId());
+        if (fields.includes("isbn"))
+            writeString(generator, ISBN, book.getIsbn());
+        if (fields.includes("name"))
+            writeString(generator, NAME, book.getName());
+        if (fields.includes("language"))
+            writeString(generator, LANGUAGE, book.getLanguage());
+        if (fields.includes("description"))
+            writeString(generator, DESCRIPTION, book.getDescription());
+        if (fields.includes("category"))
+            writeString(generator, CATEGORY, book.getCategory());
+        if (fields.includes("authorId"))
+            writeLong(generator, AUTHOR_ID, book.getAuthorId());
+        generator.writeEndObject();
+    }
+
+    // booksWrittenId is not stored in the author documents, the ids of the books are given apart
+    public static void writeAuthor(JsonGenerator generator, AuthorDocument author, FieldSelection fields,
+                                   List<Long> booksWrittenId) throws IOException {
+        generator.writeStartObject();
+        writeLong(generator, ID, author.getId());
+        if (fields.includes("firstName"))
+            writeString(generator, FIRST_NAME, author.getFirstName());
+        if (fields.includes("lastName"))
+            writeString(generator, LAST_NAME, author.getLastName());
+        if (fields.includes("birthDate"))
+            writeDate(generator, BIRTH_DATE, author.getBirthDate());
+        if (fields.includes("nationality"))
+            writeString(generator, NATIONALITY, author.getNationality());
+        if (fields.includes("email"))
+            writeString(generator, EMAIL, author.getEmail());
+        if (fields.includes("webSite"))
+            writeString(generator, WEB_SITE, author.getWebSite());
+        if (fields.includes("biography"))
+            writeString(generator, BIOGRAPHY, author.getBiography());
+        if (fields.includes("booksWrittenId")) {
+            generator.writeFieldName(BOOKS_WRITTEN_ID);
+            generator.writeStartArray();
+            if (booksWrittenId != null) {
+                for (Long bookId : booksWrittenId) {
+                    generator.writeNumber(bookId);
+                }
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    public static void writeClient(JsonGenerator generator, ClientDocument client, FieldSelection fields) throws IOException {
+        generator.writeStartObject();
+        writeLong(generator, ID, client.getId());
+        if (fields.includes("firstName"))
+            writeString(generator, FIRST_NAME, client.getFirstName());
+        if (fields.includes("lastName"))
+            writeString(generator, LAST_NAME, client.getLastName());
+        if (fields.includes("address"))
+            writeString(generator, ADDRESS, client.getAddress());
+        if (fields.includes("phoneNumber"))
+            writeString(generator, PHONE_NUMBER, client.getPhoneNumber());
+        if (fields.includes("email"))
+            writeString(generator, EMAIL, client.getEmail());
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, SerializedString name, String value) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeString(value);
+    }
+
+    private static void writeLong(JsonGenerator generator, SerializedString name, Long value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    // ISO-8601 (yyyy-MM-dd), as the JavaTimeModule of the application's ObjectMapper writes LocalDate
+    private static void writeDate(JsonGenerator generator, SerializedString name, LocalDate value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.serialization;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+// Turns the stored _source of a document into the body of its single GET response by copying tokens: internal
+// fields (_class) are dropped, the id is taken from the request, fields missing from the source are written as
+// null and the id lists not stored at all are written from the lists given. The source is written by Spring Data in
+// property order, which is also the order of the responses; a source in any other order is rewritten through a tree.
+public final class SourceJsonRewriter {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final ObjectMapper TREES = new ObjectMapper(JSON);
+
+    private static final SerializedString ID = new SerializedString("id");
+
+    public static final SourceJsonRewriter BOOK = new SourceJsonRewriter(List.of(
+            "isbn", "name", "language", "description", "category", "authorId"), List.of());
+
+    // booksWrittenId is not stored in the author documents, the caller looks it up
+    public static final SourceJsonRewriter AUTHOR = new SourceJsonRewriter(List.of(
+            "firstName", "lastName", "birthDate", "nationality", "email", "webSite", "biography"), List.of("booksWrittenId"));
+
+    public static final SourceJsonRewriter CLIENT = new SourceJsonRewriter(List.of(
+            "firstName", "lastName", "address", "phoneNumber", "email"), List.of());
+
+    private final List<String> stored;
+
+    private final SerializedString[] storedNames;
+
+    private final List<String> idLists;
+
+    private SourceJsonRewriter(List<String> stored, List<String> idLists) {
+        this.stored = stored;
+        this.storedNames = stored.stream().map(SerializedString::new).toArray(SerializedString[]::new);
+        this.idLists = idLists;
+    }
+
+    public byte[] rewrite(Long id, byte[] source, FieldSelection fields) throws IOException {
+        return this.rewrite(id, source, fields, Map.of());
+    }
+
+    public byte[] rewrite(Long id, byte[] source, FieldSelection fields, Map<String, List<Long>> idLists)
+            throws IOException {
+        ByteArrayBuilder out = new ByteArrayBuilder(source.length + 64);
+        if (!this.copyInOrder(id, source, fields, idLists, out)) {
+            out.reset();
+            this.copyThroughTree(id, source, fields, idLists, out);
+        }
+        return out.toByteArray();
+    }
+
+    // False if the source fields are not in the expected order
+    private boolean copyInOrder(Long id, byte[] source, FieldSelection fields, Map<String, List<Long>> idLists,
+                                ByteArrayBuilder out) throws IOException {
+        try (JsonParser parser = JSON.createParser(source);
+             JsonGenerator generator = JSON.createGenerator(out)) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The _source of document " + id + " is not an object");
+            }
+            generator.writeStartObject();
+            generator.writeFieldName(ID);
+            generator.writeNumber(id);
+
+            int next = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                int position = this.stored.indexOf(name);
+                if (position < 0 || !fields.includes(name)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (position < next) {
+                    return false;
+                }
+                for (; next < position; next++) {
+                    this.writeNullIfSelected(generator, next, fields);
+                }
+                generator.writeFieldName(this.storedNames[position]);
+                generator.copyCurrentStructure(parser);
+                next = position + 1;
+            }
+            for (; next < this.stored.size(); next++) {
+                this.writeNullIfSelected(generator, next, fields);
+            }
+            this.writeIdLists(generator, fields, idLists);
+            generator.writeEndObject();
+        }
+        return true;
+    }
+
+    private void copyThroughTree(Long id, byte[] source, FieldSelection fields, Map<String, List<Long>> idLists,
+                                 ByteArrayBuilder out) throws IOException {
+        ObjectNode document = (ObjectNode) TREES.readTree(source);
+        try (JsonGenerator generator = JSON.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeFieldName(ID);
+            generator.writeNumber(id);
+            for (int i = 0; i < this.stored.size(); i++) {
+                if (fields.includes(this.stored.get(i))) {
+                    JsonNode value = document.get(this.stored.get(i));
+                    generator.writeFieldName(this.storedNames[i]);
+                    TREES.writeTree(generator, value != null ? value : TREES.nullNode());
+                }
+            }
+            this.writeIdLists(generator, fields, idLists);
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeNullIfSelected(JsonGenerator generator, int position, FieldSelection fields) throws IOException {
+        if (fields.includes(this.stored.get(position))) {
+            generator.writeFieldName(this.storedNames[position]);
+            generator.writeNull();
+        }
+    }
+
+    private void writeIdLists(JsonGenerator generator, FieldSelection fields, Map<String, List<Long>> idLists)
+            throws IOException {
+        for (String name : this.idLists) {
+            if (fields.includes(name)) {
+                generator.writeFieldName(name);
+                generator.writeStartArray();
+                for (Long value : idLists.getOrDefault(name, List.of())) {
+                    generator.writeNumber(value);
+                }
+                generator.writeEndArray();
+            }
+        }
+    }
+}
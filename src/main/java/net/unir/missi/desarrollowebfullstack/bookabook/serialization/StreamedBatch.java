@@ -0,0 +1,77 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.StreamedList.DocumentWriter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+// Response body of the batch lookups by id: {"documents": [...], "missing": [...]}, the documents found in the order
+// of the requested ids and the ids that were not found
+public final class StreamedBatch<T> implements JsonSerializable {
+
+    private final List<Long> ids;
+
+    private final List<T> documents;
+
+    private final FieldSelection fields;
+
+    private final DocumentWriter<T> writer;
+
+    // documents holds one element per id, null for the missing ones
+    private StreamedBatch(List<Long> ids, List<T> documents, FieldSelection fields, DocumentWriter<T> writer) {
+        this.ids = ids;
+        this.documents = documents;
+        this.fields = fields;
+        this.writer = writer;
+    }
+
+    public static StreamedBatch<BookDocument> books(List<Long> ids, List<BookDocument> documents, FieldSelection fields) {
+        return new StreamedBatch<>(ids, documents, fields, DocumentJsonWriter::writeBook);
+    }
+
+    // booksWritten holds the ids of the books of each author, when booksWrittenId is selected
+    public static StreamedBatch<AuthorDocument> authors(List<Long> ids, List<AuthorDocument> documents, FieldSelection fields,
+                                                        Map<Long, List<Long>> booksWritten) {
+        return new StreamedBatch<>(ids, documents, fields, (generator, author, selected) ->
+                DocumentJsonWriter.writeAuthor(generator, author, selected, booksWritten.get(author.getId())));
+    }
+
+    public static StreamedBatch<ClientDocument> clients(List<Long> ids, List<ClientDocument> documents, FieldSelection fields) {
+        return new StreamedBatch<>(ids, documents, fields, DocumentJsonWriter::writeClient);
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("documents");
+        for (T document : this.documents) {
+            if (document != null) {
+                this.writer.write(generator, document, this.fields);
+            }
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("missing");
+        for (int i = 0; i < this.ids.size(); i++) {
+            if (this.documents.get(i) == null) {
+                generator.writeNumber(this.ids.get(i));
+            }
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSerializer)
+            throws IOException {
+        this.serialize(generator, serializers);
+    }
+}
@@ -0,0 +1,70 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+// Response body of the list endpoints. Jackson hands its generator to serialize(), so the documents are written
+// straight to the response by the usual message converter.
+public final class StreamedList<T> implements JsonSerializable {
+
+    @FunctionalInterface
+    public interface DocumentWriter<T> {
+        void write(JsonGenerator generator, T document, FieldSelection fields) throws IOException;
+    }
+
+    private final List<T> documents;
+
+    private final FieldSelection fields;
+
+    private final DocumentWriter<T> writer;
+
+    private StreamedList(List<T> documents, FieldSelection fields, DocumentWriter<T> writer) {
+        this.documents = documents;
+        this.fields = fields;
+        this.writer = writer;
+    }
+
+    public static StreamedList<BookDocument> books(List<BookDocument> documents, FieldSelection fields) {
+        return new StreamedList<>(documents, fields, DocumentJsonWriter::writeBook);
+    }
+
+    // booksWritten holds the ids of the books of each author, when booksWrittenId is selected
+    public static StreamedList<AuthorDocument> authors(List<AuthorDocument> documents, FieldSelection fields,
+                                                       Map<Long, List<Long>> booksWritten) {
+        return new StreamedList<>(documents, fields, (generator, author, selected) ->
+                DocumentJsonWriter.writeAuthor(generator, author, selected, booksWritten.get(author.getId())));
+    }
+
+    public static StreamedList<ClientDocument> clients(List<ClientDocument> documents, FieldSelection fields) {
+        return new StreamedList<>(documents, fields, DocumentJsonWriter::writeClient);
+    }
+
+    public List<T> getDocuments() {
+        return this.documents;
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+        generator.writeStartArray(this.documents, this.documents.size());
+        for (T document : this.documents) {
+            this.writer.write(generator, document, this.fields);
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSerializer)
+            throws IOException {
+        this.serialize(generator, serializers);
+    }
+}
@@ -1,26 +1,40 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.service;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.AuthorResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Author;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.DocumentWeigher;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.QueryKey;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.QueryResultCache;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.AuthorAPIConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.BookAPIConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.memory.AuthorMemoryConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.memory.BookMemoryConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.popularity.PopularityTracker;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 import net.unir.missi.desarrollowebfullstack.bookabook.repository.AuthorRepository;
 import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchSourceRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.SourceJsonRewriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 @Service
 @Slf4j
 public class AuthorService implements IAuthorService{
+
+    private static final FieldSelection BOOK_AUTHOR = FieldSelection.parse("authorId");
+
     @Autowired
     private AuthorRepository authorRepository;
 
@@ -30,8 +44,31 @@ public class AuthorService implements IAuthorService{
     @Autowired
     private AuthorMemoryConverter authorMemoryConverter;
 
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private ElasticsearchSourceRepository sourceRepository;
+
+    @Autowired
+    private PopularityTracker popularityTracker;
+
+    @Override
+    public List<Author> getAllAuthors(String firstName, String lastName, LocalDate birthDate, String nationality, String email, String webSite, String biography, Long bookId, FieldSelection fields) throws RuntimeException
+    {
+            List<AuthorDocument> authors = this.getAuthorDocuments(firstName, lastName, birthDate, nationality, email, webSite, biography, bookId, fields);
+            if (authors == null) {
+                return null;
+            }
+            return authors.stream().map(
+                    (AuthorDocument d) -> {
+                        return this.authorMemoryConverter.fromDocument(d, fields);
+                    })
+                    .collect(Collectors.toList());
+    }
+
     @Override
-    public List<Author> getAllAuthors(String firstName, String lastName, LocalDate birthDate, String nationality, String email, String webSite, String biography, Long bookId) throws RuntimeException
+    public List<AuthorDocument> getAuthorDocuments(String firstName, String lastName, LocalDate birthDate, String nationality, String email, String webSite, String biography, Long bookId, FieldSelection fields) throws RuntimeException
     {
             if (firstName!=null
                     || lastName!=null
@@ -44,23 +81,73 @@ public class AuthorService implements IAuthorService{
 
                 BookDocument bookList;
                 if(bookId!=null) {
-                    bookList = bookRepository.getById(bookId);
+                    // Only its authorId is needed to find its author
+                    bookList = bookRepository.getById(bookId, BOOK_AUTHOR);
                     if (bookList == null) {
                         return null;
                     }
                 } else
                     bookList = null;
-                return authorRepository.search(firstName,lastName, birthDate,nationality,email,webSite,biography,bookList).stream().map(
-                        (AuthorDocument d) -> {
-                            return this.authorMemoryConverter.fromDocument(d);
-                        })
-                        .collect(Collectors.toList());
+                QueryKey key = QueryKey.on(AuthorDocument.INDEX_NAME, BookDocument.INDEX_NAME)
+                        .param("firstName", firstName)
+                        .param("lastName", lastName)
+                        .param("birthDate", birthDate)
+                        .param("nationality", nationality)
+                        .param("email", email)
+                        .param("webSite", webSite)
+                        .param("biography", biography)
+                        .param("bookId", bookId)
+                        .param("fields", fields);
+                return queryResultCache.get(key,
+                        () -> authorRepository.search(firstName,lastName, birthDate,nationality,email,webSite,biography,bookList,fields),
+                        DocumentWeigher::weigh);
 
             }else {
-                return authorRepository.findAll().stream().map( (AuthorDocument d) -> {
-                    return this.authorMemoryConverter.fromDocument(d);
-                }).collect(Collectors.toList());
+                QueryKey key = QueryKey.on(AuthorDocument.INDEX_NAME).param("fields", fields);
+                return queryResultCache.get(key, () -> authorRepository.findAll(fields), DocumentWeigher::weigh);
+            }
+    }
+
+    @Override
+    public List<BookDocument> getAuthorBooks(String idAuthor, int page, int size, FieldSelection fields) throws RuntimeException
+    {
+            Long id = Long.valueOf(idAuthor);
+            QueryKey key = QueryKey.on(BookDocument.INDEX_NAME)
+                    .param("authorId", id)
+                    .param("page", page)
+                    .param("size", size)
+                    .param("fields", fields);
+            List<BookDocument> books = queryResultCache.get(key,
+                    () -> bookRepository.getBooksByAuthor(id, page, size, fields),
+                    DocumentWeigher::weigh);
+            // Only an empty page needs telling an author without books from a missing one
+            if (books.isEmpty() && authorRepository.getById(id) == null) {
+                return null;
             }
+            return books;
+    }
+
+    @Override
+    public Map<Long, List<Long>> getBooksWrittenIds(List<AuthorDocument> authors, FieldSelection fields) throws RuntimeException
+    {
+            if (!fields.includes("booksWrittenId")) {
+                return Map.of();
+            }
+            List<Long> ids = authors.stream()
+                    .filter(Objects::nonNull)
+                    .map(AuthorDocument::getId)
+                    .distinct()
+                    .collect(Collectors.toList());
+            Map<Long, List<Long>> booksWritten = new HashMap<>();
+            if (ids.isEmpty()) {
+                return booksWritten;
+            }
+            List<List<Long>> books = queryResultCache.getEach(BookDocument.INDEX_NAME, "authorId", ids,
+                    bookRepository::getBookIdsByAuthors, written -> 16L + 24L * written.size());
+            for (int i = 0; i < ids.size(); i++) {
+                booksWritten.put(ids.get(i), books.get(i));
+            }
+            return booksWritten;
     }
 
     @Override
@@ -69,16 +156,56 @@ public class AuthorService implements IAuthorService{
         return this.authorMemoryConverter.fromDocument(this.authorRepository.save(this.authorMemoryConverter.toDocument(author)));
     }
 
+    @Override
+    public List<AuthorDocument> getAuthorDocumentsByIds(List<Long> ids) throws RuntimeException
+    {
+            List<AuthorDocument> authors = queryResultCache.getEach(AuthorDocument.INDEX_NAME, ids,
+                    authorRepository::getByIds, DocumentWeigher::weigh);
+            for (int i = 0; i < ids.size(); i++) {
+                if (authors.get(i) != null)
+                    this.popularityTracker.record(AuthorDocument.INDEX_NAME, ids.get(i));
+            }
+            return authors;
+    }
+
     @Override
     public Author getAuthorById(String idAuthor) throws RuntimeException
     {
-            AuthorDocument authorDocumentModel = this.authorRepository.getById(Long.valueOf(idAuthor));
-            if (authorDocumentModel != null)
-                return this.authorMemoryConverter.fromDocument(authorDocumentModel);
+            return this.getAuthorById(idAuthor, FieldSelection.ALL);
+    }
+
+    @Override
+    public Author getAuthorById(String idAuthor, FieldSelection fields) throws RuntimeException
+    {
+            Long id = Long.valueOf(idAuthor);
+            AuthorDocument authorDocumentModel = this.authorRepository.getById(id, fields);
+            if (authorDocumentModel != null) {
+                this.popularityTracker.record(AuthorDocument.INDEX_NAME, id);
+                return this.authorMemoryConverter.fromDocument(authorDocumentModel, fields);
+            }
             else
                 return null;
     }
 
+    @Override
+    public byte[] getAuthorJson(String idAuthor, FieldSelection fields) throws RuntimeException
+    {
+            Long id = Long.valueOf(idAuthor);
+            byte[] source = this.sourceRepository.getSource(AuthorDocument.INDEX_NAME, id, fields);
+            if (source == null)
+                return null;
+            this.popularityTracker.record(AuthorDocument.INDEX_NAME, id);
+            AuthorDocument author = new AuthorDocument();
+            author.setId(id);
+            Map<Long, List<Long>> booksWritten = this.getBooksWrittenIds(List.of(author), fields);
+            try {
+                return SourceJsonRewriter.AUTHOR.rewrite(id, source, fields, booksWritten.isEmpty() ? Map.of()
+                        : Map.of("booksWrittenId", booksWritten.get(id)));
+            } catch (IOException e) {
+                throw new RuntimeException("The author " + idAuthor + " could not be read", e);
+            }
+    }
+
     @Override
     public Author modifyAuthorData(Author tempAuthor, Author authorData) throws RuntimeException
     {
@@ -127,4 +254,16 @@ public class AuthorService implements IAuthorService{
 
     }
 
+    @Override
+    public String deleteAuthorBooks(Author prev) throws RuntimeException
+    {
+        return bookRepository.deleteByQuery(null, null, null, null, null, prev.id());
+    }
+
+    @Override
+    public String deleteAuthors(String firstName, String lastName, LocalDate birthDate, String nationality, String email, String webSite, String biography) throws RuntimeException
+    {
+        return authorRepository.deleteByQuery(firstName, lastName, birthDate, nationality, email, webSite, biography);
+    }
+
 }
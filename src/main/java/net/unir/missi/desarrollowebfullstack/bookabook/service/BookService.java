@@ -8,20 +8,27 @@ import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
 import lombok.extern.slf4j.Slf4j;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.BookResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Book;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.DocumentWeigher;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.QueryKey;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.QueryResultCache;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.BookAPIConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.memory.BookMemoryConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.popularity.PopularityTracker;
 import net.unir.missi.desarrollowebfullstack.bookabook.repository.AuthorRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchSourceRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.SourceJsonRewriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,9 +44,43 @@ public class BookService implements IBookService {
     @Autowired
     private BookMemoryConverter bookMemoryConverter;
 
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private ElasticsearchSourceRepository sourceRepository;
+
+    @Autowired
+    private PopularityTracker popularityTracker;
+
     @Override
     public List<Book> getBooks(String isbn, String name, String language, String description,
-                               String category, Long authorId) {
+                               String category, Long authorId, FieldSelection fields) {
+
+        List<BookDocument> books = this.getBookDocuments(isbn, name, language, description, category, authorId, fields);
+        if (books == null) {
+            return null;
+        }
+
+        return books.stream().map(
+                (BookDocument b) ->
+                {
+                    return this.bookMemoryConverter.fromDocument(b, fields);
+                }
+        )
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BookDocument> getBookDocuments(String isbn, String name, String language, String description,
+                                               String category, Long authorId, FieldSelection fields) {
+        return this.getBookDocuments(isbn, name, language, description, category, authorId, fields, false);
+    }
+
+    @Override
+    public List<BookDocument> getBookDocuments(String isbn, String name, String language, String description,
+                                               String category, Long authorId, FieldSelection fields,
+                                               boolean byPopularity) {
 
         List<BookDocument> books;
         if (StringUtils.hasLength(isbn) || StringUtils.hasLength(name) ||
@@ -56,25 +97,67 @@ public class BookService implements IBookService {
             } else {
                 authorDocument = null;
             }
-            books = bookRepository.search(isbn, name, language, description, category, authorDocument);
+            QueryKey key = QueryKey.on(BookDocument.INDEX_NAME)
+                    .param("isbn", isbn)
+                    .param("name", name)
+                    .param("language", language)
+                    .param("description", description)
+                    .param("category", category)
+                    .param("authorId", authorId)
+                    .param("fields", fields)
+                    .param("sort", byPopularity ? "popularity" : null);
+            books = queryResultCache.get(key,
+                    () -> bookRepository.search(isbn, name, language, description, category, authorDocument, fields,
+                            byPopularity),
+                    DocumentWeigher::weigh);
         } else {
-            books = bookRepository.getBooks();
+            QueryKey key = QueryKey.on(BookDocument.INDEX_NAME)
+                    .param("fields", fields)
+                    .param("sort", byPopularity ? "popularity" : null);
+            books = queryResultCache.get(key, () -> bookRepository.getBooks(fields, byPopularity), DocumentWeigher::weigh);
         }
-        Logger.getGlobal().warning("the books in service are: " + books.toString());
-        Logger.getGlobal().warning("the books in service are: " + bookRepository.getBooks().toString());
+        return books;
+    }
 
-        return books.stream().map(
-                (BookDocument b) ->
-                {
-                    return this.bookMemoryConverter.fromDocument(b);
-                }
-        )
-                .collect(Collectors.toList());
+    @Override
+    public List<BookDocument> getBookDocumentsByIds(List<Long> ids) {
+        List<BookDocument> books = this.queryResultCache.getEach(BookDocument.INDEX_NAME, ids,
+                this.bookRepository::getByIds, DocumentWeigher::weigh);
+        for (int i = 0; i < ids.size(); i++) {
+            if (books.get(i) != null) {
+                this.popularityTracker.record(BookDocument.INDEX_NAME, ids.get(i));
+            }
+        }
+        return books;
     }
 
     @Override
     public Book getBook(String bookId) {
-        return this.bookMemoryConverter.fromDocument(this.bookRepository.getById(Long.valueOf(bookId)));
+        return this.getBook(bookId, FieldSelection.ALL);
+    }
+
+    @Override
+    public Book getBook(String bookId, FieldSelection fields) {
+        Long id = Long.valueOf(bookId);
+        BookDocument book = this.bookRepository.getById(id, fields);
+        if (book != null) {
+            this.popularityTracker.record(BookDocument.INDEX_NAME, id);
+        }
+        return this.bookMemoryConverter.fromDocument(book, fields);
+    }
+
+    @Override
+    public byte[] getBookJson(String bookId, FieldSelection fields) {
+        Long id = Long.valueOf(bookId);
+        byte[] source = this.sourceRepository.getSource(BookDocument.INDEX_NAME, id, fields);
+        if (source != null) {
+            this.popularityTracker.record(BookDocument.INDEX_NAME, id);
+        }
+        try {
+            return source != null ? SourceJsonRewriter.BOOK.rewrite(id, source, fields) : null;
+        } catch (IOException e) {
+            throw new RuntimeException("The book " + bookId + " could not be read", e);
+        }
     }
 
     @Override
@@ -83,10 +166,7 @@ public class BookService implements IBookService {
         BookDocument book = bookRepository.getById(Long.valueOf(bookId));
 
         if (book != null) {
-            // Remove the association with author
-            book.setAuthorDocument(null);
-            bookRepository.save(book);
-            // Delete the book
+            // The association with the author is stored in the book itself, so deleting it is enough
             bookRepository.delete(book);
             return Boolean.TRUE;
         } else {
@@ -94,6 +174,11 @@ public class BookService implements IBookService {
         }
     }
 
+    @Override
+    public String removeBooks(String isbn, String name, String language, String description, String category, Long authorId) {
+        return bookRepository.deleteByQuery(isbn, name, language, description, category, authorId);
+    }
+
     @Override
     public Book createBook(Book request) {
 
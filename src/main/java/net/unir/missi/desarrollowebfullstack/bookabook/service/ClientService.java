@@ -8,17 +8,28 @@ import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
 import lombok.extern.slf4j.Slf4j;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.ClientResponse;
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Client;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.DocumentWeigher;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.QueryResultCache;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.AuthorAPIConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.ClientAPIConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.memory.AuthorMemoryConverter;
 import net.unir.missi.desarrollowebfullstack.bookabook.converter.memory.ClientMemoryConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.identification.ClientContactIndex;
+import net.unir.missi.desarrollowebfullstack.bookabook.identification.ContactNormalizer;
 import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 import net.unir.missi.desarrollowebfullstack.bookabook.repository.ClientRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchSourceRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.serialization.SourceJsonRewriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,8 +42,29 @@ public class ClientService implements IClientService {
     @Autowired
     private ClientMemoryConverter clientMemoryConverter;
 
+    @Autowired
+    private ElasticsearchSourceRepository sourceRepository;
+
+    @Autowired
+    private QueryResultCache queryResultCache;
+
+    @Autowired
+    private ContactNormalizer contactNormalizer;
+
+    @Autowired
+    private ClientContactIndex contactIndex;
+
+    @Override
+    public List<Client> getFilterClients(String firstName, String lastName, String address, String phoneNumber, String email, FieldSelection fields) {
+
+        return this.getClientDocuments(firstName, lastName, address, phoneNumber, email, fields).stream().map((ClientDocument c) ->
+        {
+            return this.clientMemoryConverter.fromDocument(c);
+        }).collect(Collectors.toList());
+    }
+
     @Override
-    public List<Client> getFilterClients(String firstName, String lastName, String address, String phoneNumber, String email) {
+    public List<ClientDocument> getClientDocuments(String firstName, String lastName, String address, String phoneNumber, String email, FieldSelection fields) {
 
         if (firstName!=null
                 || lastName!=null
@@ -40,21 +72,87 @@ public class ClientService implements IClientService {
                 || phoneNumber!=null
                 || email!=null) {
 
-            return clientRepository.filterClients(firstName, lastName, address, phoneNumber, email).stream().map((ClientDocument c) ->
-            {
-                return this.clientMemoryConverter.fromDocument(c);
-            }).collect(Collectors.toList());
+            return clientRepository.filterClients(firstName, lastName, address, phoneNumber, email, fields);
         }else{
-            return clientRepository.getAllClients().stream().map((ClientDocument c) ->
-            {
-                return this.clientMemoryConverter.fromDocument(c);
-            }).collect(Collectors.toList());
+            return clientRepository.getAllClients(fields);
+        }
+    }
+
+    @Override
+    public List<ClientDocument> getClientDocumentsByIds(List<Long> ids) {
+        return queryResultCache.getEach(ClientDocument.INDEX_NAME, ids, clientRepository::getClientsByIds,
+                DocumentWeigher::weigh);
+    }
+
+    @Override
+    public List<ClientDocument> getClientsByEmail(String email) {
+        String key = contactNormalizer.email(email);
+        if (key == null) {
+            return null;
         }
+        return this.identify(key, contactIndex.byEmail(key), client -> contactNormalizer.email(client.getEmail()),
+                clientRepository::getClientsByEmailKey);
+    }
+
+    @Override
+    public List<ClientDocument> getClientsByPhone(String phone) {
+        String key = contactNormalizer.phone(phone);
+        if (key == null) {
+            return null;
+        }
+        return this.identify(key, contactIndex.byPhone(key), client -> contactNormalizer.phone(client.getPhoneNumber()),
+                clientRepository::getClientsByPhoneKey);
+    }
+
+    // The term lookup finds what every instance wrote, once Elasticsearch has refreshed it; the contact index adds
+    // what this instance wrote and the lookup may not see yet. Indexed ids are fetched by id (through the cache) and
+    // checked, since other instances may have changed or deleted them.
+    private List<ClientDocument> identify(String key, Set<Long> indexed, Function<ClientDocument, String> normalized,
+                                          Function<String, List<ClientDocument>> termLookup) {
+        List<ClientDocument> found = termLookup.apply(key);
+        found.forEach(contactIndex::put);
+        if (indexed == null) {
+            return found;
+        }
+        Set<Long> foundIds = found.stream().map(ClientDocument::getId).collect(Collectors.toSet());
+        List<Long> ids = indexed.stream().filter(id -> !foundIds.contains(id)).sorted().collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return found;
+        }
+        List<ClientDocument> matching = new ArrayList<>(found);
+        List<ClientDocument> clients = this.getClientDocumentsByIds(ids);
+        for (int i = 0; i < ids.size(); i++) {
+            ClientDocument client = clients.get(i);
+            if (client != null && key.equals(normalized.apply(client))) {
+                matching.add(client);
+            } else if (client != null) {
+                contactIndex.put(client);
+            } else {
+                contactIndex.remove(ids.get(i));
+            }
+        }
+        return matching;
     }
 
     @Override
     public Client getClient(String clientId) {
-        return this.clientMemoryConverter.fromDocument(clientRepository.getClientById(Long.valueOf(clientId)));
+        return this.getClient(clientId, FieldSelection.ALL);
+    }
+
+    @Override
+    public Client getClient(String clientId, FieldSelection fields) {
+        return this.clientMemoryConverter.fromDocument(clientRepository.getClientById(Long.valueOf(clientId), fields));
+    }
+
+    @Override
+    public byte[] getClientJson(String clientId, FieldSelection fields) {
+        Long id = Long.valueOf(clientId);
+        byte[] source = this.sourceRepository.getSource(ClientDocument.INDEX_NAME, id, fields);
+        try {
+            return source != null ? SourceJsonRewriter.CLIENT.rewrite(id, source, fields) : null;
+        } catch (IOException e) {
+            throw new RuntimeException("The client " + clientId + " could not be read", e);
+        }
     }
 
     @Override
@@ -70,6 +168,11 @@ public class ClientService implements IClientService {
         }
     }
 
+    @Override
+    public String deleteClients(String firstName, String lastName, String address, String phoneNumber, String email) {
+        return clientRepository.deleteByQuery(firstName, lastName, address, phoneNumber, email);
+    }
+
     @Override
     public Client addClient(Client requestClient) {
 
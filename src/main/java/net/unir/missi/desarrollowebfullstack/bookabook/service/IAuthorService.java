@@ -1,21 +1,46 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.service;
 
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Author;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 public interface IAuthorService {
 
-    List<Author> getAllAuthors(String firstName, String lastName, LocalDate birthDate, String nationality, String email, String webSite, String biography, Long booksWritten) throws RuntimeException;
+    List<Author> getAllAuthors(String firstName, String lastName, LocalDate birthDate, String nationality, String email, String webSite, String biography, Long booksWritten, FieldSelection fields) throws RuntimeException;
+
+    // Same search as getAllAuthors, without the conversion to memory objects. Null if the book does not exist.
+    List<AuthorDocument> getAuthorDocuments(String firstName, String lastName, LocalDate birthDate, String nationality, String email, String webSite, String biography, Long booksWritten, FieldSelection fields) throws RuntimeException;
+
+    // One page of the books of the author in id order, or null if the author does not exist
+    List<BookDocument> getAuthorBooks(String idAuthor, int page, int size, FieldSelection fields) throws RuntimeException;
+
+    // Ids of the books written by each of the authors, or an empty map if booksWrittenId is not selected
+    Map<Long, List<Long>> getBooksWrittenIds(List<AuthorDocument> authors, FieldSelection fields) throws RuntimeException;
 
     Author createAuthor(Author author) throws RuntimeException;
 
+    // Whole documents in the order of the distinct ids, with null for the missing ones
+    List<AuthorDocument> getAuthorDocumentsByIds(List<Long> ids) throws RuntimeException;
+
     Author getAuthorById(String idAuthor) throws RuntimeException;
 
+    Author getAuthorById(String idAuthor, FieldSelection fields) throws RuntimeException;
+
+    // Response body of a single author built from its stored _source, or null if it does not exist
+    byte[] getAuthorJson(String idAuthor, FieldSelection fields) throws RuntimeException;
+
     Author modifyAllAuthorData(Author prev, Author authorData) throws RuntimeException;
 
     Author modifyAuthorData(Author prev, Author authorData) throws RuntimeException;
 
     Author deleteAuthor(Author prev) throws RuntimeException;
+
+    String deleteAuthorBooks(Author prev) throws RuntimeException;
+
+    String deleteAuthors(String firstName, String lastName, LocalDate birthDate, String nationality, String email, String webSite, String biography) throws RuntimeException;
 }
@@ -1,6 +1,8 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.service;
 
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Book;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 
 import java.util.List;
 
@@ -8,12 +10,30 @@ import java.util.List;
 public interface IBookService {
 
     List<Book> getBooks(String isbn, String name, String language, String description,
-                        String category, Long authorId);
+                        String category, Long authorId, FieldSelection fields);
+
+    // Same search as getBooks, without the conversion to memory objects. Null if the author does not exist.
+    List<BookDocument> getBookDocuments(String isbn, String name, String language, String description,
+                                        String category, Long authorId, FieldSelection fields);
+
+    // Same, most read books first
+    List<BookDocument> getBookDocuments(String isbn, String name, String language, String description,
+                                        String category, Long authorId, FieldSelection fields, boolean byPopularity);
+
+    // Whole documents in the order of the distinct ids, with null for the missing ones
+    List<BookDocument> getBookDocumentsByIds(List<Long> ids);
 
     Book getBook(String bookId);
 
+    Book getBook(String bookId, FieldSelection fields);
+
+    // Response body of a single book built from its stored _source, or null if it does not exist
+    byte[] getBookJson(String bookId, FieldSelection fields);
+
     Boolean removeBook(String bookId);
 
+    String removeBooks(String isbn, String name, String language, String description, String category, Long authorId);
+
     Book createBook(Book request);
 
     Book updateBookAttributes(String bookId, Book updateRequest);
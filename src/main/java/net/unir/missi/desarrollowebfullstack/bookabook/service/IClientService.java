@@ -1,20 +1,41 @@
 package net.unir.missi.desarrollowebfullstack.bookabook.service;
 
 import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.Client;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
 
 import java.util.List;
 
 
 public interface IClientService {
 
-    List<Client> getFilterClients(String firstName, String lastName, String address, String phoneNumber, String email);
+    List<Client> getFilterClients(String firstName, String lastName, String address, String phoneNumber, String email, FieldSelection fields);
+
+    // Same search as getFilterClients, without the conversion to memory objects
+    List<ClientDocument> getClientDocuments(String firstName, String lastName, String address, String phoneNumber, String email, FieldSelection fields);
+
+    // Whole documents in the order of the distinct ids, with null for the missing ones
+    List<ClientDocument> getClientDocumentsByIds(List<Long> ids);
+
+    // Clients whose email is the given one once normalized, or null if it is blank
+    List<ClientDocument> getClientsByEmail(String email);
+
+    // Clients whose phone number is the given one once normalized, or null if it is not a phone number
+    List<ClientDocument> getClientsByPhone(String phone);
 
     Client getClient(String clientId);
 
+    Client getClient(String clientId, FieldSelection fields);
+
+    // Response body of a single client built from its stored _source, or null if it does not exist
+    byte[] getClientJson(String clientId, FieldSelection fields);
+
     Client addClient(Client requestClient);
 
     Boolean deleteClient(String clientId);
 
+    String deleteClients(String firstName, String lastName, String address, String phoneNumber, String email);
+
     Client updateClient(String clientId, Client requestClient);
 
     Client updateClientAttribute(String clientId, Client requestClientAttribute);
@@ -0,0 +1,24 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.service;
+
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AvailabilityDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ReservationDocument;
+
+public interface IReservationService {
+
+    // Null if the book or the client does not exist
+    ReservationDocument reserve(Long bookId, Long clientId);
+
+    ReservationDocument getReservation(String reservationId);
+
+    // Null if the reservation does not exist
+    ReservationDocument returnReservation(String reservationId);
+
+    // Number of reservations expired
+    int expireDue();
+
+    // Null if the book does not exist
+    AvailabilityDocument getAvailability(Long bookId);
+
+    // Null if the book does not exist
+    AvailabilityDocument setCopies(Long bookId, int copies);
+}
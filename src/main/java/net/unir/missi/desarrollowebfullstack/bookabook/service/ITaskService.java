@@ -0,0 +1,9 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.service;
+
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.DeleteTask;
+
+
+public interface ITaskService {
+
+    DeleteTask getDeleteTask(String taskId);
+}
@@ -0,0 +1,194 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.admission.OverloadedException;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AvailabilityDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ReservationDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ClientRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchReservationRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchReservationRepository.Versioned;
+import net.unir.missi.desarrollowebfullstack.bookabook.reservation.CopyLedger;
+import net.unir.missi.desarrollowebfullstack.bookabook.reservation.ReservationConflictException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Service
+@Slf4j
+public class ReservationService implements IReservationService {
+
+    @Autowired
+    private ElasticsearchReservationRepository reservationRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private CopyLedger copyLedger;
+
+    @Value("${bookabook.reservations.duration:14d}")
+    private Duration duration;
+
+    @Value("${bookabook.reservations.pending-timeout:1m}")
+    private Duration pendingTimeout;
+
+    @Value("${bookabook.reservations.expire-batch-size:500}")
+    private int expireBatchSize;
+
+    // Closed reservations whose copy could not be given back, retried on the next expiry
+    private final Queue<ReservationDocument> unreleased = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public ReservationDocument reserve(Long bookId, Long clientId) {
+        if (bookRepository.getById(bookId) == null || clientRepository.getClientById(clientId) == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        // Random ids, so that instances never number two reservations the same
+        ReservationDocument pending = ReservationDocument.builder()
+                .id(UUID.randomUUID().toString())
+                .bookId(bookId)
+                .clientId(clientId)
+                .status(ReservationDocument.PENDING)
+                .reservedAt(now)
+                .expiresAt(now + duration.toMillis())
+                .build();
+        // Written before the copy is taken: if anything fails from here on, the copy may be taken or not, and the
+        // pending reservation is what lets the expiry give it back after pending-timeout. The ledger knows which
+        // reservations hold a copy, so that only gives back one this reservation took.
+        Versioned<ReservationDocument> written = reservationRepository.saveReservation(pending, null);
+        boolean taken;
+        try {
+            taken = copyLedger.take(bookId, pending.getId());
+        } catch (OverloadedException e) {
+            // Every attempt lost its conditional write, so nothing was taken
+            this.cancel(written);
+            throw e;
+        }
+        if (!taken) {
+            this.cancel(written);
+            throw new ReservationConflictException("Every copy of book " + bookId + " is reserved");
+        }
+
+        ReservationDocument active = pending.toBuilder().status(ReservationDocument.ACTIVE).build();
+        if (reservationRepository.saveReservation(active, written) == null) {
+            // Pending for longer than pending-timeout: the expiry closed it and gave the copy back
+            throw new RuntimeException("The reservation " + pending.getId() + " expired before it was confirmed");
+        }
+        return active;
+    }
+
+    @Override
+    public ReservationDocument getReservation(String reservationId) {
+        Versioned<ReservationDocument> reservation = reservationRepository.getReservation(reservationId);
+        return reservation != null ? reservation.value() : null;
+    }
+
+    @Override
+    public ReservationDocument returnReservation(String reservationId) {
+        // A conflict means it was returned or expired meanwhile, which the next read tells
+        while (true) {
+            Versioned<ReservationDocument> reservation = reservationRepository.getReservation(reservationId);
+            if (reservation == null) {
+                return null;
+            }
+            Versioned<ReservationDocument> returned = this.close(reservation, ReservationDocument.RETURNED);
+            if (returned != null) {
+                return returned.value();
+            }
+        }
+    }
+
+    @Override
+    public int expireDue() {
+        for (int i = unreleased.size(); i > 0; i--) {
+            ReservationDocument closed = unreleased.poll();
+            if (closed == null) {
+                break;
+            }
+            this.release(closed);
+        }
+
+        long now = System.currentTimeMillis();
+        int expired = 0;
+        for (Versioned<ReservationDocument> reservation : reservationRepository.getExpiredReservations(
+                now, now - pendingTimeout.toMillis(), expireBatchSize)) {
+            // One failing is retried on the next run, without holding back the rest of the batch
+            try {
+                // Searches lag the writes: one returned meanwhile comes with an old version, and loses the write
+                if (this.close(reservation, ReservationDocument.EXPIRED) != null) {
+                    expired++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("The reservation {} could not be expired: {}", reservation.value().getId(), e.getMessage());
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public AvailabilityDocument getAvailability(Long bookId) {
+        return bookRepository.getById(bookId) != null ? copyLedger.get(bookId) : null;
+    }
+
+    @Override
+    public AvailabilityDocument setCopies(Long bookId, int copies) {
+        if (bookRepository.getById(bookId) == null) {
+            return null;
+        }
+        AvailabilityDocument availability = copyLedger.setCopies(bookId, copies);
+        if (availability == null) {
+            throw new ReservationConflictException("More than " + copies + " copies of book " + bookId + " are reserved");
+        }
+        return availability;
+    }
+
+    // Only one of the concurrent returns and expiries of a reservation wins the conditional write and gives the
+    // copy back. Null if it lost. Pending reservations were never handed to a client, so only the expiry closes them.
+    private Versioned<ReservationDocument> close(Versioned<ReservationDocument> reservation, String status) {
+        ReservationDocument current = reservation.value();
+        boolean open = ReservationDocument.ACTIVE.equals(current.getStatus())
+                || (ReservationDocument.PENDING.equals(current.getStatus()) && ReservationDocument.EXPIRED.equals(status));
+        if (!open) {
+            throw new ReservationConflictException("The reservation " + current.getId() + " is " + current.getStatus());
+        }
+        Versioned<ReservationDocument> closed = reservationRepository.saveReservation(
+                current.toBuilder().status(status).build(), reservation);
+        if (closed != null) {
+            this.release(current);
+        }
+        return closed;
+    }
+
+    // The reservation is already closed, so a failure here is not the client's: it is queued and its copy given back
+    // by the next expiry instead
+    private void release(ReservationDocument reservation) {
+        try {
+            copyLedger.release(reservation.getBookId(), reservation.getId());
+        } catch (RuntimeException e) {
+            log.warn("The copy of book {} held by reservation {} could not be given back, retrying: {}",
+                    reservation.getBookId(), reservation.getId(), e.getMessage());
+            unreleased.add(reservation);
+        }
+    }
+
+    // If this fails too the reservation stays pending until the expiry closes it, which finds no copy held by it
+    private void cancel(Versioned<ReservationDocument> pending) {
+        try {
+            reservationRepository.saveReservation(
+                    pending.value().toBuilder().status(ReservationDocument.CANCELLED).build(), pending);
+        } catch (RuntimeException e) {
+            log.warn("The reservation {} could not be cancelled: {}", pending.value().getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.DeleteTask;
+import net.unir.missi.desarrollowebfullstack.bookabook.converter.memory.TaskMemoryConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchTaskRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+@Service
+@Slf4j
+public class TaskService implements ITaskService {
+
+    private static final String DELETE_BY_QUERY_ACTION = "indices:data/write/delete/byquery";
+
+    private static final Set<String> CATALOG_INDICES = Set.of("[" + AuthorDocument.INDEX_NAME + "]",
+            "[" + BookDocument.INDEX_NAME + "]", "[" + ClientDocument.INDEX_NAME + "]");
+
+    @Autowired
+    private ElasticsearchTaskRepository taskRepository;
+
+    @Autowired
+    private TaskMemoryConverter taskMemoryConverter;
+
+    // Only the delete-by-query tasks the catalog starts, whichever instance started them: any other task of the
+    // cluster is not found
+    @Override
+    public DeleteTask getDeleteTask(String taskId) {
+        JsonNode task = this.taskRepository.getTask(taskId);
+        if (task == null || !isCatalogDelete(task.path("task"))) {
+            return null;
+        }
+        return this.taskMemoryConverter.fromDocument(taskId, task);
+    }
+
+    // The description of a delete by query is "delete-by-query [index]", followed by its query
+    private static boolean isCatalogDelete(JsonNode task) {
+        if (!DELETE_BY_QUERY_ACTION.equals(task.path("action").asText())) {
+            return false;
+        }
+        String description = task.path("description").asText();
+        int start = description.indexOf('[');
+        int end = description.indexOf(']', start + 1);
+        return start >= 0 && end > start && CATALOG_INDICES.contains(description.substring(start, end + 1));
+    }
+}
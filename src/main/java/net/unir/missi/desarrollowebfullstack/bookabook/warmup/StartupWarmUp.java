@@ -0,0 +1,162 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.warmup;
+
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import net.unir.missi.desarrollowebfullstack.bookabook.service.IAuthorService;
+import net.unir.missi.desarrollowebfullstack.bookabook.service.IBookService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Warm-up phase between the catalog bootstrap and the first real request: loads the hottest books and authors into
+// the caches, then sends the synthetic request mix so that the JIT compiles the request path.
+// The readiness state only becomes ACCEPTING_TRAFFIC once the ApplicationReadyEvent listeners have returned, so
+// running here keeps the readiness probe down. Eureka registers the instance as STARTING
+// (eureka.instance.initial-status) and it is marked UP at the end.
+@Slf4j
+@Component
+@Order(0)
+public class StartupWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+
+    private final IBookService bookService;
+
+    private final IAuthorService authorService;
+
+    private final WarmUpTraffic warmUpTraffic;
+
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+    private final boolean enabled;
+
+    private final int hotDocuments;
+
+    private final int requests;
+
+    private final Duration timeout;
+
+    private volatile long durationMillis = -1;
+
+    public StartupWarmUp(IBookService bookService, IAuthorService authorService, WarmUpTraffic warmUpTraffic,
+                         ObjectProvider<ApplicationInfoManager> applicationInfoManager, MeterRegistry registry,
+                         @Value("${bookabook.warm-up.enabled:true}") boolean enabled,
+                         @Value("${bookabook.warm-up.hot-documents:200}") int hotDocuments,
+                         @Value("${bookabook.warm-up.requests:5000}") int requests,
+                         @Value("${bookabook.warm-up.timeout:60s}") Duration timeout) {
+        this.bookService = bookService;
+        this.authorService = authorService;
+        this.warmUpTraffic = warmUpTraffic;
+        this.applicationInfoManager = applicationInfoManager;
+        this.enabled = enabled;
+        this.hotDocuments = hotDocuments;
+        this.requests = requests;
+        this.timeout = timeout;
+        Gauge.builder("bookabook.warm-up.duration", this, warmUp -> warmUp.durationMillis)
+                .description("Duration of the startup warm-up in milliseconds, -1 until it finishes")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (this.enabled) {
+            this.warmUp();
+        }
+        this.markUp();
+    }
+
+    // Also called after a CRaC restore, where the Eureka registration starts again from the initial status
+    public void markUp() {
+        ApplicationInfoManager infoManager = this.applicationInfoManager.getIfAvailable();
+        if (infoManager != null) {
+            infoManager.setInstanceStatus(InstanceInfo.InstanceStatus.UP);
+        }
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Future<Integer> result = executor.submit(() -> {
+            int preloaded = this.preload();
+            log.info("Warm-up preloaded {} documents, sending {} requests", preloaded, this.requests);
+            return this.warmUpTraffic.run(this.requests);
+        });
+
+        try {
+            int succeeded = result.get(this.timeout.toMillis(), TimeUnit.MILLISECONDS);
+            this.durationMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("Warm-up finished in {} ms, {} of {} requests succeeded", this.durationMillis, succeeded,
+                    this.requests);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            this.durationMillis = (System.nanoTime() - start) / 1_000_000;
+            log.warn("Warm-up timed out after {} ms, the instance starts partially warm", this.durationMillis);
+        } catch (ExecutionException e) {
+            this.durationMillis = (System.nanoTime() - start) / 1_000_000;
+            log.error("Warm-up failed after {} ms, the instance starts cold", this.durationMillis, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // The most read books, as counted by all the instances so far, with their authors. Each of them goes through the
+    // same service call as GET /books/{id} and GET /authors/{id}, which fills the caches of the reads.
+    private int preload() {
+        List<BookDocument> books = this.bookService.getBookDocuments(null, null, null, null, null, null,
+                FieldSelection.ALL, true);
+        Set<Long> authorIds = new LinkedHashSet<>();
+        int preloaded = 0;
+        for (BookDocument book : books) {
+            if (preloaded == this.hotDocuments || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            this.bookService.getBookJson(String.valueOf(book.getId()), FieldSelection.ALL);
+            if (book.getAuthorId() != null) {
+                authorIds.add(book.getAuthorId());
+            }
+            preloaded++;
+        }
+
+        List<AuthorDocument> authors = this.authorService.getAuthorDocuments(null, null, null, null, null, null,
+                null, null, FieldSelection.ALL);
+        for (AuthorDocument author : authors) {
+            if (authorIds.size() == this.hotDocuments) {
+                break;
+            }
+            authorIds.add(author.getId());
+        }
+        for (Long authorId : authorIds) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            this.authorService.getAuthorJson(String.valueOf(authorId), FieldSelection.ALL);
+            preloaded++;
+        }
+        return preloaded;
+    }
+}
@@ -0,0 +1,102 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+// Synthetic mix of the main read endpoints, sent to this same instance through its HTTP port, so that Tomcat, the
+// controllers, the converters, Jackson and the repositories are all compiled by the JIT before real traffic comes
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WarmUpTraffic {
+
+    private static final List<String> LISTS = List.of(
+            "/books",
+            "/books?fields=id,name,authorId",
+            "/books?language=English",
+            "/books?category=Technology",
+            "/authors",
+            "/authors?fields=id,firstName,lastName",
+            "/clients",
+            "/clients?fields=id,email");
+
+    private final Environment environment;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${bookabook.warm-up.ids-per-index:50}")
+    private int idsPerIndex;
+
+    // Runs the mix until the given number of requests were sent, and returns how many answered 2xx
+    public int run(int requests) {
+        String base = "http://localhost:" + this.environment.getProperty("local.server.port", "8081");
+        List<String> paths = new ArrayList<>(LISTS);
+        paths.addAll(this.idPaths(base, "/books"));
+        paths.addAll(this.idPaths(base, "/authors"));
+        paths.addAll(this.idPaths(base, "/clients"));
+
+        int succeeded = 0;
+        for (int i = 0; i < requests && !Thread.currentThread().isInterrupted(); i++) {
+            if (this.get(base + paths.get(i % paths.size())) != null) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+
+    // Single document paths for ids that exist
+    private List<String> idPaths(String base, String list) {
+        List<String> paths = new ArrayList<>();
+        byte[] body = this.get(base + list + "?fields=id");
+        if (body == null) {
+            return paths;
+        }
+        try {
+            for (JsonNode document : this.objectMapper.readTree(body)) {
+                if (paths.size() == this.idsPerIndex) {
+                    break;
+                }
+                paths.add(list + "/" + document.path("id").asText());
+            }
+        } catch (IOException e) {
+            log.debug("Unreadable answer of {} during warm-up: {}", list, e.getMessage());
+        }
+        return paths;
+    }
+
+    // The body of a 2xx answer, or null. Connections are not kept alive, so none is left open afterwards.
+    private byte[] get(String url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            connection.setRequestProperty("Connection", "close");
+            connection.setConnectTimeout(1_000);
+            connection.setReadTimeout(10_000);
+            if (connection.getResponseCode() / 100 != 2) {
+                return null;
+            }
+            try (InputStream content = connection.getInputStream()) {
+                return content.readAllBytes();
+            }
+        } catch (IOException e) {
+            log.debug("Warm-up request {} failed: {}", url, e.getMessage());
+            return null;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+}
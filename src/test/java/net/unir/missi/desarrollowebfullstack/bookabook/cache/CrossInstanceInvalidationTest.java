@@ -0,0 +1,95 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchWatermarkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Writes made before a restart must not count as writes of other instances, which disable the ISBN filter for good
+class CrossInstanceInvalidationTest {
+
+    private final Map<String, Long> watermarks = new HashMap<>();
+
+    private ElasticsearchWatermarkRepository watermarkRepository;
+
+    private IndexGenerations generations;
+
+    private CrossInstanceInvalidation invalidation;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        this.watermarks.put(AuthorDocument.INDEX_NAME, 12L);
+        this.watermarks.put(BookDocument.INDEX_NAME, 40L);
+        this.watermarks.put(ClientDocument.INDEX_NAME, 7L);
+        this.watermarkRepository = mock(ElasticsearchWatermarkRepository.class);
+        when(this.watermarkRepository.getWatermarks(any())).thenAnswer(invocation -> new HashMap<>(this.watermarks));
+
+        this.generations = new IndexGenerations();
+        this.invalidation = new CrossInstanceInvalidation(this.watermarkRepository, this.generations,
+                mock(ObjectProvider.class), mock(ObjectProvider.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(this.invalidation, "enabled", true);
+        // Polled by hand
+        ReflectionTestUtils.setField(this.invalidation, "flushInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(this.invalidation, "pollInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(this.invalidation, "maxStaleness", Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.invalidation.shutdown();
+    }
+
+    @Test
+    void watermarksReadOnStartAreTheBaseline() {
+        this.invalidation.start();
+        this.poll();
+        assertEquals(0, this.generations.foreignWrites(BookDocument.INDEX_NAME));
+        assertEquals(0, this.generations.externalInvalidations(BookDocument.INDEX_NAME));
+
+        this.watermarks.put(BookDocument.INDEX_NAME, 41L);
+        this.poll();
+        assertEquals(1, this.generations.foreignWrites(BookDocument.INDEX_NAME));
+        assertEquals(0, this.generations.foreignWrites(AuthorDocument.INDEX_NAME));
+    }
+
+    @Test
+    void firstPollIsTheBaselineWhenTheyCannotBeReadOnStart() {
+        when(this.watermarkRepository.getWatermarks(List.of(AuthorDocument.INDEX_NAME, BookDocument.INDEX_NAME,
+                ClientDocument.INDEX_NAME)))
+                .thenThrow(new RuntimeException("Elasticsearch is down"))
+                .thenAnswer(invocation -> new HashMap<>(this.watermarks));
+        this.invalidation.start();
+
+        this.poll();
+        assertEquals(0, this.generations.foreignWrites(BookDocument.INDEX_NAME));
+        // Whatever was cached before is not served again
+        assertEquals(1, this.generations.externalInvalidations(BookDocument.INDEX_NAME));
+
+        this.poll();
+        assertEquals(0, this.generations.foreignWrites(BookDocument.INDEX_NAME));
+        this.watermarks.put(BookDocument.INDEX_NAME, 45L);
+        this.poll();
+        assertEquals(1, this.generations.foreignWrites(BookDocument.INDEX_NAME));
+    }
+
+    private void poll() {
+        ReflectionTestUtils.invokeMethod(this.invalidation, "poll");
+    }
+}
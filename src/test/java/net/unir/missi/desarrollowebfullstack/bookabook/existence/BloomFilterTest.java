@@ -0,0 +1,77 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.existence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void keysAddedAreAlwaysFound() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.add(BloomFilter.hash(id));
+        }
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(filter.mightContain(BloomFilter.hash(id)), "id " + id);
+        }
+    }
+
+    @Test
+    void falsePositivesStayNearTheTargetProbability() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.add(BloomFilter.hash(id));
+        }
+        int falsePositives = 0;
+        for (long id = 1_000_000; id < 1_100_000; id++) {
+            if (filter.mightContain(BloomFilter.hash(id))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, falsePositives + " false positives in 100000 lookups");
+        assertTrue(filter.expectedFalsePositiveProbability() < 0.02);
+    }
+
+    @Test
+    void stringKeysAreHashedByValue() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+        filter.add(BloomFilter.hash(new String("9788437604947")));
+        assertTrue(filter.mightContain(BloomFilter.hash("9788437604947")));
+    }
+
+    @Test
+    void duplicatesAreNotCountedAsInsertions() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+        filter.add(BloomFilter.hash(7L));
+        filter.add(BloomFilter.hash(7L));
+        assertEquals(1, filter.insertions());
+        assertEquals(100, filter.capacity());
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws InterruptedException {
+        BloomFilter filter = BloomFilter.create(80_000, 0.01);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long first = t * 10_000L;
+            Thread thread = new Thread(() -> {
+                for (long id = first; id < first + 10_000; id++) {
+                    filter.add(BloomFilter.hash(id));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (long id = 0; id < 80_000; id++) {
+            assertTrue(filter.mightContain(BloomFilter.hash(id)), "id " + id);
+        }
+    }
+}
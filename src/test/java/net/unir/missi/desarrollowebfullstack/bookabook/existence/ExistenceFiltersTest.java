@@ -0,0 +1,224 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.existence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.unir.missi.desarrollowebfullstack.bookabook.cache.IndexGenerations;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExistenceFiltersTest {
+
+    private static final String BOOKS = BookDocument.INDEX_NAME;
+
+    private IndexGenerations generations;
+
+    private ExistenceFilters filters;
+
+    @BeforeEach
+    void setUp() {
+        this.generations = new IndexGenerations();
+        ReflectionTestUtils.setField(this.generations, "refreshInterval", Duration.ZERO);
+        this.filters = new ExistenceFilters(this.generations, new SimpleMeterRegistry(), 0.01, 0.5);
+    }
+
+    @Test
+    void isbnKeysAreCompleteIsbnsWithoutSeparators() {
+        assertEquals("9788437604947", ExistenceFilters.isbnKey("978-84-376-0494-7"));
+        assertEquals("9788437604947", ExistenceFilters.isbnKey("978 84 376 0494 7"));
+        assertEquals("843760494X", ExistenceFilters.isbnKey("84-376-0494-x"));
+        assertNull(ExistenceFilters.isbnKey("978-84"));
+        assertNull(ExistenceFilters.isbnKey("ISBN 978-84-376-0494-7"));
+        assertNull(ExistenceFilters.isbnKey("978-84-376-0494-7-1"));
+        assertNull(ExistenceFilters.isbnKey(null));
+    }
+
+    @Test
+    void everyKeyMayExistUntilTheFilterIsBuilt() {
+        assertTrue(this.filters.mightContain(BOOKS, 1L));
+        assertTrue(this.filters.mightMatchIsbn("978-84-376-0494-7"));
+    }
+
+    @Test
+    void missesBelowTheHighestIdAreAnsweredByTheFilter() {
+        this.build(BOOKS, 2, 4, 6, 8, 1000);
+
+        assertTrue(this.filters.mightContain(BOOKS, 6L));
+        assertFalse(this.filters.mightContain(BOOKS, 7L) && this.filters.mightContain(BOOKS, 5L)
+                && this.filters.mightContain(BOOKS, 3L));
+        // Ids above every id seen may have been created by another instance that has not told this one yet
+        assertTrue(this.filters.mightContain(BOOKS, 1001L));
+    }
+
+    @Test
+    void localWritesRaiseTheHighestId() {
+        this.build(BOOKS, 1, 2, 3);
+        this.filters.add(BOOKS, 10L);
+
+        assertTrue(this.filters.mightContain(BOOKS, 10L));
+        assertTrue(this.countAbsent(4, 9) >= 5);
+    }
+
+    @Test
+    void externalInvalidationsLetEveryKeyThrough() {
+        this.build(BOOKS, 1, 2, 3, 100);
+        this.generations.invalidate(BOOKS);
+
+        assertTrue(this.filters.mightContain(BOOKS, 50L));
+        assertTrue(this.filters.needsRebuild(BOOKS, Duration.ofHours(1)));
+    }
+
+    @Test
+    void isbnMissesAreNotTrustedOnceAnotherInstanceWritesBooks() {
+        ExistenceFilters.Build build = this.filters.begin(ExistenceFilters.ISBN, 10);
+        build.addIsbn("978-84-376-0494-7");
+        assertTrue(this.filters.finish(build));
+        assertFalse(this.filters.mightMatchIsbn("978-0-00-000000-2"));
+        assertTrue(this.filters.mightMatchIsbn("9788437604947"));
+
+        this.generations.foreignWrite(BOOKS);
+
+        assertTrue(this.filters.mightMatchIsbn("978-0-00-000000-2"));
+        assertFalse(this.filters.needsRebuild(ExistenceFilters.ISBN, Duration.ZERO));
+    }
+
+    @Test
+    void shorterIsbnsAreNotAnsweredByTheFilter() {
+        ExistenceFilters.Build build = this.filters.begin(ExistenceFilters.ISBN, 10);
+        build.addIsbn("978-1-23-456789-0");
+        assertTrue(this.filters.finish(build));
+
+        // Its phrase matches the ISBN-13 above, whose key is another
+        assertTrue(this.filters.mightMatchIsbn("1-23-456789-0"));
+        assertFalse(this.filters.mightMatchIsbn("979-1-23-456789-0"));
+    }
+
+    @Test
+    void irregularIsbnsLetEveryIsbnThrough() {
+        ExistenceFilters.Build build = this.filters.begin(ExistenceFilters.ISBN, 10);
+        build.addIsbn("978-84-376-0494-7");
+        build.addIsbn("ISBN 978-0-00-000000-2");
+        this.filters.finish(build);
+
+        assertTrue(this.filters.mightMatchIsbn("978-0-00-000000-2"));
+    }
+
+    @Test
+    void buildsDiscardedWhenAnotherInstanceWritesMeanwhile() {
+        ExistenceFilters.Build build = this.filters.begin(BOOKS, 10);
+        build.add(1L);
+        this.generations.invalidate(BOOKS);
+
+        assertFalse(this.filters.finish(build));
+        assertTrue(this.filters.mightContain(BOOKS, 0L));
+    }
+
+    @Test
+    void buildsWaitForRecentWritesToBeSearchable() {
+        ReflectionTestUtils.setField(this.generations, "refreshInterval", Duration.ofHours(1));
+        this.generations.bump(BOOKS);
+
+        assertNull(this.filters.begin(BOOKS, 10));
+    }
+
+    @Test
+    void getAllOnlyLoadsTheIdsThatMayExist() {
+        this.build(BOOKS, 1, 2, 3, 100);
+        List<Long> loaded = new ArrayList<>();
+
+        List<String> documents = this.filters.getAll(BOOKS, List.of(2L, 50L, 3L), ids -> {
+            loaded.addAll(ids);
+            return ids.stream().map(id -> "book " + id).toList();
+        });
+
+        assertEquals(List.of(2L, 3L), loaded);
+        assertEquals(Arrays.asList("book 2", null, "book 3"), documents);
+    }
+
+    // Writes racing with rebuilds: every id written, before, during or after any build, must be found afterwards.
+    // The rebuilds stop before the writes do, so the last filter is not simply a scan of every id.
+    @Test
+    void writesDuringRebuildsAreNotLost() throws InterruptedException {
+        Set<Long> index = ConcurrentHashMap.newKeySet();
+        AtomicLong nextId = new AtomicLong(1);
+        CountDownLatch firstBuild = new CountDownLatch(1);
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread writer = new Thread(() -> {
+                awaitQuietly(firstBuild);
+                for (int i = 0; i < 20_000; i++) {
+                    long id = nextId.getAndIncrement();
+                    // Same order as the repositories: stored, generation bumped, then added to the filters
+                    index.add(id);
+                    this.generations.bump(BOOKS);
+                    this.filters.add(BOOKS, id);
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        Thread builder = new Thread(() -> {
+            while (nextId.get() < 60_000) {
+                ExistenceFilters.Build build = this.filters.begin(BOOKS, 80_000);
+                if (build != null) {
+                    index.forEach(build::add);
+                    this.filters.finish(build);
+                    firstBuild.countDown();
+                }
+            }
+        });
+        builder.start();
+
+        builder.join();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        for (long id = 1; id < nextId.get(); id++) {
+            assertTrue(this.filters.mightContain(BOOKS, id), "id " + id);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void build(String name, long... ids) {
+        ExistenceFilters.Build build = this.filters.begin(name, ids.length);
+        assertNotNull(build);
+        for (long id : ids) {
+            build.add(id);
+        }
+        assertTrue(this.filters.finish(build));
+    }
+
+    private int countAbsent(long from, long to) {
+        int absent = 0;
+        for (long id = from; id <= to; id++) {
+            if (!this.filters.mightContain(BOOKS, id)) {
+                absent++;
+            }
+        }
+        return absent;
+    }
+}
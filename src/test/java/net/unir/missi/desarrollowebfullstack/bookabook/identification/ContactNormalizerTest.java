@@ -0,0 +1,59 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.identification;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ContactNormalizerTest {
+
+    private final ContactNormalizer normalizer = new ContactNormalizer("34");
+
+    @Test
+    void emailsAreTrimmedAndCaseFolded() {
+        assertEquals("ana.garcia@example.com", normalizer.email("  Ana.Garcia@Example.COM "));
+        assertNull(normalizer.email("   "));
+        assertNull(normalizer.email(null));
+    }
+
+    @Test
+    void plusPrefixKeepsTheCountryCode() {
+        assertEquals("+442079460958", normalizer.phone("+44 20 7946 0958"));
+        assertEquals("+34612345678", normalizer.phone("+34 (612) 34-56-78"));
+    }
+
+    @Test
+    void doubleZeroPrefixIsAnInternationalPrefix() {
+        assertEquals("+442079460958", normalizer.phone("0044 20 7946 0958"));
+        assertEquals(normalizer.phone("+34612345678"), normalizer.phone("0034612345678"));
+    }
+
+    @Test
+    void nationalNumbersGetTheDefaultCountryCode() {
+        assertEquals("+34612345678", normalizer.phone("612 345 678"));
+        assertEquals("+1612345678", new ContactNormalizer("1").phone("612345678"));
+        assertEquals("+34012345678", normalizer.phone("012345678"));
+    }
+
+    @Test
+    void plusAfterTheFirstDigitIsIgnored() {
+        assertEquals("+34612345678", normalizer.phone("612+345678"));
+    }
+
+    @Test
+    void numbersLongerThanE164AreRefused() {
+        assertEquals("+123456789012345", normalizer.phone("+123456789012345"));
+        assertNull(normalizer.phone("+1234567890123456"));
+        assertNull(normalizer.phone("001234567890123456"));
+        // 14 national digits are 16 with the default country code
+        assertNull(normalizer.phone("12345678901234"));
+        assertEquals("+341234567890123", normalizer.phone("1234567890123"));
+    }
+
+    @Test
+    void numbersWithoutDigitsAreRefused() {
+        assertNull(normalizer.phone(null));
+        assertNull(normalizer.phone(""));
+        assertNull(normalizer.phone("+ ( ) -"));
+    }
+}
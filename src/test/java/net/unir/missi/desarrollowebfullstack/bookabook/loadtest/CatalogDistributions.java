@@ -0,0 +1,82 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.loadtest;
+
+import java.util.random.RandomGenerator;
+
+// Value distributions of the synthetic catalog, shared by the generator and by the load driver so that the
+// filters it sends match documents in the same proportions as real traffic would
+final class CatalogDistributions {
+
+    static final Weighted LANGUAGES = new Weighted(
+            new String[]{"English", "Spanish", "French", "German", "Italian", "Portuguese", "Catalan", "Japanese"},
+            new double[]{45, 25, 8, 7, 5, 5, 3, 2});
+
+    static final Weighted CATEGORIES = new Weighted(
+            new String[]{"Novel", "Technology", "Science", "Programming", "History", "Poetry", "Children",
+                    "Biography", "Cooking", "Travel", "Tecnología", "Ciencia"},
+            new double[]{30, 12, 10, 9, 8, 6, 6, 5, 5, 4, 3, 2});
+
+    static final Weighted NATIONALITIES = new Weighted(
+            new String[]{"American", "British", "Spanish", "Mexican", "Argentinian", "French", "German", "Italian",
+                    "Japanese", "Colombian"},
+            new double[]{25, 15, 15, 10, 7, 7, 6, 5, 5, 5});
+
+    static final String[] FIRST_NAMES = {"John", "Jane", "Carlos", "Laura", "María", "Juan", "Ana", "David",
+            "Isabel", "Roberto", "Sofía", "Eduardo", "Lucía", "Pablo", "Emma", "Oliver", "Chloé", "Hiroshi",
+            "Giulia", "Lukas"};
+
+    static final String[] LAST_NAMES = {"Doe", "Smith", "García", "López", "Pérez", "Gómez", "Fernández",
+            "Martínez", "Hernández", "Ramírez", "Díaz", "Fuentes", "Brown", "Taylor", "Dubois", "Müller", "Rossi",
+            "Tanaka", "Silva", "Puig"};
+
+    static final String[] WORDS = {"database", "history", "journey", "science", "garden", "night", "code",
+            "memory", "river", "machine", "learning", "city", "secret", "family", "war", "love", "ocean", "empire",
+            "algorithm", "kitchen", "mountain", "letters", "silence", "future", "ancient", "guide", "theory",
+            "practice", "introduction", "advanced", "essential", "modern", "forgotten", "little", "great", "art",
+            "story", "world", "time", "light"};
+
+    private CatalogDistributions() {
+    }
+
+    static String words(RandomGenerator random, int min, int max) {
+        int count = min + random.nextInt(max - min + 1);
+        StringBuilder text = new StringBuilder(count * 8);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    static String pick(RandomGenerator random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    static final class Weighted {
+
+        private final String[] values;
+
+        private final double[] cumulative;
+
+        Weighted(String[] values, double[] weights) {
+            this.values = values;
+            this.cumulative = new double[weights.length];
+            double total = 0;
+            for (int i = 0; i < weights.length; i++) {
+                total += weights[i];
+                this.cumulative[i] = total;
+            }
+        }
+
+        String sample(RandomGenerator random) {
+            double point = random.nextDouble() * this.cumulative[this.cumulative.length - 1];
+            for (int i = 0; i < this.cumulative.length; i++) {
+                if (point < this.cumulative[i]) {
+                    return this.values[i];
+                }
+            }
+            return this.values[this.values.length - 1];
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.loadtest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+// Writes a synthetic catalog as NDJSON in the _bulk format, which the service loads at startup with
+// BOOKABOOK_SEED=file:<path>. Authors get books with Zipfian skew, so that a few of them wrote most of the catalog.
+//
+//   java ... CatalogGenerator --out=catalog.ndjson --books=2000000 --authors=200000 --clients=500000 --zipf=1.1
+public final class CatalogGenerator {
+
+    private CatalogGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+        Path out = Path.of(options.get("out", "catalog.ndjson"));
+        long books = options.getLong("books", 1_000_000);
+        long authors = options.getLong("authors", 100_000);
+        long clients = options.getLong("clients", 200_000);
+        double zipf = options.getDouble("zipf", 1.1);
+        SplittableRandom random = new SplittableRandom(options.getLong("seed", 42));
+
+        long start = System.nanoTime();
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(out), 1 << 20);
+             JsonGenerator json = new JsonFactory().createGenerator(stream, JsonEncoding.UTF8)) {
+            json.setRootValueSeparator(null);
+
+            for (long id = 1; id <= authors; id++) {
+                action(json, "author", id);
+                json.writeStartObject();
+                json.writeNumberField("id", id);
+                json.writeStringField("firstName", CatalogDistributions.pick(random, CatalogDistributions.FIRST_NAMES));
+                json.writeStringField("lastName", CatalogDistributions.pick(random, CatalogDistributions.LAST_NAMES));
+                json.writeStringField("birthDate", LocalDate.of(1920, 1, 1).plusDays(random.nextInt(30_000)).toString());
+                json.writeStringField("nationality", CatalogDistributions.NATIONALITIES.sample(random));
+                json.writeStringField("email", "author" + id + "@example.com");
+                json.writeStringField("webSite", "http://www.author" + id + ".example.com");
+                json.writeStringField("biography", CatalogDistributions.words(random, 20, 120));
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+
+            ZipfSampler authorPopularity = new ZipfSampler(authors, zipf);
+            for (long id = 1; id <= books; id++) {
+                action(json, "book", id);
+                json.writeStartObject();
+                json.writeNumberField("id", id);
+                json.writeStringField("isbn", isbn(id));
+                json.writeStringField("name", CatalogDistributions.words(random, 2, 6));
+                json.writeStringField("language", CatalogDistributions.LANGUAGES.sample(random));
+                json.writeStringField("description", CatalogDistributions.words(random, 15, 80));
+                json.writeStringField("category", CatalogDistributions.CATEGORIES.sample(random));
+                json.writeNumberField("authorId", authorPopularity.sampleId(random));
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+
+            for (long id = 1; id <= clients; id++) {
+                String firstName = CatalogDistributions.pick(random, CatalogDistributions.FIRST_NAMES);
+                action(json, "client", id);
+                json.writeStartObject();
+                json.writeNumberField("id", id);
+                json.writeStringField("firstName", firstName);
+                json.writeStringField("lastName", CatalogDistributions.pick(random, CatalogDistributions.LAST_NAMES));
+                json.writeStringField("address", "Calle " + (1 + random.nextInt(500)) + ", " + CatalogDistributions.words(random, 1, 2));
+                json.writeStringField("phoneNumber", String.format("%03d-%03d-%04d", random.nextInt(1000), random.nextInt(1000), random.nextInt(10000)));
+                json.writeStringField("email", firstName.toLowerCase() + "." + id + "@example.com");
+                json.writeEndObject();
+                json.writeRaw('\n');
+            }
+        }
+        System.out.printf("Wrote %d authors, %d books and %d clients to %s in %d ms%n",
+                authors, books, clients, out, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void action(JsonGenerator json, String index, long id) throws IOException {
+        json.writeStartObject();
+        json.writeObjectFieldStart("create");
+        json.writeStringField("_index", index);
+        json.writeStringField("_id", String.valueOf(id));
+        json.writeEndObject();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    // 978-prefixed ISBN-13 with a valid check digit
+    private static String isbn(long id) {
+        String digits = "978" + String.format("%09d", id % 1_000_000_000L);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,278 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Open model load driver: requests are started at the configured arrival rate whatever the response times are, and
+// their latency is measured from the instant they were due, so that a stalled server is not hidden by the driver
+// waiting on it (coordinated omission). Reports HdrHistogram percentiles and throughput per endpoint.
+//
+//   java ... LoadDriver --base-url=http://localhost:8081 --rate=500 --duration=2m --warmup=20s
+//       --books=1000000 --authors=100000 --clients=200000 --zipf=1.1 --arrivals=poisson
+//       --mix=book-by-id:60:/books/{book},books-by-category:40:/books?category={category}
+public final class LoadDriver {
+
+    private static final String DEFAULT_MIX = String.join(",",
+            "book-by-id:35:/books/{book}",
+            "books-by-category:15:/books?category={category}&fields=id,name,authorId",
+            "books-by-author:10:/books?authorId={author}",
+            "books-by-language-and-word:5:/books?language={language}&name={word}",
+            "author-by-id:15:/authors/{author}",
+            "authors-by-nationality:5:/authors?nationality={nationality}&fields=id,firstName,lastName",
+            "client-by-id:10:/clients/{client}",
+            "clients-by-name:5:/clients?firstName={firstName}");
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\w+)}");
+
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private LoadDriver() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options = new Options(args);
+        String baseUrl = options.get("base-url", "http://localhost:8081");
+        double rate = options.getDouble("rate", 200);
+        Duration warmup = options.getDuration("warmup", Duration.ofSeconds(10));
+        Duration duration = options.getDuration("duration", Duration.ofSeconds(60));
+        Duration timeout = options.getDuration("timeout", Duration.ofSeconds(10));
+        boolean poisson = options.get("arrivals", "poisson").equals("poisson");
+        int maxOutstanding = (int) options.getLong("max-outstanding", 10_000);
+        String mix = options.get("mix", DEFAULT_MIX);
+        double zipf = options.getDouble("zipf", 1.1);
+        SplittableRandom random = new SplittableRandom(options.getLong("seed", 7));
+
+        List<Endpoint> endpoints = parseMix(mix.startsWith("@") ? Files.readString(Path.of(mix.substring(1))) : mix);
+        Map<String, ZipfSampler> ids = Map.of(
+                "book", new ZipfSampler(options.getLong("books", 19), zipf),
+                "author", new ZipfSampler(options.getLong("authors", 4), zipf),
+                "client", new ZipfSampler(options.getLong("clients", 10), zipf));
+
+        ExecutorService callbacks = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(callbacks)
+                .build();
+
+        AtomicInteger outstanding = new AtomicInteger();
+        LongAdder dropped = new LongAdder();
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        double due = start;
+
+        System.out.printf("Driving %s at %.0f req/s (%s arrivals) for %s after a %s warm-up%n",
+                baseUrl, rate, poisson ? "Poisson" : "constant", duration, warmup);
+        while (due < end) {
+            due += poisson ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+            long intended = (long) due;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            Endpoint endpoint = pick(endpoints, random);
+            boolean measured = intended >= measureFrom;
+            if (outstanding.get() >= maxOutstanding) {
+                // The server is that far behind: counted, but not sent, so that the driver does not run out of memory
+                if (measured) {
+                    dropped.increment();
+                    endpoint.stats.failures.increment();
+                }
+                continue;
+            }
+
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + expand(endpoint.path, ids, random)))
+                    .method(endpoint.method, HttpRequest.BodyPublishers.noBody())
+                    .timeout(timeout)
+                    .build();
+            outstanding.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                outstanding.decrementAndGet();
+                if (!measured) {
+                    return;
+                }
+                long latency = (System.nanoTime() - intended) / 1_000;
+                endpoint.stats.latency.recordValue(Math.min(latency, HIGHEST_LATENCY_MICROS));
+                endpoint.stats.record(response != null ? response.statusCode() : -1);
+            });
+        }
+
+        long drainUntil = System.nanoTime() + timeout.toNanos();
+        while (outstanding.get() > 0 && System.nanoTime() < drainUntil) {
+            Thread.sleep(10);
+        }
+        double seconds = duration.toNanos() / 1e9;
+        report(System.out, endpoints, seconds, dropped.sum());
+
+        String output = options.get("output", null);
+        if (output != null) {
+            writeHistograms(Path.of(output), endpoints);
+        }
+        callbacks.shutdownNow();
+    }
+
+    static List<Endpoint> parseMix(String mix) {
+        List<Endpoint> endpoints = new ArrayList<>();
+        for (String entry : mix.split("[,\\n]")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected name:weight:[METHOD ]path, got " + entry);
+            }
+            String target = parts[2].trim();
+            String method = "GET";
+            int space = target.indexOf(' ');
+            if (space > 0) {
+                method = target.substring(0, space);
+                target = target.substring(space + 1).trim();
+            }
+            endpoints.add(new Endpoint(parts[0], Double.parseDouble(parts[1]), method, target));
+        }
+        return endpoints;
+    }
+
+    private static Endpoint pick(List<Endpoint> endpoints, SplittableRandom random) {
+        double total = 0;
+        for (Endpoint endpoint : endpoints) {
+            total += endpoint.weight;
+        }
+        double point = random.nextDouble() * total;
+        for (Endpoint endpoint : endpoints) {
+            point -= endpoint.weight;
+            if (point < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    private static String expand(String path, Map<String, ZipfSampler> ids, SplittableRandom random) {
+        Matcher matcher = PLACEHOLDER.matcher(path);
+        StringBuilder expanded = new StringBuilder();
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            String value = switch (name) {
+                case "book", "author", "client" -> String.valueOf(ids.get(name).sampleId(random));
+                case "category" -> CatalogDistributions.CATEGORIES.sample(random);
+                case "language" -> CatalogDistributions.LANGUAGES.sample(random);
+                case "nationality" -> CatalogDistributions.NATIONALITIES.sample(random);
+                case "firstName" -> CatalogDistributions.pick(random, CatalogDistributions.FIRST_NAMES);
+                case "word" -> CatalogDistributions.words(random, 1, 1);
+                default -> throw new IllegalArgumentException("Unknown placeholder {" + name + "}");
+            };
+            matcher.appendReplacement(expanded, Matcher.quoteReplacement(URLEncoder.encode(value, StandardCharsets.UTF_8)));
+        }
+        matcher.appendTail(expanded);
+        return expanded.toString();
+    }
+
+    private static void report(PrintStream out, List<Endpoint> endpoints, double seconds, long dropped) {
+        out.printf("%n%-28s %9s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "req/s", "4xx", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram all = new Histogram(HIGHEST_LATENCY_MICROS, 3);
+        long allCount = 0;
+        long allClientErrors = 0;
+        long allFailures = 0;
+        for (Endpoint endpoint : endpoints) {
+            Stats stats = endpoint.stats;
+            all.add(stats.latency);
+            allCount += stats.latency.getTotalCount();
+            allClientErrors += stats.clientErrors.sum();
+            allFailures += stats.failures.sum();
+            row(out, endpoint.name, stats.latency, seconds, stats.clientErrors.sum(), stats.failures.sum());
+        }
+        row(out, "total", all, seconds, allClientErrors, allFailures);
+        out.printf("%d requests completed, %d dropped because more than the maximum were outstanding%n",
+                allCount, dropped);
+    }
+
+    private static void row(PrintStream out, String name, Histogram latency, double seconds, long clientErrors,
+                            long failures) {
+        out.printf("%-28s %9d %9.1f %7d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, latency.getTotalCount(), latency.getTotalCount() / seconds, clientErrors, failures,
+                millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+                latency.getMaxValue() / 1_000d);
+    }
+
+    private static double millis(Histogram latency, double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1_000d;
+    }
+
+    // One .hgrm percentile distribution per endpoint, in milliseconds, for plotting
+    private static void writeHistograms(Path directory, List<Endpoint> endpoints) throws IOException {
+        Files.createDirectories(directory);
+        for (Endpoint endpoint : endpoints) {
+            try (PrintStream file = new PrintStream(Files.newOutputStream(directory.resolve(endpoint.name + ".hgrm")),
+                    false, StandardCharsets.UTF_8)) {
+                endpoint.stats.latency.outputPercentileDistribution(file, 1_000d);
+            }
+        }
+    }
+
+    static final class Endpoint {
+
+        private final String name;
+
+        private final double weight;
+
+        private final String method;
+
+        private final String path;
+
+        private final Stats stats = new Stats();
+
+        Endpoint(String name, double weight, String method, String path) {
+            this.name = name;
+            this.weight = weight;
+            this.method = method;
+            this.path = path;
+        }
+    }
+
+    static final class Stats {
+
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+
+        private final LongAdder clientErrors = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        // Not found is a normal answer for sampled ids that were deleted; other 4xx are reported apart
+        void record(int status) {
+            if (status < 0 || status >= 500) {
+                this.failures.increment();
+            } else if (status >= 400 && status != 404) {
+                this.clientErrors.increment();
+            }
+        }
+    }
+}
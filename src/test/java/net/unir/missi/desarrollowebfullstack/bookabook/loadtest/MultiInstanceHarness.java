@@ -0,0 +1,147 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Cross-instance cache invalidation check: starts several instances of the service on consecutive ports against
+// the same Elasticsearch (and Eureka, when there is one), warms the cache of every instance with a book, renames
+// the book through one instance and measures how long each of the others keeps serving the old name.
+//
+//   java ... MultiInstanceHarness --instances=3 --rounds=20 --bound=5s
+//       --command="java -jar target/book-a-book-buscador.jar"
+public final class MultiInstanceHarness {
+
+    private MultiInstanceHarness() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options = new Options(args);
+        List<String> command = Arrays.asList(options.get("command", "java -jar target/book-a-book-buscador.jar").split(" +"));
+        int instances = (int) options.getLong("instances", 3);
+        int firstPort = (int) options.getLong("first-port", 8181);
+        int rounds = (int) options.getLong("rounds", 20);
+        long bookId = options.getLong("book", 1);
+        Duration bound = options.getDuration("bound", Duration.ofSeconds(5));
+        Duration startTimeout = options.getDuration("start-timeout", Duration.ofMinutes(2));
+        String token = options.get("token", "harness");
+        Path logs = Path.of(options.get("logs", "target/harness"));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        List<Process> processes = new ArrayList<>();
+        List<URI> bases = new ArrayList<>();
+        try {
+            logs.toFile().mkdirs();
+            for (int i = 0; i < instances; i++) {
+                int port = firstPort + i;
+                List<String> instanceCommand = new ArrayList<>(command);
+                instanceCommand.add("--server.port=" + port);
+                instanceCommand.add("--bookabook.invalidation.peer-token=" + token);
+                instanceCommand.add("--eureka.instance.instance-id=harness-" + port);
+                processes.add(new ProcessBuilder(instanceCommand)
+                        .redirectErrorStream(true)
+                        .redirectOutput(logs.resolve("instance-" + port + ".log").toFile())
+                        .start());
+                bases.add(URI.create("http://localhost:" + port));
+            }
+            for (int i = 0; i < instances; i++) {
+                awaitReady(client, processes.get(i), bases.get(i), startTimeout);
+            }
+            System.out.printf("%d instances ready, logs in %s%n", instances, logs);
+
+            List<Long> lags = new ArrayList<>();
+            int violations = 0;
+            for (int round = 0; round < rounds; round++) {
+                String name = "harness-" + System.nanoTime();
+                // Cache the current version everywhere, so the new one can only come from an invalidation
+                for (URI base : bases) {
+                    get(client, base, bookId);
+                }
+                URI writer = bases.get(round % instances);
+                patch(client, writer, bookId, name);
+                long written = System.nanoTime();
+
+                for (URI reader : bases) {
+                    if (reader.equals(writer)) {
+                        continue;
+                    }
+                    // Measured from the write: later readers were also converging while the earlier ones were checked
+                    long lag = awaitName(client, reader, bookId, name, written, bound.multipliedBy(4));
+                    lags.add(lag);
+                    if (lag < 0 || lag > bound.toMillis()) {
+                        violations++;
+                    }
+                    System.out.printf("round %d: %s -> %s %s%n", round, writer.getPort(), reader.getPort(),
+                            lag < 0 ? "never converged" : "converged after " + lag + " ms");
+                }
+            }
+
+            lags.sort(Long::compare);
+            System.out.printf("%d observations: median %d ms, max %d ms, %d beyond the %s bound%n", lags.size(),
+                    lags.get(lags.size() / 2), lags.get(lags.size() - 1), violations, bound);
+        } finally {
+            processes.forEach(Process::destroy);
+            for (Process process : processes) {
+                process.waitFor();
+            }
+        }
+    }
+
+    private static void awaitReady(HttpClient client, Process process, URI base, Duration timeout)
+            throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(2)).build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The instance on " + base + " exited with code " + process.exitValue());
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("The instance on " + base + " was not ready within " + timeout);
+    }
+
+    // Milliseconds from start until the instance returns the new name, or -1 if it did not within the timeout
+    private static long awaitName(HttpClient client, URI base, long bookId, String name, long start, Duration timeout)
+            throws IOException, InterruptedException {
+        while (System.nanoTime() - start < timeout.toNanos()) {
+            if (get(client, base, bookId).contains("\"" + name + "\"")) {
+                return (System.nanoTime() - start) / 1_000_000;
+            }
+            Thread.sleep(10);
+        }
+        return -1;
+    }
+
+    private static String get(HttpClient client, URI base, long bookId) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/books/" + bookId))
+                .timeout(Duration.ofSeconds(2)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static void patch(HttpClient client, URI base, long bookId, String name) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/books/" + bookId))
+                .timeout(Duration.ofSeconds(5))
+                .header("Content-Type", "application/json")
+                .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"name\":\"" + name + "\"}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("PATCH on " + base + " answered " + response.statusCode() + ": " + response.body());
+        }
+    }
+}
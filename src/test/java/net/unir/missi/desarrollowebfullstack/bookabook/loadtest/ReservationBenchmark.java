@@ -0,0 +1,146 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Contention benchmark of the reservation engine: gives a single hot book a number of copies and lets a pool of
+// closed-loop threads reserve it as fast as they can, so that every request fights for the same copies. Reports
+// reservations per second, refusals (409 sold out, 503 overloaded) and latency percentiles, and fails if the book
+// ended with more reservations than copies or with a reserved count that does not match the reservations granted.
+//
+//   java ... ReservationBenchmark --base-url=http://localhost:8081 --book=1 --copies=5000 --threads=64
+//       --duration=30s --clients=200000
+public final class ReservationBenchmark {
+
+    private static final long HIGHEST_LATENCY_MICROS = Duration.ofMinutes(1).toNanos() / 1_000;
+
+    private static final Pattern RESERVED = Pattern.compile("\"reserved\"\\s*:\\s*(\\d+)");
+
+    private ReservationBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        URI base = URI.create(options.get("base-url", "http://localhost:8081"));
+        long bookId = options.getLong("book", 1);
+        int copies = (int) options.getLong("copies", 5_000);
+        int threads = (int) options.getLong("threads", 64);
+        long clients = options.getLong("clients", 200_000);
+        Duration duration = options.getDuration("duration", Duration.ofSeconds(30));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        // Copies are counted on top of whatever is still reserved from earlier runs
+        int reservedBefore = reserved(client, base, bookId);
+        setCopies(client, base, bookId, reservedBefore + copies);
+        System.out.printf("Reserving book %d (%d free copies) from %d threads for %s%n", bookId, copies, threads, duration);
+
+        ConcurrentHistogram latency = new ConcurrentHistogram(HIGHEST_LATENCY_MICROS, 3);
+        LongAdder granted = new LongAdder();
+        LongAdder soldOut = new LongAdder();
+        LongAdder overloaded = new LongAdder();
+        LongAdder failures = new LongAdder();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers.add(pool.submit(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                while (System.nanoTime() < end) {
+                    long clientId = 1 + random.nextLong(clients);
+                    HttpRequest request = HttpRequest.newBuilder(base.resolve("/reservations"))
+                            .timeout(Duration.ofSeconds(10))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"bookId\":" + bookId + ",\"clientId\":" + clientId + "}"))
+                            .build();
+                    long sent = System.nanoTime();
+                    try {
+                        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        latency.recordValue(Math.min((System.nanoTime() - sent) / 1_000, HIGHEST_LATENCY_MICROS));
+                        switch (status) {
+                            case 201 -> granted.increment();
+                            case 409 -> soldOut.increment();
+                            case 503 -> overloaded.increment();
+                            default -> failures.increment();
+                        }
+                    } catch (IOException e) {
+                        failures.increment();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Histogram all = latency.copy();
+        System.out.printf("%n%9s %12s %9s %9s %9s %9s %9s %9s %9s%n",
+                "requests", "reserved/s", "409", "503", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        System.out.printf("%9d %12.1f %9d %9d %9d %9.2f %9.2f %9.2f %9.2f%n",
+                all.getTotalCount(), granted.sum() / seconds, soldOut.sum(), overloaded.sum(), failures.sum(),
+                all.getValueAtPercentile(50) / 1_000d, all.getValueAtPercentile(99) / 1_000d,
+                all.getValueAtPercentile(99.9) / 1_000d, all.getMaxValue() / 1_000d);
+
+        int reservedAfter = reserved(client, base, bookId);
+        long expected = reservedBefore + granted.sum();
+        System.out.printf("%d reservations granted of %d copies; book reserved count %d, expected %d%n",
+                granted.sum(), copies, reservedAfter, expected);
+        if (granted.sum() > copies) {
+            throw new IllegalStateException("Oversubscribed: " + granted.sum() + " reservations of " + copies + " copies");
+        }
+        if (reservedAfter != expected) {
+            throw new IllegalStateException("Reserved count " + reservedAfter + " does not match " + expected
+                    + " reservations");
+        }
+    }
+
+    private static int reserved(HttpClient client, URI base, long bookId) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/books/" + bookId + "/availability"))
+                .timeout(Duration.ofSeconds(5)).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = RESERVED.matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Availability of book " + bookId + " answered " + response.statusCode()
+                    + ": " + response.body());
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    private static void setCopies(HttpClient client, URI base, long bookId, int copies)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve("/books/" + bookId + "/availability"))
+                .timeout(Duration.ofSeconds(5))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"copies\":" + copies + "}"))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Setting the copies of book " + bookId + " answered "
+                    + response.statusCode() + ": " + response.body());
+        }
+    }
+}
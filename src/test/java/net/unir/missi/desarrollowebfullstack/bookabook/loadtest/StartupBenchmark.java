@@ -0,0 +1,117 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Time to first request: starts the service several times and measures how long it takes until the url answers
+// 200, together with the startup time Spring logs. Results are appended to a CSV to compare releases and variants.
+//
+//   java ... StartupBenchmark --release=0.0.1 --variant=aot-cds --runs=5
+//       --command="java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -jar target/book-a-book-buscador.jar"
+public final class StartupBenchmark {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\w+ in ([0-9.]+) seconds");
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options = new Options(args);
+        List<String> command = Arrays.asList(options.get("command", "java -jar target/book-a-book-buscador.jar").split(" +"));
+        URI url = URI.create(options.get("url", "http://localhost:8081/actuator/health/readiness"));
+        int runs = (int) options.getLong("runs", 5);
+        Duration timeout = options.getDuration("timeout", Duration.ofMinutes(2));
+        String release = options.get("release", "dev");
+        String variant = options.get("variant", "default");
+        Path results = Path.of(options.get("results", "startup-results.csv"));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        List<Long> times = new ArrayList<>();
+        for (int run = 1; run <= runs; run++) {
+            Run result = measure(command, url, client, timeout);
+            times.add(result.firstRequestMillis);
+            System.out.printf("run %d: first request after %d ms (Spring reported %s s)%n",
+                    run, result.firstRequestMillis, result.springSeconds);
+            append(results, String.join(",", Instant.now().toString(), release, variant, String.valueOf(run),
+                    String.valueOf(result.firstRequestMillis), String.valueOf(result.springSeconds)));
+        }
+
+        times.sort(Long::compare);
+        System.out.printf("%s %s: median %d ms, min %d ms, max %d ms over %d runs%n", release, variant,
+                times.get(times.size() / 2), times.get(0), times.get(times.size() - 1), runs);
+    }
+
+    private static Run measure(List<String> command, URI url, HttpClient client, Duration timeout)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        AtomicReference<String> springSeconds = new AtomicReference<>("");
+        Thread output = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = STARTED.matcher(line);
+                    if (matcher.find()) {
+                        springSeconds.set(matcher.group(1));
+                    }
+                }
+            } catch (IOException e) {
+                // The process was destroyed
+            }
+        });
+        output.setDaemon(true);
+        output.start();
+
+        try {
+            HttpRequest request = HttpRequest.newBuilder(url).timeout(Duration.ofSeconds(2)).build();
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("The service exited with code " + process.exitValue());
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        long millis = (System.nanoTime() - start) / 1_000_000;
+                        // Spring logs its startup time right before the first request can be served
+                        output.join(200);
+                        return new Run(millis, springSeconds.get());
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(20);
+            }
+            throw new IllegalStateException(url + " did not answer 200 within " + timeout);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static void append(Path results, String line) throws IOException {
+        if (!Files.exists(results)) {
+            Files.writeString(results, "timestamp,release,variant,run,first_request_ms,spring_started_s\n");
+        }
+        Files.writeString(results, line + "\n", StandardOpenOption.APPEND);
+    }
+
+    private record Run(long firstRequestMillis, String springSeconds) {
+    }
+}
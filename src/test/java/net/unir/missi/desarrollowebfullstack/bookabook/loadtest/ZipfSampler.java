@@ -0,0 +1,91 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.loadtest;
+
+import java.util.random.RandomGenerator;
+
+// Ranks 1..n with probability proportional to 1/rank^exponent, by rejection-inversion (Hörmann and Derflinger), which
+// needs no table and so works for catalogs of millions of items. An exponent of 0 is uniform.
+final class ZipfSampler {
+
+    private final long n;
+
+    private final double exponent;
+
+    private final double hIntegralX1;
+
+    private final double hIntegralN;
+
+    private final double s;
+
+    private final long multiplier;
+
+    ZipfSampler(long n, double exponent) {
+        if (n < 1 || exponent < 0) {
+            throw new IllegalArgumentException("Invalid Zipf distribution: n=" + n + ", exponent=" + exponent);
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = this.hIntegral(1.5) - 1d;
+        this.hIntegralN = this.hIntegral(n + 0.5);
+        this.s = 2d - this.hIntegralInverse(this.hIntegral(2.5) - this.h(2));
+
+        long multiplier = Math.floorMod(0x9E3779B97F4A7C15L, n);
+        while (n > 1 && gcd(multiplier, n) != 1) {
+            multiplier = (multiplier + 1) % n;
+        }
+        this.multiplier = multiplier;
+    }
+
+    long sample(RandomGenerator random) {
+        if (this.exponent == 0) {
+            return 1 + random.nextLong(this.n);
+        }
+        while (true) {
+            double u = this.hIntegralN + random.nextDouble() * (this.hIntegralX1 - this.hIntegralN);
+            double x = this.hIntegralInverse(u);
+            long k = Math.max(1, Math.min(this.n, (long) (x + 0.5)));
+            if (k - x <= this.s || u >= this.hIntegral(k + 0.5) - this.h(k)) {
+                return k;
+            }
+        }
+    }
+
+    // Id in 1..n of a sampled rank. The most popular items are spread over the whole id range (a multiplication
+    // modulo n, which is a bijection) instead of being the lowest ids.
+    long sampleId(RandomGenerator random) {
+        return Math.floorMod((this.sample(random) - 1) * this.multiplier, this.n) + 1;
+    }
+
+    private static long gcd(long a, long b) {
+        a = Math.abs(a);
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1d - this.exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-this.exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1d, x * (1d - this.exponent));
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1 + x) / x, accurate near 0
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1d - x * (0.5 - x * (1d / 3 - 0.25 * x));
+    }
+
+    // (exp(x) - 1) / x, accurate near 0
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1d + x * 0.5 * (1d + x / 3 * (1d + 0.25 * x));
+    }
+}
@@ -0,0 +1,158 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.AuthorResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.api.BookResponse;
+import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.AuthorAPIConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.converter.api.BookAPIConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.converter.memory.AuthorMemoryConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.converter.memory.BookMemoryConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AuthorDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.query.FieldSelection;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Current list path (document -> memory record -> API response -> Jackson) against the streaming writer.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=net.unir.missi.desarrollowebfullstack.bookabook.serialization.ListSerializationBenchmark
+// and add "-prof gc" to the options to compare the allocation rate.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int size;
+
+    @Param({"*", "name,isbn"})
+    String fields;
+
+    private final BookMemoryConverter bookMemoryConverter = new BookMemoryConverter();
+    private final BookAPIConverter bookAPIConverter = new BookAPIConverter();
+    private final AuthorMemoryConverter authorMemoryConverter = new AuthorMemoryConverter();
+    private final AuthorAPIConverter authorAPIConverter = new AuthorAPIConverter();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+
+    private ObjectMapper mapper;
+    private FieldSelection selection;
+    private List<BookDocument> books;
+    private List<AuthorDocument> authors;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Same configuration as the application's ObjectMapper (JavaTimeModule, ISO dates, JacksonConfig filter)
+        this.mapper = Jackson2ObjectMapperBuilder.json()
+                .filters(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()))
+                .build();
+        this.selection = "*".equals(this.fields) ? FieldSelection.ALL : FieldSelection.parse(this.fields);
+        // Authors without books on both paths: the memory converter looks them up, the streaming writer is given them
+        ReflectionTestUtils.setField(this.authorMemoryConverter, "repository", Mockito.mock(BookRepository.class));
+
+        this.books = new ArrayList<>(this.size);
+        this.authors = new ArrayList<>(this.size);
+        for (long i = 0; i < this.size; i++) {
+            BookDocument book = new BookDocument();
+            book.setId(i);
+            book.setIsbn("978-84-" + (100000 + i));
+            book.setName("Libro número " + i);
+            book.setLanguage(i % 2 == 0 ? "ES" : "EN");
+            book.setDescription("Descripción \"larga\" del libro " + i + " con acentos y comillas");
+            book.setCategory("Novela");
+            this.books.add(book);
+
+            AuthorDocument author = new AuthorDocument();
+            author.setId(i);
+            author.setFirstName("Nombre" + i);
+            author.setLastName("Apellido" + i);
+            author.setBirthDate(LocalDate.of(1900, 1, 1).plusDays(i));
+            author.setNationality("España");
+            author.setEmail("autor" + i + "@example.com");
+            author.setWebSite("https://example.com/" + i);
+            author.setBiography("Biografía del autor " + i);
+            this.authors.add(author);
+        }
+
+        // Both paths must produce the same bytes, otherwise the comparison is meaningless
+        if (!Arrays.equals(this.currentBooks(), this.streamedBooks())
+                || !Arrays.equals(this.currentAuthors(), this.streamedAuthors())) {
+            throw new IllegalStateException("The streaming writer does not produce the same JSON as the current path");
+        }
+    }
+
+    @Benchmark
+    public byte[] currentBooks() throws IOException {
+        List<BookResponse> responses = this.books.stream()
+                .map(document -> this.bookMemoryConverter.fromDocument(document, this.selection))
+                .map(book -> this.bookAPIConverter.fromMemory(book, this.selection))
+                .collect(Collectors.toList());
+        return this.write(responses);
+    }
+
+    @Benchmark
+    public byte[] streamedBooks() throws IOException {
+        return this.write(StreamedList.books(this.books, this.selection));
+    }
+
+    @Benchmark
+    public byte[] currentAuthors() throws IOException {
+        List<AuthorResponse> responses = this.authors.stream()
+                .map(document -> this.authorMemoryConverter.fromDocument(document, this.selection))
+                .map(author -> this.authorAPIConverter.fromMemory(author, this.selection))
+                .collect(Collectors.toList());
+        return this.write(responses);
+    }
+
+    @Benchmark
+    public byte[] streamedAuthors() throws IOException {
+        return this.write(StreamedList.authors(this.authors, this.selection, Map.of()));
+    }
+
+    // What the message converter does with the body, including the MappingJacksonValue filters
+    private byte[] write(Object body) throws IOException {
+        ObjectWriter writer = this.selection.isAll() ? this.mapper.writer() : this.mapper.writer(this.selection.toFilterProvider());
+        this.out.reset();
+        writer.writeValue(this.out, body);
+        return this.out.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ListSerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,252 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.AvailabilityDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.BookDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ClientDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.model.ReservationDocument;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.BookRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ClientRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchReservationRepository;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchReservationRepository.Versioned;
+import net.unir.missi.desarrollowebfullstack.bookabook.reservation.CopyLedger;
+import net.unir.missi.desarrollowebfullstack.bookabook.reservation.ReservationConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The copies of a book must never be given out more than once, whatever step of a reservation fails
+class ReservationServiceTest {
+
+    private static final Long BOOK = 1L;
+
+    private FakeReservationRepository repository;
+
+    private CopyLedger ledger;
+
+    private ReservationService service;
+
+    @BeforeEach
+    void setUp() {
+        this.repository = new FakeReservationRepository();
+        this.ledger = new CopyLedger(this.repository, new SimpleMeterRegistry(), 4, 1, 5, Duration.ZERO, 100);
+
+        BookRepository books = mock(BookRepository.class);
+        when(books.getById(anyLong())).thenReturn(new BookDocument());
+        ClientRepository clients = mock(ClientRepository.class);
+        when(clients.getClientById(anyLong())).thenReturn(new ClientDocument());
+
+        this.service = new ReservationService();
+        ReflectionTestUtils.setField(this.service, "reservationRepository", this.repository);
+        ReflectionTestUtils.setField(this.service, "bookRepository", books);
+        ReflectionTestUtils.setField(this.service, "clientRepository", clients);
+        ReflectionTestUtils.setField(this.service, "copyLedger", this.ledger);
+        ReflectionTestUtils.setField(this.service, "duration", Duration.ofDays(14));
+        // Pending reservations are expired on the next run
+        ReflectionTestUtils.setField(this.service, "pendingTimeout", Duration.ofMillis(-1));
+        ReflectionTestUtils.setField(this.service, "expireBatchSize", 100);
+    }
+
+    @Test
+    void soldOutReservationThatCannotBeCancelledGivesNothingBack() {
+        this.service.reserve(BOOK, 1L);
+        this.repository.failReservationWrites = ReservationDocument.CANCELLED;
+        assertThrows(ReservationConflictException.class, () -> this.service.reserve(BOOK, 2L));
+        this.repository.failReservationWrites = null;
+
+        assertEquals(1, this.service.expireDue());
+        assertEquals(1, this.reserved());
+        assertThrows(ReservationConflictException.class, () -> this.service.reserve(BOOK, 3L));
+    }
+
+    @Test
+    void takeFailingBeforeItsWriteGivesNothingBack() {
+        ReservationDocument first = this.service.reserve(BOOK, 1L);
+        this.service.returnReservation(first.getId());
+        this.ledger.setCopies(BOOK, 2);
+        this.service.reserve(BOOK, 2L);
+
+        // A new ledger, as on another instance, has to read the availability first
+        this.ledger = new CopyLedger(this.repository, new SimpleMeterRegistry(), 4, 1, 5, Duration.ZERO, 100);
+        ReflectionTestUtils.setField(this.service, "copyLedger", this.ledger);
+        this.repository.failAvailabilityReads = true;
+        assertThrows(RuntimeException.class, () -> this.service.reserve(BOOK, 3L));
+        this.repository.failAvailabilityReads = false;
+
+        assertEquals(1, this.service.expireDue());
+        assertEquals(1, this.reserved());
+        this.service.reserve(BOOK, 4L);
+        assertThrows(ReservationConflictException.class, () -> this.service.reserve(BOOK, 5L));
+    }
+
+    @Test
+    void takeWhoseAnswerIsLostIsGivenBackByTheExpiry() {
+        this.ledger.setCopies(BOOK, 1);
+        this.repository.loseNextAvailabilityAnswer = true;
+        assertThrows(RuntimeException.class, () -> this.service.reserve(BOOK, 1L));
+        assertEquals(1, this.reserved());
+
+        assertEquals(1, this.service.expireDue());
+        assertEquals(0, this.reserved());
+        this.service.reserve(BOOK, 2L);
+    }
+
+    @Test
+    void confirmationFailingAfterTheTakeIsGivenBackByTheExpiry() {
+        this.repository.failReservationWrites = ReservationDocument.ACTIVE;
+        assertThrows(RuntimeException.class, () -> this.service.reserve(BOOK, 1L));
+        this.repository.failReservationWrites = null;
+        assertEquals(1, this.reserved());
+
+        assertEquals(1, this.service.expireDue());
+        assertEquals(0, this.reserved());
+    }
+
+    @Test
+    void failedReleaseIsRetriedOnceByTheExpiry() {
+        ReservationDocument reservation = this.service.reserve(BOOK, 1L);
+        this.repository.failAvailabilityWrites = true;
+        assertEquals(ReservationDocument.RETURNED, this.service.returnReservation(reservation.getId()).getStatus());
+        this.repository.failAvailabilityWrites = false;
+        assertEquals(1, this.reserved());
+
+        this.service.expireDue();
+        this.service.expireDue();
+        assertEquals(0, this.reserved());
+        assertEquals(List.of(), this.repository.getAvailability(BOOK).value().getHolders());
+    }
+
+    @Test
+    void takingTwiceForTheSameReservationTakesOneCopy() {
+        assertEquals(true, this.ledger.take(BOOK, "a"));
+        assertEquals(true, this.ledger.take(BOOK, "a"));
+        assertEquals(false, this.ledger.take(BOOK, "b"));
+        assertEquals(1, this.reserved());
+
+        this.ledger.release(BOOK, "a");
+        this.ledger.release(BOOK, "a");
+        this.ledger.release(BOOK, "b");
+        assertEquals(0, this.reserved());
+    }
+
+    @Test
+    void oneFailingExpiryDoesNotHoldBackTheOthers() {
+        this.ledger.setCopies(BOOK, 2);
+        ReservationDocument first = this.service.reserve(BOOK, 1L);
+        this.service.reserve(BOOK, 2L);
+        this.repository.expireEverything = true;
+        this.repository.failReservationWritesOf = first.getId();
+
+        assertEquals(1, this.service.expireDue());
+        assertEquals(1, this.reserved());
+    }
+
+    private int reserved() {
+        return this.repository.getAvailability(BOOK).value().getReserved();
+    }
+
+    // Conditional writes over in-memory documents, with the failures of Elasticsearch on demand
+    private static final class FakeReservationRepository extends ElasticsearchReservationRepository {
+
+        private final Map<Long, Versioned<AvailabilityDocument>> availability = new HashMap<>();
+
+        private final Map<String, Versioned<ReservationDocument>> reservations = new HashMap<>();
+
+        private long seqNo;
+
+        private boolean failAvailabilityReads;
+
+        private boolean failAvailabilityWrites;
+
+        private boolean loseNextAvailabilityAnswer;
+
+        private String failReservationWrites;
+
+        private String failReservationWritesOf;
+
+        private boolean expireEverything;
+
+        private FakeReservationRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public synchronized Versioned<AvailabilityDocument> getAvailability(Long bookId) {
+            if (this.failAvailabilityReads) {
+                throw new RuntimeException("Elasticsearch is down");
+            }
+            return this.availability.get(bookId);
+        }
+
+        @Override
+        public synchronized Versioned<AvailabilityDocument> saveAvailability(AvailabilityDocument availability,
+                                                                           Versioned<AvailabilityDocument> expected) {
+            if (this.failAvailabilityWrites) {
+                throw new RuntimeException("Elasticsearch is down");
+            }
+            Versioned<AvailabilityDocument> written = this.put(this.availability, availability.getBookId(), availability, expected);
+            if (written != null && this.loseNextAvailabilityAnswer) {
+                this.loseNextAvailabilityAnswer = false;
+                throw new RuntimeException("The answer was lost");
+            }
+            return written;
+        }
+
+        @Override
+        public synchronized Versioned<ReservationDocument> getReservation(String id) {
+            return this.reservations.get(id);
+        }
+
+        @Override
+        public synchronized Versioned<ReservationDocument> saveReservation(ReservationDocument reservation,
+                                                                         Versioned<ReservationDocument> expected) {
+            if (reservation.getStatus().equals(this.failReservationWrites)
+                    || reservation.getId().equals(this.failReservationWritesOf)) {
+                throw new RuntimeException("Elasticsearch is down");
+            }
+            return this.put(this.reservations, reservation.getId(), reservation, expected);
+        }
+
+        @Override
+        public synchronized List<Versioned<ReservationDocument>> getExpiredReservations(long now, long pendingBefore, int size) {
+            List<Versioned<ReservationDocument>> expired = new ArrayList<>();
+            for (Versioned<ReservationDocument> reservation : this.reservations.values()) {
+                ReservationDocument value = reservation.value();
+                boolean active = ReservationDocument.ACTIVE.equals(value.getStatus())
+                        && (this.expireEverything || value.getExpiresAt() < now);
+                boolean pending = ReservationDocument.PENDING.equals(value.getStatus()) && value.getReservedAt() < pendingBefore;
+                if (active || pending) {
+                    expired.add(reservation);
+                }
+            }
+            expired.sort(Comparator.comparing(reservation -> reservation.value().getExpiresAt()));
+            return expired.subList(0, Math.min(size, expired.size()));
+        }
+
+        private <K, T> Versioned<T> put(Map<K, Versioned<T>> documents, K id, T document, Versioned<T> expected) {
+            Versioned<T> current = documents.get(id);
+            boolean matches = expected == null
+                    ? current == null
+                    : current != null && current.seqNo() == expected.seqNo();
+            if (!matches) {
+                return null;
+            }
+            Versioned<T> written = new Versioned<>(document, ++this.seqNo, 1);
+            documents.put(id, written);
+            return written;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package net.unir.missi.desarrollowebfullstack.bookabook.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.unir.missi.desarrollowebfullstack.bookabook.DTO.memory.DeleteTask;
+import net.unir.missi.desarrollowebfullstack.bookabook.converter.memory.TaskMemoryConverter;
+import net.unir.missi.desarrollowebfullstack.bookabook.repository.ElasticsearchTaskRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The endpoint of the tasks is open, so it must not tell anything about the tasks of the cluster that are not ours
+class TaskServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ElasticsearchTaskRepository taskRepository;
+
+    private TaskService service;
+
+    @BeforeEach
+    void setUp() {
+        this.taskRepository = mock(ElasticsearchTaskRepository.class);
+        this.service = new TaskService();
+        ReflectionTestUtils.setField(this.service, "taskRepository", this.taskRepository);
+        ReflectionTestUtils.setField(this.service, "taskMemoryConverter", new TaskMemoryConverter());
+    }
+
+    @Test
+    void deletesOfTheCatalogAreFound() throws Exception {
+        this.task("n1:10", """
+                {"completed": true,
+                 "task": {"action": "indices:data/write/delete/byquery", "description": "delete-by-query [book]"},
+                 "response": {"total": 3, "deleted": 3}}""");
+
+        DeleteTask task = this.service.getDeleteTask("n1:10");
+        assertEquals(3, task.deleted());
+    }
+
+    @Test
+    void otherTasksAreNotFound() throws Exception {
+        this.task("n1:11", """
+                {"completed": false,
+                 "task": {"action": "indices:data/write/reindex", "description": "reindex from [book] to [copy]"}}""");
+        this.task("n1:12", """
+                {"completed": false,
+                 "task": {"action": "indices:data/write/delete/byquery",
+                          "description": "delete-by-query [security]"}}""");
+
+        assertNull(this.service.getDeleteTask("n1:11"));
+        assertNull(this.service.getDeleteTask("n1:12"));
+        assertNull(this.service.getDeleteTask("n1:13"));
+    }
+
+    private void task(String taskId, String json) throws Exception {
+        when(this.taskRepository.getTask(taskId)).thenReturn(this.objectMapper.readTree(json));
+    }
+}